@@ -0,0 +1,119 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class AccountServiceBenchmark {
+
+    private static final int ACCOUNTS = 64;
+    private static final Money OPENING_BALANCE = Money.parse("1000000000");
+    private static final Money AMOUNT = Money.parse("1");
+
+    private ConfigurableApplicationContext context;
+    private EntityManagerFactory entityManagerFactory;
+    private AccountService accountService;
+    private int[] accountIds;
+    private Account unmanagedAccount;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start();
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        accountService = context.getBean(AccountService.class);
+        accountIds = new int[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds[i] = BenchmarkContext.seedAccount(context, "First" + i, "Last" + i, OPENING_BALANCE).getAccountId();
+        }
+        unmanagedAccount = new Account("Ben", "Scott");
+        unmanagedAccount.setBalance(OPENING_BALANCE);
+        unmanagedAccount.setNotificationPreference("email");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    /**
+     * Each benchmark thread posts to its own pair of accounts, so the multi-threaded variants measure scaling
+     * rather than contention on one row.
+     */
+    @State(Scope.Thread)
+    public static class ThreadAccounts {
+        int from;
+        int to;
+
+        @Setup(Level.Trial)
+        public void pick(AccountServiceBenchmark benchmark, ThreadParams threadParams) {
+            int index = threadParams.getThreadIndex() * 2 % ACCOUNTS;
+            from = benchmark.accountIds[index];
+            to = benchmark.accountIds[index + 1];
+        }
+    }
+
+    @Benchmark
+    public AccountDTO deposit(ThreadAccounts accounts) {
+        return BenchmarkContext.inRequest(entityManagerFactory, () -> accountService.deposit(accounts.from, AMOUNT));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AccountDTO depositConcurrent(ThreadAccounts accounts) {
+        return deposit(accounts);
+    }
+
+    @Benchmark
+    public AccountDTO withdraw(ThreadAccounts accounts) {
+        return BenchmarkContext.inRequest(entityManagerFactory, () -> accountService.withdraw(accounts.from, AMOUNT));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AccountDTO withdrawConcurrent(ThreadAccounts accounts) {
+        return withdraw(accounts);
+    }
+
+    @Benchmark
+    public void wireTransfer(ThreadAccounts accounts) {
+        BenchmarkContext.inRequest(entityManagerFactory, () -> {
+            accountService.wireTransferFromAccount1ToAccount2(accounts.from, accounts.to, AMOUNT);
+            return null;
+        });
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void wireTransferConcurrent(ThreadAccounts accounts) {
+        wireTransfer(accounts);
+    }
+
+    @Benchmark
+    public AccountDTO mapAccountToDTO() {
+        return accountService.mapAccountToDTO(unmanagedAccount);
+    }
+}
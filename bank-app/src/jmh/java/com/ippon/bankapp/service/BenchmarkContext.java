@@ -0,0 +1,55 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.BankappApplication;
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.AccountRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Supplier;
+
+/**
+ * Boots the application against an embedded H2 bankapp schema, without the web layer, for benchmarks.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(BankappApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bankapp",
+                        "spring.jpa.show-sql=false",
+                        "bankapp.deposit.daily-limit=1000000000000",
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    static Account seedAccount(ConfigurableApplicationContext context, String firstName, String lastName, Money balance) {
+        Account account = new Account(firstName, lastName);
+        account.setBalance(balance);
+        return context.getBean(AccountRepository.class).save(account);
+    }
+
+    /**
+     * Runs work with an entity manager bound to the thread, the way open-in-view does for an HTTP request.
+     */
+    static <T> T inRequest(EntityManagerFactory entityManagerFactory, Supplier<T> work) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            return work.get();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.DepositLimitRepository;
+import com.ippon.bankapp.repository.Shards;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Daily limit checks on their own, spread over a large id range, to keep an eye on the cost a deposit pays
+ * before it reaches the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class DailyDepositLedgerBenchmark {
+
+    private static final Money AMOUNT = Money.ofMinor(1);
+
+    @Param({"10000", "1000000"})
+    public int accounts;
+
+    private DailyDepositLedger ledger;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void start() {
+        DepositLimitProperties properties = new DepositLimitProperties();
+        properties.setDailyLimit(new BigDecimal("1000000000"));
+        DepositLimitRepository repository = mock(DepositLimitRepository.class);
+        when(repository.findAll()).thenReturn(Collections.emptyList());
+        DepositLimits limits = new DepositLimits(properties, repository, new Shards());
+        limits.refresh();
+        ledger = new DailyDepositLedger(limits);
+    }
+
+    @Benchmark
+    public boolean tryReserve() {
+        return ledger.tryReserve(nextAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean tryReserveContended() {
+        return ledger.tryReserve(nextAccount(), AMOUNT);
+    }
+
+    private int nextAccount() {
+        // racy under @Threads, which only spreads the accounts
+        return (next = next % accounts + 1);
+    }
+}
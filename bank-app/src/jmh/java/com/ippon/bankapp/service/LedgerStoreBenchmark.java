@@ -0,0 +1,81 @@
+package com.ippon.bankapp.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Postings straight against {@link MappedLedgerStore}, journal included, for comparison with the database
+ * path in {@link AccountServiceBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class LedgerStoreBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    @Param({"false", "true"})
+    public boolean forceWrites;
+
+    private Path directory;
+    private MappedLedgerStore store;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        directory = Files.createTempDirectory("ledger-bench");
+        store = new MappedLedgerStore(directory, 64L << 20, forceWrites);
+        for (int id = 1; id <= ACCOUNTS; id++) {
+            store.open(id, 1_000_000_000L);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        store.destroy();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public long deposit() {
+        return store.deposit(nextAccount(), 100);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long depositContended() {
+        return store.deposit(nextAccount(), 100);
+    }
+
+    @Benchmark
+    public void transfer() {
+        int from = nextAccount();
+        store.transfer(from, from % ACCOUNTS + 1, 1);
+    }
+
+    private int nextAccount() {
+        // racy under @Threads, which only spreads the accounts
+        return (next = next % ACCOUNTS + 1);
+    }
+}
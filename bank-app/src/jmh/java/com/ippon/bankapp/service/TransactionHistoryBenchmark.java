@@ -0,0 +1,98 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.domain.Transaction;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.TransactionRepository;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.dto.TransactionDTO;
+import com.ippon.bankapp.service.dto.TransactionPageDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class TransactionHistoryBenchmark {
+
+    private static final int SEED_BATCH = 1000;
+
+    @Param({"10", "1000", "10000"})
+    public int historySize;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private AccountDTO accountDTO;
+    private int accountId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start();
+        transactionService = context.getBean(TransactionService.class);
+        Account account = BenchmarkContext.seedAccount(context, "History", "Bench", Money.ZERO);
+        accountId = account.getAccountId();
+        accountDTO = new AccountDTO().firstName("History").lastName("Bench");
+        seedHistory();
+    }
+
+    private void seedHistory() {
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        TransactionRepository transactionRepository = context.getBean(TransactionRepository.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        for (int seeded = 0; seeded < historySize; seeded += SEED_BATCH) {
+            int batch = Math.min(SEED_BATCH, historySize - seeded);
+            transactionTemplate.execute(status -> {
+                Account account = accountRepository.findByAccountId(accountId).get();
+                List<Transaction> rows = new ArrayList<>(batch);
+                for (int i = 0; i < batch; i++) {
+                    rows.add(new Transaction(account, "Deposit of 1$", Money.parse("1")));
+                }
+                return transactionRepository.saveAll(rows);
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public ArrayList<TransactionDTO> findAllTransactionsByAccount() {
+        return transactionService.findAllTransactionsByAccount(accountDTO);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ArrayList<TransactionDTO> findAllTransactionsByAccountConcurrent() {
+        return findAllTransactionsByAccount();
+    }
+
+    @Benchmark
+    public TransactionPageDTO firstHistoryPage() {
+        return transactionService.findTransactionPage(accountId, null, 10);
+    }
+}
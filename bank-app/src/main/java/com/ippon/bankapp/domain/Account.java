@@ -1,26 +1,49 @@
 package com.ippon.bankapp.domain;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 @Entity
-@Table(name = "account")
+@Table(name = "account",
+        uniqueConstraints = @UniqueConstraint(name = Account.LAST_NAME_INDEX, columnNames = "last_name"),
+        indexes = @Index(name = "idx_account_first_name", columnList = "first_name"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Account.CACHE_REGION)
+@NaturalIdCache(region = Account.LAST_NAME_CACHE_REGION)
 public class Account {
 
+    public static final String LAST_NAME_INDEX = "uk_account_last_name";
+    public static final String CACHE_REGION = "account";
+    public static final String LAST_NAME_CACHE_REGION = "account-by-last-name";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_seq")
+    @GenericGenerator(name = "account_seq", strategy = "com.ippon.bankapp.domain.AssignableSequenceGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "account_seq"),
+            @Parameter(name = "increment_size", value = "50")})
     private int accountId;
 
+    @Version
+    @Column(name = "version")
+    private long version;
+
     @Column(name = "balance")
-    private BigDecimal balance;
+    private Money balance;
 
     @Column(name = "first_name")
     private String firstName;
 
+    @NaturalId
     @Column(name = "last_name")
     private String lastName;
 
@@ -30,6 +53,8 @@ public class Account {
     @Column(name= "last_updated_date")
     private LocalDateTime lastUpdatedDate;
 
+    // lazy, and never read or added to when posting: postings insert their Transaction rows directly, so
+    // the cost of a posting does not grow with the account's history
     @OneToMany(
             mappedBy = "account",
             orphanRemoval = true,
@@ -41,10 +66,22 @@ public class Account {
     public Account(String firstName, String lastName) {
         this.firstName = firstName;
         this.lastName = lastName;
-        this.balance = BigDecimal.ZERO;
+        this.balance = Money.ZERO;
         this.lastUpdatedDate = LocalDateTime.now();
     }
 
+    /**
+     * An account whose id was drawn in advance, see AccountRepositoryCustom.nextAccountId.
+     */
+    public Account(int accountId, String firstName, String lastName) {
+        this(firstName, lastName);
+        this.accountId = accountId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     public List<Transaction> getTransactions() {
         return transactions;
     }
@@ -53,11 +90,11 @@ public class Account {
         this.transactions = transactions;
     }
 
-    public BigDecimal getBalance() {
+    public Money getBalance() {
         return balance;
     }
 
-    public void setBalance(BigDecimal amount) {
+    public void setBalance(Money amount) {
         this.balance = amount;
     }
 
@@ -0,0 +1,25 @@
+package com.ippon.bankapp.domain;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.io.Serializable;
+
+/**
+ * A sequence generator that keeps an id the entity already has. With sharding, an account's id decides which
+ * database it is written to, so the id is drawn from the sequence before the entity is saved rather than during
+ * the insert.
+ */
+public class AssignableSequenceGenerator extends SequenceStyleGenerator {
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        if (object != null) {
+            Serializable id = session.getEntityPersister(null, object).getIdentifier(object, session);
+            if (id instanceof Number && ((Number) id).longValue() != 0) {
+                return id;
+            }
+        }
+        return super.generate(session, object);
+    }
+}
@@ -0,0 +1,110 @@
+package com.ippon.bankapp.domain;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * An account's balance at the start and end of one day. A row exists only for days with at least one posting,
+ * and it is updated in the same transaction as every posting on that day.
+ */
+@Entity
+@Table(name = "balance_snapshot",
+        uniqueConstraints = @UniqueConstraint(name = "uk_balance_snapshot_account_date",
+                columnNames = {"account_id", "snapshot_date"}))
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "balance_snapshot_seq")
+    @SequenceGenerator(name = "balance_snapshot_seq", sequenceName = "balance_snapshot_seq", allocationSize = 50)
+    @Column(name = "snapshot_id")
+    private long snapshotId;
+
+    @Column(name = "account_id")
+    private int accountId;
+
+    @Column(name = "snapshot_date")
+    private LocalDate snapshotDate;
+
+    @Column(name = "opening_balance")
+    private Money openingBalance;
+
+    @Column(name = "closing_balance")
+    private Money closingBalance;
+
+    @Column(name = "postings")
+    private int postings;
+
+    public BalanceSnapshot() {
+    }
+
+    public BalanceSnapshot(int accountId, LocalDate snapshotDate, Money openingBalance) {
+        this.accountId = accountId;
+        this.snapshotDate = snapshotDate;
+        this.openingBalance = openingBalance;
+        this.closingBalance = openingBalance;
+    }
+
+    /**
+     * Moves the closing balance to the account's balance after another posting on this day.
+     */
+    public void post(Money balanceAfter) {
+        post(balanceAfter, 1);
+    }
+
+    /**
+     * Moves the closing balance to the account's balance after the given number of postings on this day.
+     */
+    public void post(Money balanceAfter, int count) {
+        this.closingBalance = balanceAfter;
+        this.postings += count;
+    }
+
+    public long getSnapshotId() {
+        return snapshotId;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public LocalDate getSnapshotDate() {
+        return snapshotDate;
+    }
+
+    public Money getOpeningBalance() {
+        return openingBalance;
+    }
+
+    public Money getClosingBalance() {
+        return closingBalance;
+    }
+
+    public int getPostings() {
+        return postings;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BalanceSnapshot that = (BalanceSnapshot) o;
+        return accountId == that.accountId && Objects.equals(snapshotDate, that.snapshotDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountId, snapshotDate);
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceSnapshot{" +
+                "accountId=" + accountId +
+                ", snapshotDate=" + snapshotDate +
+                ", openingBalance=" + openingBalance +
+                ", closingBalance=" + closingBalance +
+                ", postings=" + postings +
+                '}';
+    }
+}
@@ -3,17 +3,17 @@ package com.ippon.bankapp.domain;
 public class Deposit {
     String id;
     String id2;
-    String amount;
+    Money amount;
 
     public Deposit() {
     }
 
-    public Deposit(String id, String amount) {
+    public Deposit(String id, Money amount) {
         this.id = id;
         this.amount = amount;
     }
 
-    public Deposit(String id, String id2, String amount){
+    public Deposit(String id, String id2, Money amount){
         this.id = id;
         this.id2 = id2;
         this.amount = amount;
@@ -36,11 +36,11 @@ public class Deposit {
         this.id2 = id2;
     }
 
-    public String getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(String amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -51,7 +51,7 @@ public class Deposit {
        if(!id2.equals("")){
            string += ", id2='" + id + '\'';
        }
-       string += ", amount='" + amount + '\'' + '}';
+       string += ", amount=" + amount + '}';
 
        return string;
     }
@@ -0,0 +1,51 @@
+package com.ippon.bankapp.domain;
+
+import javax.persistence.*;
+
+/**
+ * An account's own daily deposit limit: a tier configured under {@code bankapp.deposit.tiers}, or an amount,
+ * which wins when both are set.
+ */
+@Entity
+@Table(name = "deposit_limit")
+public class DepositLimit {
+
+    @Id
+    @Column(name = "account_id")
+    private int accountId;
+
+    @Column(name = "tier")
+    private String tier;
+
+    @Column(name = "daily_limit")
+    private Money dailyLimit;
+
+    public DepositLimit() {
+    }
+
+    public DepositLimit(int accountId, String tier, Money dailyLimit) {
+        this.accountId = accountId;
+        this.tier = tier;
+        this.dailyLimit = dailyLimit;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public String getTier() {
+        return tier;
+    }
+
+    public void setTier(String tier) {
+        this.tier = tier;
+    }
+
+    public Money getDailyLimit() {
+        return dailyLimit;
+    }
+
+    public void setDailyLimit(Money dailyLimit) {
+        this.dailyLimit = dailyLimit;
+    }
+}
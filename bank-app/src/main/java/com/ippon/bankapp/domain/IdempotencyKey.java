@@ -0,0 +1,68 @@
+package com.ippon.bankapp.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * A client's Idempotency-Key, the request it was first used for and, once that request has finished, the JSON
+ * response to replay to retries. Rows are claimed and completed through IdempotencyKeyRepository's queries.
+ */
+@Entity
+@Table(name = "idempotency_key", indexes = @Index(name = "idx_idempotency_key_created_at", columnList = "created_at"))
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    @Column(name = "request")
+    private String request;
+
+    @Column(name = "response")
+    private String response;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    public IdempotencyKey() {
+    }
+
+    public IdempotencyKey(String key, String request, String response, LocalDateTime createdAt) {
+        this.key = key;
+        this.request = request;
+        this.response = response;
+        this.createdAt = createdAt;
+        this.startedAt = createdAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public boolean isCompleted() {
+        return response != null;
+    }
+}
@@ -0,0 +1,242 @@
+package com.ippon.bankapp.domain;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * An amount of money held as a whole number of minor units (cents for USD) plus its currency. Arithmetic is
+ * exact long arithmetic that fails on overflow rather than wrapping, and an amount finer than the currency's
+ * minor unit cannot be represented at all.
+ * <p>
+ * In JSON a Money is a plain decimal number, and either a number or a string is accepted on the way in.
+ * Parsing reads the digits straight into the minor-unit count without building a BigDecimal.
+ */
+@JsonSerialize(using = Money.Writer.class)
+@JsonDeserialize(using = Money.Reader.class)
+public final class Money implements Comparable<Money>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The currency the bank keeps its books in. Amounts read from the database or a request are in this currency.
+     */
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
+    public static final Money ZERO = new Money(0, DEFAULT_CURRENCY);
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+
+    private final long minor;
+
+    private final Currency currency;
+
+    private Money(long minor, Currency currency) {
+        this.minor = minor;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minor) {
+        return minor == 0 ? ZERO : new Money(minor, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofMinor(long minor, Currency currency) {
+        return currency.equals(DEFAULT_CURRENCY) ? ofMinor(minor) : new Money(minor, currency);
+    }
+
+    /**
+     * @throws ArithmeticException if amount has more decimal places than the currency allows or does not fit
+     */
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.movePointRight(scaleOf(DEFAULT_CURRENCY))
+                .setScale(0, RoundingMode.UNNECESSARY)
+                .longValueExact());
+    }
+
+    public static Money parse(CharSequence text) {
+        return parse(text, DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Parses a plain decimal such as {@code 12}, {@code -0.5} or {@code 1000.25}. Exponent notation is accepted
+     * too but takes the slower BigDecimal route.
+     *
+     * @throws NumberFormatException if text is not a decimal number, has more decimal places than the currency
+     *                               allows, or does not fit
+     */
+    public static Money parse(CharSequence text, Currency currency) {
+        int scale = scaleOf(currency);
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        try {
+            for (; i < length; i++) {
+                char c = text.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    if (fractionDigits == scale) {
+                        if (c != '0') {
+                            throw new NumberFormatException("More than " + scale + " decimal places: " + text);
+                        }
+                        continue;
+                    }
+                    units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                    digits++;
+                    if (fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                } else if (c == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                } else if (c == 'e' || c == 'E') {
+                    return parseExponent(text, currency);
+                } else {
+                    throw new NumberFormatException("Not a decimal amount: " + text);
+                }
+            }
+            if (digits == 0) {
+                throw new NumberFormatException("Not a decimal amount: " + text);
+            }
+            long minor = Math.multiplyExact(units, POWERS_OF_TEN[scale - Math.max(fractionDigits, 0)]);
+            return ofMinor(negative ? -minor : minor, currency);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    private static Money parseExponent(CharSequence text, Currency currency) {
+        try {
+            return ofMinor(new BigDecimal(text.toString())
+                    .movePointRight(scaleOf(currency))
+                    .setScale(0, RoundingMode.UNNECESSARY)
+                    .longValueExact(), currency);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Not a whole number of minor units: " + text);
+        }
+    }
+
+    private static int scaleOf(Currency currency) {
+        return Math.max(currency.getDefaultFractionDigits(), 0);
+    }
+
+    public long getMinor() {
+        return minor;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minor, sameCurrency(other).minor), currency);
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minor, sameCurrency(other).minor), currency);
+    }
+
+    public boolean isPositive() {
+        return minor > 0;
+    }
+
+    public boolean isZero() {
+        return minor == 0;
+    }
+
+    public int signum() {
+        return Long.signum(minor);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minor, scaleOf(currency));
+    }
+
+    private Money sameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+        return other;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minor, sameCurrency(other).minor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Money money = (Money) o;
+        return minor == money.minor && currency.equals(money.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minor, currency);
+    }
+
+    /**
+     * The amount as a plain decimal with exactly the currency's number of decimal places, e.g. {@code 12.50}.
+     */
+    @Override
+    public String toString() {
+        int scale = scaleOf(currency);
+        if (scale == 0 || minor == Long.MIN_VALUE) {
+            return toBigDecimal().toPlainString();
+        }
+        StringBuilder text = new StringBuilder(24);
+        long abs = Math.abs(minor);
+        if (minor < 0) {
+            text.append('-');
+        }
+        text.append(abs / POWERS_OF_TEN[scale]).append('.');
+        String fraction = Long.toString(abs % POWERS_OF_TEN[scale]);
+        for (int i = fraction.length(); i < scale; i++) {
+            text.append('0');
+        }
+        return text.append(fraction).toString();
+    }
+
+    static final class Writer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.toString());
+        }
+    }
+
+    static final class Reader extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken token = p.getCurrentToken();
+            if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+                    && token != JsonToken.VALUE_STRING) {
+                return (Money) ctxt.handleUnexpectedToken(Money.class, p);
+            }
+            String text = p.getText().trim();
+            try {
+                return parse(text);
+            } catch (NumberFormatException e) {
+                return (Money) ctxt.handleWeirdStringValue(Money.class, text, e.getMessage());
+            }
+        }
+    }
+}
@@ -2,35 +2,42 @@ package com.ippon.bankapp.domain;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions",
+        indexes = {
+                @Index(name = "idx_transactions_account_timestamp", columnList = "account_id, timestamp, transaction_id"),
+                @Index(name = "idx_transactions_timestamp", columnList = "timestamp")})
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
+    @Column(name = "transaction_id")
     private int transactionId;
 
     @Column(name = "transaction_Type")
     private String transactionType;
 
     @Column(name = "amount")
-    private BigDecimal amount;
+    private Money amount;
 
     @Column(name = "timestamp")
     private LocalDateTime timestamp;
 
+    // lazy and without cascade: a posting saves its own row against an account it has already loaded, and
+    // history reads select columns rather than entities
     @NotNull
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "account_id")
     private Account account;
 
-    public Transaction(Account account, String transactionType, BigDecimal amount) {
+    public Transaction(Account account, String transactionType, Money amount) {
         this.transactionType = transactionType;
         this.account = account;
-        this.timestamp = account.getLastUpdatedDate();
+        this.timestamp = LocalDateTime.now();
         this.amount = amount;
     }
 
@@ -49,11 +56,11 @@ public class Transaction {
         return transactionId;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -73,17 +80,24 @@ public class Transaction {
         this.account = account;
     }
 
+    /**
+     * The account's id, which an uninitialized proxy can answer without loading the account.
+     */
+    private Integer accountId() {
+        return account == null ? null : account.getAccountId();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Transaction that = (Transaction) o;
-        return transactionId == that.transactionId && Objects.equals(transactionType, that.transactionType) && Objects.equals(amount, that.amount) && Objects.equals(timestamp, that.timestamp) && Objects.equals(account, that.account);
+        return transactionId == that.transactionId && Objects.equals(transactionType, that.transactionType) && Objects.equals(amount, that.amount) && Objects.equals(timestamp, that.timestamp) && Objects.equals(accountId(), that.accountId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(transactionType, transactionId, amount, timestamp, account);
+        return Objects.hash(transactionType, transactionId, amount, timestamp, accountId());
     }
 
     @Override
@@ -93,7 +107,7 @@ public class Transaction {
                 ", id=" + transactionId +
                 ", balance=" + amount +
                 ", timestamp=" + timestamp +
-                ", account=" + account +
+                ", accountId=" + accountId() +
                 '}';
     }
 }
@@ -0,0 +1,112 @@
+package com.ippon.bankapp.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * A wire transfer between accounts on different shards, which cannot share a database transaction. The sender is
+ * debited and the saga recorded as DEBITED in one transaction on the sender's shard; the recipient is credited and
+ * a CREDITED copy of the saga written in one transaction on the recipient's shard; the sender's copy is then marked
+ * COMPLETED, or COMPENSATED if the credit could not be made and the debit was reversed.
+ */
+@Entity
+@Table(name = "transfer_saga", indexes = @Index(name = "idx_transfer_saga_state_created_at", columnList = "state, created_at"))
+public class TransferSaga {
+
+    public enum State {
+        DEBITED, CREDITED, COMPLETED, COMPENSATED
+    }
+
+    @Id
+    @Column(name = "saga_id")
+    private String sagaId;
+
+    @Column(name = "from_account_id")
+    private int fromAccountId;
+
+    @Column(name = "to_account_id")
+    private int toAccountId;
+
+    @Column(name = "amount")
+    private Money amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state")
+    private State state;
+
+    @Column(name = "recipient_message")
+    private String recipientMessage;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public TransferSaga() {
+    }
+
+    public TransferSaga(String sagaId, int fromAccountId, int toAccountId, Money amount, State state,
+                        String recipientMessage, LocalDateTime createdAt) {
+        this.sagaId = sagaId;
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.state = state;
+        this.recipientMessage = recipientMessage;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * The copy kept on the recipient's shard.
+     */
+    public TransferSaga credited() {
+        return new TransferSaga(sagaId, fromAccountId, toAccountId, amount, State.CREDITED, recipientMessage, createdAt);
+    }
+
+    public String getSagaId() {
+        return sagaId;
+    }
+
+    public int getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public int getToAccountId() {
+        return toAccountId;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public String getRecipientMessage() {
+        return recipientMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferSaga{" +
+                "id='" + sagaId + '\'' +
+                ", from=" + fromAccountId +
+                ", to=" + toAccountId +
+                ", amount=" + amount +
+                ", state=" + state +
+                '}';
+    }
+}
@@ -2,15 +2,67 @@ package com.ippon.bankapp.repository;
 
 
 import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface AccountRepository  extends CrudRepository<Account, String> {
-
-    Optional<Account> findByLastName(String lastName);
+/**
+ * Account entities are held in the second-level cache, so {@link #findById} and the natural-id lookup in
+ * {@link AccountRepositoryCustom#findByLastName} usually skip the database. The finders marked cacheable only use
+ * the query cache when {@code bankapp.second-level-cache.query-cache} is on.
+ */
+public interface AccountRepository extends CrudRepository<Account, Integer>, AccountRepositoryCustom {
 
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<Account> findByFirstName(String firstName);
 
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<Account> findByAccountId(int id);
+
+    List<Account> findAllByAccountIdIn(Collection<Integer> ids);
+
+    boolean existsByAccountId(int id);
+
+    boolean existsByLastName(String lastName);
+
+    /*
+     * The read-only lookups below select just the columns they return, so nothing is added to the persistence
+     * context and there is no entity to dirty-check at commit.
+     */
+
+    @Query("select new com.ippon.bankapp.service.dto.AccountDTO(a.accountId, a.firstName, a.lastName, a.balance, " +
+            "a.notificationPreference) from Account a where a.accountId = :id")
+    Optional<AccountDTO> findDTOByAccountId(@Param("id") int id);
+
+    @Query("select new com.ippon.bankapp.service.dto.AccountDTO(a.accountId, a.firstName, a.lastName, a.balance, " +
+            "a.notificationPreference) from Account a where a.lastName = :lastName")
+    Optional<AccountDTO> findDTOByLastName(@Param("lastName") String lastName);
+
+    @Query("select new com.ippon.bankapp.service.dto.AccountDTO(a.accountId, a.firstName, a.lastName, a.balance, " +
+            "a.notificationPreference) from Account a where a.firstName = :firstName")
+    Optional<AccountDTO> findDTOByFirstName(@Param("firstName") String firstName);
+
+    @Query("select a.accountId from Account a where a.firstName = :firstName")
+    Optional<Integer> findAccountIdByFirstName(@Param("firstName") String firstName);
+
+    @Query("select a.balance from Account a where a.accountId = :id")
+    Optional<Money> findBalanceByAccountId(@Param("id") int id);
+
+    /**
+     * Loads and row-locks all the given accounts in one statement. Rows are locked in ascending id order so two
+     * transactions locking the same pair from opposite directions cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.accountId in :ids order by a.accountId")
+    List<Account> findAllByAccountIdForUpdate(@Param("ids") Collection<Integer> ids);
 }
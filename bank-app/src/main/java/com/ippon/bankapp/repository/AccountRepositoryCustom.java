@@ -0,0 +1,20 @@
+package com.ippon.bankapp.repository;
+
+import com.ippon.bankapp.domain.Account;
+
+import java.util.Optional;
+
+public interface AccountRepositoryCustom {
+
+    /**
+     * Loads the account by its natural id. The last name to id mapping comes from the natural-id cache and the
+     * account from the entity cache, so a repeated lookup runs no SQL.
+     */
+    Optional<Account> findByLastName(String lastName);
+
+    /**
+     * Draws an id from account_seq ahead of the insert, for callers that need to know it first. An account built
+     * with it keeps it when saved.
+     */
+    int nextAccountId();
+}
@@ -0,0 +1,35 @@
+package com.ippon.bankapp.repository;
+
+import com.ippon.bankapp.domain.Account;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Optional;
+
+@Transactional(readOnly = true)
+public class AccountRepositoryImpl implements AccountRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public AccountRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Optional<Account> findByLastName(String lastName) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Account.class)
+                .loadOptional(lastName);
+    }
+
+    @Override
+    @Transactional
+    public int nextAccountId() {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        return ((Number) session.getFactory().getMetamodel().entityPersister(Account.class)
+                .getIdentifierGenerator()
+                .generate(session, null)).intValue();
+    }
+}
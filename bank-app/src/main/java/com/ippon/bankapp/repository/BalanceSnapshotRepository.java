@@ -0,0 +1,24 @@
+package com.ippon.bankapp.repository;
+
+import com.ippon.bankapp.domain.BalanceSnapshot;
+import org.springframework.data.repository.CrudRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Every lookup here is a range on uk_balance_snapshot_account_date, so none of them depends on how much
+ * history an account has.
+ */
+public interface BalanceSnapshotRepository extends CrudRepository<BalanceSnapshot, Long> {
+
+    List<BalanceSnapshot> findAllByAccountIdInAndSnapshotDate(Collection<Integer> accountIds, LocalDate snapshotDate);
+
+    List<BalanceSnapshot> findAllByAccountIdAndSnapshotDateBetweenOrderBySnapshotDate(int accountId, LocalDate from, LocalDate to);
+
+    Optional<BalanceSnapshot> findFirstByAccountIdAndSnapshotDateBeforeOrderBySnapshotDateDesc(int accountId, LocalDate date);
+
+    Optional<BalanceSnapshot> findFirstByAccountIdAndSnapshotDateAfterOrderBySnapshotDate(int accountId, LocalDate date);
+}
@@ -0,0 +1,7 @@
+package com.ippon.bankapp.repository;
+
+import com.ippon.bankapp.domain.DepositLimit;
+import org.springframework.data.repository.CrudRepository;
+
+public interface DepositLimitRepository extends CrudRepository<DepositLimit, Integer> {
+}
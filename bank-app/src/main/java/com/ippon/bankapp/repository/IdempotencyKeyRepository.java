@@ -0,0 +1,36 @@
+package com.ippon.bankapp.repository;
+
+import com.ippon.bankapp.domain.IdempotencyKey;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyKeyRepository extends CrudRepository<IdempotencyKey, String>, IdempotencyKeyRepositoryCustom {
+
+    @Modifying
+    @Query("update IdempotencyKey k set k.response = :response where k.key = :key")
+    int complete(@Param("key") String key, @Param("response") String response);
+
+    /**
+     * Hands a key whose attempt started before staleBefore and never finished to a new attempt. Only one of two
+     * retries racing for the key gets 1.
+     */
+    @Modifying
+    @Query("update IdempotencyKey k set k.startedAt = :now " +
+            "where k.key = :key and k.response is null and k.startedAt < :staleBefore")
+    int takeOver(@Param("key") String key, @Param("staleBefore") LocalDateTime staleBefore, @Param("now") LocalDateTime now);
+
+    /**
+     * Gives up a claim whose request failed, so the client can retry with the same key.
+     */
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.key = :key and k.response is null")
+    int release(@Param("key") String key);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
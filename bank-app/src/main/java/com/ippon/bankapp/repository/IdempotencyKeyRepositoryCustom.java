@@ -0,0 +1,12 @@
+package com.ippon.bankapp.repository;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyKeyRepositoryCustom {
+
+    /**
+     * Inserts the key without a response. A plain insert rather than save, which would merge into a row another
+     * node already claimed; here that row makes the insert fail with a DataIntegrityViolationException.
+     */
+    void claim(String key, String request, LocalDateTime createdAt);
+}
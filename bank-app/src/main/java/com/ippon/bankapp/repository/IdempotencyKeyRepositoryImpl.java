@@ -0,0 +1,32 @@
+package com.ippon.bankapp.repository;
+
+import com.ippon.bankapp.domain.IdempotencyKey;
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+
+public class IdempotencyKeyRepositoryImpl implements IdempotencyKeyRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public IdempotencyKeyRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Native, since JPQL has no insert of values. The query is tied to the idempotency_key table: Hibernate
+     * cannot tell what a native update touches, and would otherwise empty every second-level cache region.
+     */
+    @Override
+    public void claim(String key, String request, LocalDateTime createdAt) {
+        entityManager.createNativeQuery("insert into idempotency_key (idempotency_key, request, created_at, started_at) "
+                + "values (:key, :request, :createdAt, :createdAt)")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(IdempotencyKey.class)
+                .setParameter("key", key)
+                .setParameter("request", request)
+                .setParameter("createdAt", createdAt)
+                .executeUpdate();
+    }
+}
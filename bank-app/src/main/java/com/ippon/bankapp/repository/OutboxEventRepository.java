@@ -0,0 +1,20 @@
+package com.ippon.bankapp.repository;
+
+import com.ippon.bankapp.domain.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+public interface OutboxEventRepository extends CrudRepository<OutboxEvent, Long> {
+
+    /**
+     * Oldest pending events, row-locked so that relays on other nodes wait rather than deliver them twice.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from OutboxEvent e order by e.eventId")
+    List<OutboxEvent> findOldestForUpdate(Pageable pageable);
+}
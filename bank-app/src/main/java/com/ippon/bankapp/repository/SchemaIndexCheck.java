@@ -0,0 +1,96 @@
+package com.ippon.bankapp.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Refuses to start when an index or unique constraint declared on an entity's {@code @Table} is missing from
+ * the database. The repository lookups assume these indexes, and account creation relies on the last name one
+ * for uniqueness, so running without them would be slow at best and wrong at worst.
+ */
+@Component
+@ConditionalOnProperty(name = "bankapp.schema.verify-indexes", havingValue = "true", matchIfMissing = true)
+public class SchemaIndexCheck implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaIndexCheck.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final DataSource dataSource;
+
+    public SchemaIndexCheck(EntityManagerFactory entityManagerFactory, DataSource dataSource) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        List<String> missing = new ArrayList<>();
+        int checked = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+                Table table = entity.getJavaType().getAnnotation(Table.class);
+                if (table == null) {
+                    continue;
+                }
+                List<String> expected = new ArrayList<>();
+                for (Index index : table.indexes()) {
+                    expected.add(index.name());
+                }
+                for (UniqueConstraint constraint : table.uniqueConstraints()) {
+                    expected.add(constraint.name());
+                }
+                if (expected.isEmpty()) {
+                    continue;
+                }
+                Set<String> present = indexNames(metaData, table.name());
+                for (String name : expected) {
+                    checked++;
+                    if (!present.contains(name.toLowerCase(Locale.ROOT))) {
+                        missing.add(table.name() + "." + name);
+                    }
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Database is missing indexes " + missing
+                    + "; run the migrations in db/migration before starting");
+        }
+        log.info("Verified {} entity indexes", checked);
+    }
+
+    private static Set<String> indexNames(DatabaseMetaData metaData, String table) throws SQLException {
+        String stored = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT)
+                : metaData.storesLowerCaseIdentifiers() ? table.toLowerCase(Locale.ROOT) : table;
+        Set<String> names = new HashSet<>();
+        try (ResultSet indexes = metaData.getIndexInfo(null, null, stored, false, true)) {
+            while (indexes.next()) {
+                String name = indexes.getString("INDEX_NAME");
+                if (name != null) {
+                    names.add(name.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return names;
+    }
+}
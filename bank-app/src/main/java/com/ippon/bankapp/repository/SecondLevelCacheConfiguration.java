@@ -0,0 +1,77 @@
+package com.ippon.bankapp.repository;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.ippon.bankapp.domain.Account;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns on Hibernate's second-level cache, backed by Caffeine through JCache. Every region is declared here with
+ * its own size and expiry, and Hibernate refuses to start if an entity asks for one that is not. Each application
+ * context gets its own cache manager, so two contexts in one JVM never share cached rows.
+ * The cache is local to the node: an entry another node has since updated is caught by the version check on the
+ * next posting, which evicts it, and otherwise lives at most until it expires.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bankapp.second-level-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class SecondLevelCacheConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${bankapp.second-level-cache.account.maximum-size:10000}") long accountSize,
+                                              @Value("${bankapp.second-level-cache.account.ttl-seconds:60}") long accountTtl,
+                                              @Value("${bankapp.second-level-cache.last-name.maximum-size:10000}") long lastNameSize,
+                                              @Value("${bankapp.second-level-cache.last-name.ttl-seconds:3600}") long lastNameTtl,
+                                              @Value("${bankapp.second-level-cache.query.maximum-size:1000}") long querySize,
+                                              @Value("${bankapp.second-level-cache.query.ttl-seconds:60}") long queryTtl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("bankapp-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(Account.CACHE_REGION, region(accountSize, accountTtl));
+        cacheManager.createCache(Account.LAST_NAME_CACHE_REGION, region(lastNameSize, lastNameTtl));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(querySize, queryTtl));
+        // the query cache checks every result against these timestamps, so they are never evicted; there is
+        // one per table
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, unbounded());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager hibernateCacheManager,
+                                                          @Value("${bankapp.second-level-cache.query-cache:false}") boolean queryCache) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, queryCache);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maximumSize, long ttlSeconds) {
+        CaffeineConfiguration<Object, Object> configuration = unbounded();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        return configuration;
+    }
+
+    private static CaffeineConfiguration<Object, Object> unbounded() {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        // Hibernate caches disassembled state it never mutates, so entries need not be copied in and out
+        configuration.setStoreByValue(false);
+        return configuration;
+    }
+}
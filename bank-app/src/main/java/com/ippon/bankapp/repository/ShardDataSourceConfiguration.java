@@ -0,0 +1,131 @@
+package com.ippon.bankapp.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.id.SequenceMismatchStrategy;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.jdbc.DataSourceHealthIndicator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single data source with one shard per JDBC URL listed in {@code bankapp.sharding.shards}, comma
+ * separated. Shards are named shard-0, shard-1 and so on in that order, and the consistent-hash ring is built from
+ * those names, so new shards must be added at the end. Every shard gets the migrations at startup.
+ * Shards share the driver and credentials of {@code spring.datasource} and cannot be combined with replicas.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bankapp.sharding.shards")
+public class ShardDataSourceConfiguration {
+
+    /**
+     * Every id sequence, with the block size its entity's generator allocates.
+     */
+    static final List<String> SEQUENCES = Arrays.asList("account_seq", "transactions_seq", "balance_snapshot_seq", "outbox_event_seq");
+    static final int ALLOCATION_SIZE = 50;
+
+    @Bean
+    public ShardRing shardRing(@Value("${bankapp.sharding.shards}") String[] urls,
+                               @Value("${bankapp.sharding.virtual-nodes:64}") int virtualNodes) {
+        LinkedHashMap<String, String> shards = shardUrls(urls);
+        return new ShardRing(Arrays.asList(shards.keySet().toArray(new String[0])), virtualNodes);
+    }
+
+    /**
+     * Not wrapped in a lazy proxy like the replica router: Shards binds the shard before the transaction starts, so
+     * it is known when JPA asks for the connection.
+     */
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(DataSourceProperties properties, FlywayProperties flywayProperties,
+                                                         @Value("${bankapp.sharding.shards}") String[] urls) {
+        LinkedHashMap<String, HikariDataSource> shards = new LinkedHashMap<>();
+        shardUrls(urls).forEach((name, url) -> {
+            HikariDataSource shard = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .build();
+            shard.setPoolName(name);
+            Flyway.configure()
+                    .dataSource(shard)
+                    .locations(flywayProperties.getLocations().toArray(new String[0]))
+                    .baselineOnMigrate(flywayProperties.isBaselineOnMigrate())
+                    .load()
+                    .migrate();
+            shards.put(name, shard);
+        });
+        alignSequences(shards);
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * {@link #alignSequences} makes each shard's sequences step by ALLOCATION_SIZE * N while the generators still
+     * allocate blocks of ALLOCATION_SIZE, which is the point: a generator takes the block ending at the value it
+     * draws, and the other N - 1 blocks of the step belong to the other shards. By default Hibernate refuses to
+     * start when the two increments differ, and its FIX strategy would enlarge the blocks to the whole step. LOG,
+     * the only other strategy this Hibernate has, keeps the mapped block size and logs a warning per sequence at
+     * startup (whose text claims the database increment takes precedence; in this version it does not).
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardSequenceIncrements() {
+        return properties -> properties.put(AvailableSettings.SEQUENCE_INCREMENT_SIZE_MISMATCH_STRATEGY,
+                SequenceMismatchStrategy.LOG.name());
+    }
+
+    /**
+     * Boot's database health check skips routing data sources, so each shard is checked on its own.
+     */
+    @Bean
+    public HealthContributor dbHealthContributor(ShardRoutingDataSource dataSource) {
+        Map<String, HealthIndicator> shards = new LinkedHashMap<>();
+        dataSource.getShards().forEach((name, shard) -> shards.put(name, new DataSourceHealthIndicator(shard)));
+        return CompositeHealthContributor.fromMap(shards);
+    }
+
+    private static LinkedHashMap<String, String> shardUrls(String[] urls) {
+        LinkedHashMap<String, String> shards = new LinkedHashMap<>();
+        for (int i = 0; i < urls.length; i++) {
+            shards.put("shard-" + i, urls[i].trim());
+        }
+        return shards;
+    }
+
+    /**
+     * Hibernate's generators hand out ids in blocks of ALLOCATION_SIZE, and a block fetched on one shard may be
+     * spent on another. So that no two shards ever hand out the same block, shard k's sequences are restarted
+     * above every value any shard has issued, on the k-th block of each round of N blocks. Ids therefore stay
+     * unique across shards, which lets an account move between shards keeping its id and its history's ids.
+     */
+    private static void alignSequences(LinkedHashMap<String, HikariDataSource> shards) {
+        long round = (long) ALLOCATION_SIZE * shards.size();
+        for (String sequence : SEQUENCES) {
+            long issued = 0;
+            for (DataSource shard : shards.values()) {
+                issued = Math.max(issued, new JdbcTemplate(shard).queryForObject(
+                        "select nextval('" + sequence + "')", Long.class));
+            }
+            long start = (issued / round + 1) * round;
+            int k = 0;
+            for (DataSource shard : shards.values()) {
+                new JdbcTemplate(shard).execute("alter sequence " + sequence + " restart with "
+                        + (start + (long) ALLOCATION_SIZE * ++k) + " increment by " + round);
+            }
+        }
+    }
+}
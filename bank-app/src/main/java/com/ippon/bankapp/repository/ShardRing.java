@@ -0,0 +1,66 @@
+package com.ippon.bankapp.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Consistent-hash ring of shard names. Each shard owns a number of points on the ring, and an account belongs to
+ * the shard owning the first point at or after the hash of its id. Adding a shard only takes over the ranges in
+ * front of the new shard's points, so about 1/N of the accounts move and none move between the existing shards.
+ * Ownership depends on the shard names, not their order, so the name of a shard must never change.
+ */
+public final class ShardRing {
+
+    private final List<String> shards;
+    private final int[] points;
+    private final String[] owners;
+
+    public ShardRing(List<String> shards, int virtualNodes) {
+        if (shards.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one shard and one point per shard");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        long[] entries = new long[shards.size() * virtualNodes];
+        int n = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                int point = mix((shards.get(shard) + "#" + node).hashCode());
+                // the point in the high half, the shard in the low half, so sorting orders by point
+                entries[n++] = ((long) point << 32) | shard;
+            }
+        }
+        Arrays.sort(entries);
+        this.points = new int[entries.length];
+        this.owners = new String[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = (int) (entries[i] >> 32);
+            owners[i] = shards.get((int) entries[i]);
+        }
+    }
+
+    public String shardFor(int accountId) {
+        int i = Arrays.binarySearch(points, mix(accountId));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return owners[i == points.length ? 0 : i];
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    /**
+     * Murmur3's finalizer, so neighbouring ids land far apart on the ring.
+     */
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
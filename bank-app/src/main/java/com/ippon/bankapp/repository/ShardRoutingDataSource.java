@@ -0,0 +1,60 @@
+package com.ippon.bankapp.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hands out connections to the shard bound to the current thread by {@link Shards}. A thread with no shard bound
+ * gets the home shard, the first one configured, which also holds the tables that are not keyed by account.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, HikariDataSource> shards;
+    private final String home;
+
+    public ShardRoutingDataSource(LinkedHashMap<String, HikariDataSource> shards) {
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        this.home = shards.keySet().iterator().next();
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(home));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = CURRENT.get();
+        return shard == null ? home : shard;
+    }
+
+    public Map<String, HikariDataSource> getShards() {
+        return shards;
+    }
+
+    public String getHome() {
+        return home;
+    }
+
+    static String current() {
+        return CURRENT.get();
+    }
+
+    static void bind(String shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+
+    @Override
+    public void close() {
+        shards.values().forEach(HikariDataSource::close);
+    }
+}
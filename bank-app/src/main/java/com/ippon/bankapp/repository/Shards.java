@@ -0,0 +1,94 @@
+package com.ippon.bankapp.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Binds work to the shard that owns an account, so the repository calls it makes, and the transaction it opens,
+ * reach that shard's database. The shard has to be bound before the transaction starts: a transaction stays on
+ * the database it began on, and asking it to reach another shard is an error rather than a silent wrong answer.
+ * Without a {@link ShardRing} there is one database and work simply runs.
+ */
+@Component
+public class Shards {
+
+    private ShardRing ring;
+    private String home;
+
+    @Autowired(required = false)
+    public void setShardRing(ShardRing ring) {
+        this.ring = ring;
+        this.home = ring.getShards().get(0);
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    public List<String> names() {
+        return ring == null ? Collections.emptyList() : ring.getShards();
+    }
+
+    /**
+     * The shard that owns the account, or null without sharding.
+     */
+    public String shardFor(int accountId) {
+        return ring == null ? null : ring.shardFor(accountId);
+    }
+
+    public <T> T on(int accountId, Supplier<T> work) {
+        return ring == null ? work.get() : onShard(ring.shardFor(accountId), work);
+    }
+
+    public <T> T onShard(String shard, Supplier<T> work) {
+        if (ring == null) {
+            return work.get();
+        }
+        String previous = ShardRoutingDataSource.current();
+        String bound = previous == null ? home : previous;
+        if (!bound.equals(shard) && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("A transaction on " + bound + " cannot reach " + shard);
+        }
+        ShardRoutingDataSource.bind(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardRoutingDataSource.bind(previous);
+        }
+    }
+
+    /**
+     * Runs a lookup that has no account id to route by on each shard in turn, until one finds something.
+     */
+    public <T> Optional<T> findFirst(Supplier<Optional<T>> lookup) {
+        if (ring == null) {
+            return lookup.get();
+        }
+        for (String shard : ring.getShards()) {
+            Optional<T> found = onShard(shard, lookup);
+            if (found.isPresent()) {
+                return found;
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void forEach(Runnable work) {
+        if (ring == null) {
+            work.run();
+            return;
+        }
+        for (String shard : ring.getShards()) {
+            onShard(shard, () -> {
+                work.run();
+                return null;
+            });
+        }
+    }
+}
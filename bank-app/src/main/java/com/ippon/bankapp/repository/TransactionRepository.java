@@ -1,16 +1,77 @@
 package com.ippon.bankapp.repository;
 
 import com.ippon.bankapp.domain.Account;
-import com.ippon.bankapp.service.dto.AccountDTO;
 import com.ippon.bankapp.domain.Transaction;
+import com.ippon.bankapp.service.dto.ArchivedTransactionDTO;
+import com.ippon.bankapp.service.dto.TransactionExportDTO;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends CrudRepository<Transaction, String> {
 
     ArrayList<Transaction> findAllByAccount(Account account);
 
+    /**
+     * First page of an account's history, newest first. Served by idx_transactions_account_timestamp; selects
+     * only the row's own columns, so the account is neither joined nor loaded.
+     */
+    @Query("select new com.ippon.bankapp.service.dto.TransactionExportDTO(t.transactionId, t.timestamp, t.transactionType, t.amount) " +
+            "from Transaction t where t.account.accountId = :accountId " +
+            "order by t.timestamp desc, t.transactionId desc")
+    List<TransactionExportDTO> findLatestByAccountId(@Param("accountId") int accountId, Pageable pageable);
+
+    /**
+     * Keyset page: the transactions strictly older than the (timestamp, transactionId) cursor, newest first.
+     */
+    @Query("select new com.ippon.bankapp.service.dto.TransactionExportDTO(t.transactionId, t.timestamp, t.transactionType, t.amount) " +
+            "from Transaction t where t.account.accountId = :accountId " +
+            "and (t.timestamp < :timestamp or (t.timestamp = :timestamp and t.transactionId < :transactionId)) " +
+            "order by t.timestamp desc, t.transactionId desc")
+    List<TransactionExportDTO> findPageByAccountIdBefore(@Param("accountId") int accountId,
+                                                @Param("timestamp") LocalDateTime timestamp,
+                                                @Param("transactionId") int transactionId,
+                                                Pageable pageable);
+
+    /**
+     * Whole history oldest first, as a forward-only cursor fetched 500 rows at a time. Must be consumed inside
+     * a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("select new com.ippon.bankapp.service.dto.TransactionExportDTO(t.transactionId, t.timestamp, t.transactionType, t.amount) " +
+            "from Transaction t where t.account.accountId = :accountId order by t.timestamp, t.transactionId")
+    Stream<TransactionExportDTO> streamExportByAccountId(@Param("accountId") int accountId);
+
+    /**
+     * Null when the table is empty. Served by idx_transactions_timestamp.
+     */
+    @Query("select min(t.timestamp) from Transaction t")
+    LocalDateTime findOldestTimestamp();
+
+    /**
+     * Every row in [from, to), with its account, ordered as an archive segment stores them, as a forward-only
+     * cursor fetched 500 rows at a time. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("select new com.ippon.bankapp.service.dto.ArchivedTransactionDTO(t.account.accountId, t.transactionId, " +
+            "t.timestamp, t.transactionType, t.amount) from Transaction t " +
+            "where t.timestamp >= :from and t.timestamp < :to " +
+            "order by t.account.accountId, t.timestamp, t.transactionId")
+    Stream<ArchivedTransactionDTO> streamArchivable(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query("delete from Transaction t where t.transactionId in :ids")
+    int deleteByTransactionIdIn(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,20 @@
+package com.ippon.bankapp.repository;
+
+import com.ippon.bankapp.domain.TransferSaga;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.CrudRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TransferSagaRepository extends CrudRepository<TransferSaga, String> {
+
+    /**
+     * Sagas stuck in the given state since before the cutoff, oldest first. Served by
+     * idx_transfer_saga_state_created_at.
+     */
+    List<TransferSaga> findByStateAndCreatedAtBeforeOrderByCreatedAt(TransferSaga.State state, LocalDateTime cutoff,
+                                                                      Pageable pageable);
+
+    long countByState(TransferSaga.State state);
+}
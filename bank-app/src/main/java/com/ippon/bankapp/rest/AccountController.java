@@ -1,21 +1,36 @@
 package com.ippon.bankapp.rest;
 
 import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
 import com.ippon.bankapp.service.AccountService;
+import com.ippon.bankapp.service.BatchService;
+import com.ippon.bankapp.service.ExportFormat;
+import com.ippon.bankapp.service.IdempotentRequests;
 import com.ippon.bankapp.service.TransactionService;
 import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.dto.BatchOperationDTO;
+import com.ippon.bankapp.service.dto.BatchResultDTO;
+import com.ippon.bankapp.service.dto.PendingTransferDTO;
+import com.ippon.bankapp.service.dto.StatementDTO;
 import com.ippon.bankapp.service.dto.TransactionDTO;
+import com.ippon.bankapp.service.dto.TransactionPageDTO;
 import com.ippon.bankapp.service.exception.DepositNotValidException;
 import com.ippon.bankapp.domain.Deposit;
 import com.ippon.bankapp.service.exception.TransactionNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
@@ -23,13 +38,20 @@ public class AccountController {
 
     private static final Logger log = LoggerFactory.getLogger(AccountController.class);
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final AccountService accountService;
     private final TransactionService transactionService;
+    private final BatchService batchService;
+    private final IdempotentRequests idempotentRequests;
 
-    public AccountController(AccountService accountService, TransactionService transactionService) {
+    public AccountController(AccountService accountService, TransactionService transactionService, BatchService batchService,
+                             IdempotentRequests idempotentRequests) {
 
         this.accountService = accountService;
         this.transactionService = transactionService;
+        this.batchService = batchService;
+        this.idempotentRequests = idempotentRequests;
     }
 
     @PostMapping("/account")
@@ -57,26 +79,51 @@ public class AccountController {
     }
 
     @PostMapping("/account/{identification_number}/{deposit_ammount}")
-    public AccountDTO depositHandlingInURL (@Valid @PathVariable("identification_number") int id, @PathVariable(name = "deposit_ammount") String ammount){
-        return accountService.deposit(id, new BigDecimal(ammount));
+    public AccountDTO depositHandlingInURL (@Valid @PathVariable("identification_number") int id, @PathVariable(name = "deposit_ammount") String ammount,
+                                            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey){
+        Money amount = Money.parse(ammount);
+        return idempotentRequests.execute(idempotencyKey, "deposit " + id + " " + amount, AccountDTO.class,
+                () -> accountService.deposit(id, amount));
     }
 
     @PostMapping("/deposit")
-    public AccountDTO depositHandlingInJSON (@Valid @RequestBody Deposit deposit) throws DepositNotValidException {
+    public AccountDTO depositHandlingInJSON (@Valid @RequestBody Deposit deposit,
+                                             @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws DepositNotValidException {
         log.info("Received ID: {}, Received Amount to Deposit: {}", deposit.getId(), deposit.getAmount());
-        return accountService.deposit(Integer.valueOf(deposit.getId()), new BigDecimal(deposit.getAmount()));
+        int id = Integer.valueOf(deposit.getId());
+        return idempotentRequests.execute(idempotencyKey, "deposit " + id + " " + deposit.getAmount(), AccountDTO.class,
+                () -> accountService.deposit(id, deposit.getAmount()));
     }
 
     @PostMapping("/withdraw")
-    public AccountDTO withdrawHandling (@Valid @RequestBody Deposit deposit) throws DepositNotValidException{
+    public AccountDTO withdrawHandling (@Valid @RequestBody Deposit deposit,
+                                        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws DepositNotValidException{
         log.info("Received ID: {}, Received Amount to Deposit: {}", deposit.getId(), deposit.getAmount());
-        return accountService.withdraw(Integer.valueOf(deposit.getId()), new BigDecimal(deposit.getAmount()));
+        int id = Integer.valueOf(deposit.getId());
+        return idempotentRequests.execute(idempotencyKey, "withdraw " + id + " " + deposit.getAmount(), AccountDTO.class,
+                () -> accountService.withdraw(id, deposit.getAmount()));
     }
 
+    /**
+     * 200 once the transfer is complete, or 202 with the saga id when a transfer between shards has been debited
+     * and its credit will be finished in the background. Either way the money has left the sender.
+     */
     @PostMapping("wire_transfers")
-    public void wireTransferHandling(@Valid @RequestBody Deposit deposit) throws DepositNotValidException{
+    public ResponseEntity<PendingTransferDTO> wireTransferHandling(@Valid @RequestBody Deposit deposit,
+                                     @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws DepositNotValidException{
         log.info("Received IDs:  {}, {}, Received Amount to Transfer between two accounts: {}", deposit.getId(), deposit.getId2(), deposit.getAmount());
-        accountService.wireTransferFromAccount1ToAccount2(Integer.valueOf(deposit.getId()),Integer.valueOf(deposit.getId2()),new BigDecimal(deposit.getAmount()));
+        int id1 = Integer.valueOf(deposit.getId());
+        int id2 = Integer.valueOf(deposit.getId2());
+        PendingTransferDTO pending = idempotentRequests.execute(idempotencyKey,
+                "transfer " + id1 + " " + id2 + " " + deposit.getAmount(), PendingTransferDTO.class,
+                () -> accountService.wireTransferFromAccount1ToAccount2(id1, id2, deposit.getAmount()));
+        return pending == null ? ResponseEntity.ok().build() : ResponseEntity.accepted().body(pending);
+    }
+
+    @PostMapping("/batch")
+    public List<BatchResultDTO> batchHandling(@RequestBody List<BatchOperationDTO> operations) {
+        log.info("Received batch of {} operations", operations.size());
+        return batchService.apply(operations);
     }
 
     @PostMapping("/history")
@@ -84,4 +131,30 @@ public class AccountController {
         return transactionService.findAllTransactionsByAccount(account);
     }
 
+    @GetMapping("/account/{identification_number}/history")
+    public TransactionPageDTO getTransactionHistory(@PathVariable("identification_number") int id,
+                                                    @RequestParam(name = "cursor", required = false) String cursor,
+                                                    @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return transactionService.findTransactionPage(id, cursor, limit);
+    }
+
+    @GetMapping("/account/{identification_number}/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@PathVariable("identification_number") int id,
+                                                                    @RequestParam(name = "format", defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        transactionService.validateAccountExists(id);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"account-" + id + "." + exportFormat.name().toLowerCase() + "\"")
+                .body(out -> transactionService.exportTransactions(id, exportFormat, out));
+    }
+
+    @GetMapping("/account/{identification_number}/statement")
+    public StatementDTO getStatement(@PathVariable("identification_number") int id,
+                                     @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return transactionService.findStatement(id, from, to);
+    }
+
 }
@@ -0,0 +1,45 @@
+package com.ippon.bankapp.rest;
+
+import com.ippon.bankapp.domain.Deposit;
+import com.ippon.bankapp.service.RateLimiter;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Applies the account rate limit to the account a deposit, withdrawal or transfer body posts against, as soon
+ * as the body has been read and before the handler runs.
+ */
+@ControllerAdvice
+public class AccountRateLimitAdvice extends RequestBodyAdviceAdapter {
+
+    private final RateLimiter rateLimiter;
+
+    public AccountRateLimitAdvice(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return Deposit.class.equals(targetType);
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        String id = ((Deposit) body).getId();
+        if (id != null) {
+            try {
+                rateLimiter.checkAccount(Integer.parseInt(id));
+            } catch (NumberFormatException e) {
+                // the handler rejects it
+            }
+        }
+        return body;
+    }
+}
@@ -0,0 +1,33 @@
+package com.ippon.bankapp.rest;
+
+import com.ippon.bankapp.service.AdmissionControl;
+import com.ippon.bankapp.service.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class AdmissionConfiguration implements WebMvcConfigurer {
+
+    private final RateLimiter rateLimiter;
+    private final AdmissionControl admissionControl;
+    private final String clientHeader;
+
+    /**
+     * @param clientHeader request header identifying the client, such as an API key or the address set by a
+     *                     trusted proxy; without it clients are told apart by remote address
+     */
+    public AdmissionConfiguration(RateLimiter rateLimiter, AdmissionControl admissionControl,
+                                  @Value("${bankapp.rate-limit.client-header:}") String clientHeader) {
+        this.rateLimiter = rateLimiter;
+        this.admissionControl = admissionControl;
+        this.clientHeader = clientHeader;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionInterceptor(rateLimiter, admissionControl, clientHeader))
+                .addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,80 @@
+package com.ippon.bankapp.rest;
+
+import com.ippon.bankapp.service.AdmissionControl;
+import com.ippon.bankapp.service.RateLimiter;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * Applies the client's rate limit, the rate limit of an account named in the path, and admission control to
+ * every API request. Accounts named in a request body are limited by {@link AccountRateLimitAdvice}. An async
+ * request keeps its permit until its result has been written, when it is dispatched a second time.
+ */
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ADMITTED = AdmissionInterceptor.class.getName() + ".admitted";
+    private static final String[] ACCOUNT_ID_VARIABLES = {"id_number", "identification_number"};
+
+    private final RateLimiter rateLimiter;
+    private final AdmissionControl admissionControl;
+    private final String clientHeader;
+
+    public AdmissionInterceptor(RateLimiter rateLimiter, AdmissionControl admissionControl, String clientHeader) {
+        this.rateLimiter = rateLimiter;
+        this.admissionControl = admissionControl;
+        this.clientHeader = clientHeader;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        rateLimiter.checkClient(clientKey(request));
+        Integer accountId = pathAccountId(request);
+        if (accountId != null) {
+            rateLimiter.checkAccount(accountId);
+        }
+        admissionControl.admit();
+        request.setAttribute(ADMITTED, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ADMITTED) != null) {
+            request.removeAttribute(ADMITTED);
+            admissionControl.release();
+        }
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        String client = clientHeader.isEmpty() ? null : request.getHeader(clientHeader);
+        return client == null || client.isEmpty() ? request.getRemoteAddr() : client;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Integer pathAccountId(HttpServletRequest request) {
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null) {
+            return null;
+        }
+        for (String name : ACCOUNT_ID_VARIABLES) {
+            String value = variables.get(name);
+            if (value != null) {
+                try {
+                    return Integer.valueOf(value);
+                } catch (NumberFormatException e) {
+                    // the handler rejects it with a 400
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
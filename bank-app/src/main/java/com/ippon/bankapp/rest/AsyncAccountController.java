@@ -0,0 +1,78 @@
+package com.ippon.bankapp.rest;
+
+import com.ippon.bankapp.domain.Deposit;
+import com.ippon.bankapp.service.AccountService;
+import com.ippon.bankapp.service.IdempotentRequests;
+import com.ippon.bankapp.service.OffloadExecutor;
+import com.ippon.bankapp.service.TransactionService;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.dto.TransactionPageDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The account and history APIs as servlet async requests, registered when bankapp.web.execution-mode=async.
+ * Each handler returns as soon as its service call is handed to the OffloadExecutor, freeing the Tomcat
+ * thread; errors reach RestErrorHandler the same way as on the blocking endpoints.
+ */
+@RestController
+@RequestMapping("/api/async")
+@ConditionalOnProperty(name = "bankapp.web.execution-mode", havingValue = "async")
+public class AsyncAccountController {
+
+    private final AccountService accountService;
+    private final TransactionService transactionService;
+    private final OffloadExecutor offloadExecutor;
+    private final IdempotentRequests idempotentRequests;
+
+    public AsyncAccountController(AccountService accountService, TransactionService transactionService,
+                                  OffloadExecutor offloadExecutor, IdempotentRequests idempotentRequests) {
+        this.accountService = accountService;
+        this.transactionService = transactionService;
+        this.offloadExecutor = offloadExecutor;
+        this.idempotentRequests = idempotentRequests;
+    }
+
+    @GetMapping("/account/lastName/{lastName}")
+    public CompletableFuture<AccountDTO> getAccountByLastName(@PathVariable String lastName) {
+        return offloadExecutor.submit(() -> accountService.getAccount(lastName));
+    }
+
+    @GetMapping("/account/firstName/{firstName}")
+    public CompletableFuture<AccountDTO> getAccountByFirstName(@PathVariable String firstName) {
+        return offloadExecutor.submit(() -> accountService.getAccountViaFirst(firstName));
+    }
+
+    @GetMapping("/account/identification/{id_number}")
+    public CompletableFuture<AccountDTO> getAccountByIdNum(@PathVariable("id_number") int id) {
+        return offloadExecutor.submit(() -> accountService.getAccountByIdNum(id));
+    }
+
+    @PostMapping("/deposit")
+    public CompletableFuture<AccountDTO> deposit(@Valid @RequestBody Deposit deposit,
+                                                 @RequestHeader(name = AccountController.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        int id = Integer.valueOf(deposit.getId());
+        return offloadExecutor.submit(() -> idempotentRequests.execute(idempotencyKey,
+                "deposit " + id + " " + deposit.getAmount(), AccountDTO.class,
+                () -> accountService.deposit(id, deposit.getAmount())));
+    }
+
+    @PostMapping("/withdraw")
+    public CompletableFuture<AccountDTO> withdraw(@Valid @RequestBody Deposit deposit,
+                                                  @RequestHeader(name = AccountController.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        int id = Integer.valueOf(deposit.getId());
+        return offloadExecutor.submit(() -> idempotentRequests.execute(idempotencyKey,
+                "withdraw " + id + " " + deposit.getAmount(), AccountDTO.class,
+                () -> accountService.withdraw(id, deposit.getAmount())));
+    }
+
+    @GetMapping("/account/{identification_number}/history")
+    public CompletableFuture<TransactionPageDTO> getTransactionHistory(@PathVariable("identification_number") int id,
+                                                                        @RequestParam(name = "cursor", required = false) String cursor,
+                                                                        @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return offloadExecutor.submit(() -> transactionService.findTransactionPage(id, cursor, limit));
+    }
+}
@@ -0,0 +1,34 @@
+package com.ippon.bankapp.rest;
+
+import com.ippon.bankapp.service.AccountCache;
+import com.ippon.bankapp.service.CacheRegionStats;
+import com.ippon.bankapp.service.dto.CacheRegionStatsDTO;
+import com.ippon.bankapp.service.dto.CacheStatsDTO;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    private final AccountCache accountCache;
+    private final CacheRegionStats cacheRegionStats;
+
+    public CacheController(AccountCache accountCache, CacheRegionStats cacheRegionStats) {
+        this.accountCache = accountCache;
+        this.cacheRegionStats = cacheRegionStats;
+    }
+
+    @GetMapping("/accounts")
+    public List<CacheStatsDTO> getAccountCacheStats() {
+        return accountCache.stats();
+    }
+
+    @GetMapping("/regions")
+    public List<CacheRegionStatsDTO> getCacheRegionStats() {
+        return cacheRegionStats.regions();
+    }
+}
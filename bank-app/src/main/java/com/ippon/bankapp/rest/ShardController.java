@@ -0,0 +1,34 @@
+package com.ippon.bankapp.rest;
+
+import com.ippon.bankapp.service.ShardRebalancer;
+import com.ippon.bankapp.service.dto.ShardDTO;
+import com.ippon.bankapp.service.dto.ShardMoveDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/shards")
+@ConditionalOnProperty(name = "bankapp.sharding.shards")
+public class ShardController {
+
+    private final ShardRebalancer shardRebalancer;
+
+    public ShardController(ShardRebalancer shardRebalancer) {
+        this.shardRebalancer = shardRebalancer;
+    }
+
+    @GetMapping
+    public List<ShardDTO> getShards() {
+        return shardRebalancer.shards();
+    }
+
+    @PostMapping("/rebalance")
+    public List<ShardMoveDTO> rebalance() {
+        return shardRebalancer.rebalance();
+    }
+}
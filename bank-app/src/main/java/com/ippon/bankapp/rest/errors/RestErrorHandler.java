@@ -2,11 +2,24 @@ package com.ippon.bankapp.rest.errors;
 
 import com.ippon.bankapp.service.exception.AccountLastNameExistsException;
 import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import com.ippon.bankapp.service.exception.ConcurrentUpdateException;
+import com.ippon.bankapp.service.exception.ExportFormatNotValidException;
+import com.ippon.bankapp.service.exception.HistoryCursorNotValidException;
+import com.ippon.bankapp.service.exception.IdempotencyKeyInProgressException;
+import com.ippon.bankapp.service.exception.IdempotencyKeyNotValidException;
+import com.ippon.bankapp.service.exception.IdempotencyKeyReusedException;
+import com.ippon.bankapp.service.exception.RateLimitExceededException;
+import com.ippon.bankapp.service.exception.RebalanceNotAllowedException;
+import com.ippon.bankapp.service.exception.ServerBusyException;
+import com.ippon.bankapp.service.exception.StatementRangeNotValidException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import javax.servlet.http.HttpServletResponse;
+
 
 @ControllerAdvice
 public class RestErrorHandler {
@@ -26,4 +39,64 @@ public class RestErrorHandler {
     public void handleLastNameAlreadyExists() {
 
     }
+
+    @ExceptionHandler(ConcurrentUpdateException.class)
+    @ResponseStatus(value = HttpStatus.CONFLICT, reason = "Account was updated concurrently, try again")
+    public void handleConcurrentUpdate() {
+
+    }
+
+    @ExceptionHandler(HistoryCursorNotValidException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "History cursor not valid")
+    public void handleHistoryCursorNotValid() {
+
+    }
+
+    @ExceptionHandler(StatementRangeNotValidException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Statement range not valid")
+    public void handleStatementRangeNotValid() {
+
+    }
+
+    @ExceptionHandler(ExportFormatNotValidException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Export format not valid")
+    public void handleExportFormatNotValid() {
+
+    }
+
+    @ExceptionHandler(IdempotencyKeyNotValidException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Idempotency key not valid")
+    public void handleIdempotencyKeyNotValid() {
+
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    @ResponseStatus(value = HttpStatus.UNPROCESSABLE_ENTITY, reason = "Idempotency key was used for a different request")
+    public void handleIdempotencyKeyReused() {
+
+    }
+
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    @ResponseStatus(value = HttpStatus.CONFLICT, reason = "A request with this idempotency key is still running")
+    public void handleIdempotencyKeyInProgress() {
+
+    }
+
+    @ExceptionHandler(RebalanceNotAllowedException.class)
+    @ResponseStatus(value = HttpStatus.CONFLICT, reason = "Transfers between shards are still in flight, try again")
+    public void handleRebalanceNotAllowed() {
+
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    @ResponseStatus(value = HttpStatus.TOO_MANY_REQUESTS, reason = "Too many requests, slow down")
+    public void handleRateLimitExceeded(RateLimitExceededException e, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+    }
+
+    @ExceptionHandler(ServerBusyException.class)
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Server busy, try again")
+    public void handleServerBusy(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    }
 }
@@ -0,0 +1,94 @@
+package com.ippon.bankapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.dto.CacheStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded, expiring cache of account lookups. Balances are cached by account id only; the name caches map a
+ * name to an id, which never changes, so a posting only has to invalidate the id entry.
+ */
+@Component
+public class AccountCache {
+
+    private final Cache<Integer, AccountDTO> byId;
+    private final Cache<String, Integer> idByLastName;
+    private final Cache<String, Integer> idByFirstName;
+
+    public AccountCache(@Value("${bankapp.account-cache.maximum-size:10000}") long maximumSize,
+                        @Value("${bankapp.account-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.byId = build(maximumSize, ttlSeconds);
+        this.idByLastName = build(maximumSize, ttlSeconds);
+        this.idByFirstName = build(maximumSize, ttlSeconds);
+    }
+
+    private static <K, V> Cache<K, V> build(long maximumSize, long ttlSeconds) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached account, loading it on a miss. Loading is atomic with {@link #invalidate(int)}, so a
+     * load racing a posting cannot leave a stale entry behind.
+     */
+    public AccountDTO get(int accountId, Function<Integer, AccountDTO> loader) {
+        return byId.get(accountId, loader);
+    }
+
+    public Integer idForLastName(String lastName) {
+        return idByLastName.getIfPresent(lastName);
+    }
+
+    public void rememberLastName(String lastName, int accountId) {
+        idByLastName.put(lastName, accountId);
+    }
+
+    public void forgetLastName(String lastName) {
+        idByLastName.invalidate(lastName);
+    }
+
+    public Integer idForFirstName(String firstName) {
+        return idByFirstName.getIfPresent(firstName);
+    }
+
+    public void rememberFirstName(String firstName, int accountId) {
+        idByFirstName.put(firstName, accountId);
+    }
+
+    public void forgetFirstName(String firstName) {
+        idByFirstName.invalidate(firstName);
+    }
+
+    public void invalidate(int accountId) {
+        byId.invalidate(accountId);
+    }
+
+    public void invalidateAll(Iterable<Integer> accountIds) {
+        byId.invalidateAll(accountIds);
+    }
+
+    public List<CacheStatsDTO> stats() {
+        return Arrays.asList(
+                toDTO("account-by-id", byId),
+                toDTO("account-id-by-last-name", idByLastName),
+                toDTO("account-id-by-first-name", idByFirstName));
+    }
+
+    private static CacheStatsDTO toDTO(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheStatsDTO(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount());
+    }
+}
@@ -0,0 +1,55 @@
+package com.ippon.bankapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of lock stripes keyed by account id. Postings to the same account serialize on one stripe while
+ * postings to other accounts proceed in parallel; there is no global lock.
+ */
+@Component
+public class AccountLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public AccountLocks(@Value("${bankapp.account-locks.stripes:64}") int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock lockFor(int accountId) {
+        return stripes[spread(accountId) & mask];
+    }
+
+    /**
+     * Stripes covering all the given accounts in ascending stripe order. Callers that lock in this order never
+     * deadlock one another; accounts sharing a stripe get a single lock.
+     */
+    public ReentrantLock[] lockOrderFor(Collection<Integer> accountIds) {
+        SortedSet<Integer> indexes = new TreeSet<>();
+        for (int accountId : accountIds) {
+            indexes.add(spread(accountId) & mask);
+        }
+        ReentrantLock[] locks = new ReentrantLock[indexes.size()];
+        int i = 0;
+        for (int index : indexes) {
+            locks[i++] = stripes[index];
+        }
+        return locks;
+    }
+
+    private static int spread(int accountId) {
+        int h = accountId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,40 @@
+package com.ippon.bankapp.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * One atomic long per account id, zero until set. Ids are split into pages of 64K slots that are allocated the
+ * first time an id in them is written, so memory follows the range of ids in use (half a megabyte per page)
+ * rather than the whole int range, and a read or update is two array loads with no boxing or hashing.
+ */
+final class AccountLongArray {
+
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    private final AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(1 << (32 - PAGE_BITS));
+
+    long get(int accountId) {
+        AtomicLongArray page = pages.get(accountId >>> PAGE_BITS);
+        return page == null ? 0 : page.get(accountId & PAGE_MASK);
+    }
+
+    void set(int accountId, long value) {
+        page(accountId).set(accountId & PAGE_MASK, value);
+    }
+
+    boolean compareAndSet(int accountId, long expect, long update) {
+        return page(accountId).compareAndSet(accountId & PAGE_MASK, expect, update);
+    }
+
+    private AtomicLongArray page(int accountId) {
+        int index = accountId >>> PAGE_BITS;
+        AtomicLongArray page = pages.get(index);
+        if (page == null) {
+            pages.compareAndSet(index, null, new AtomicLongArray(1 << PAGE_BITS));
+            page = pages.get(index);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,83 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import com.ippon.bankapp.service.exception.DepositNotValidException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Latency histograms and outcome counters for the account operations, published as
+ * bankapp.account.operation{operation, outcome}, bankapp.deposits.rejected{operation} and
+ * bankapp.accounts.not_found{operation}. Meters are created once per tag combination and cached, so timing
+ * a call costs a map lookup and a clock read.
+ */
+@Component
+public class AccountMetrics {
+
+    static final String OPERATION_TIMER = "bankapp.account.operation";
+    static final String REJECTED_COUNTER = "bankapp.deposits.rejected";
+    static final String NOT_FOUND_COUNTER = "bankapp.accounts.not_found";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public AccountMetrics(MeterRegistry registry, OptimisticRetry optimisticRetry) {
+        this.registry = registry;
+        FunctionCounter.builder("bankapp.optimistic.conflicts", optimisticRetry, OptimisticRetry::getConflicts)
+                .description("Version checks lost by deposits and withdrawals, including retried ones")
+                .register(registry);
+        FunctionCounter.builder("bankapp.optimistic.exhausted", optimisticRetry, OptimisticRetry::getExhausted)
+                .description("Deposits and withdrawals that gave up after their last retry")
+                .register(registry);
+    }
+
+    public <T> T time(String operation, Supplier<T> call) {
+        long start = registry.config().clock().monotonicTime();
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } catch (DepositNotValidException e) {
+            outcome = "rejected";
+            counter(REJECTED_COUNTER, operation).increment();
+            throw e;
+        } catch (AccountNotFoundException e) {
+            outcome = "not_found";
+            counter(NOT_FOUND_COUNTER, operation).increment();
+            throw e;
+        } finally {
+            timer(operation, outcome).record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void record(String operation, Runnable call) {
+        time(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return timers.computeIfAbsent(operation + '|' + outcome, key -> Timer.builder(OPERATION_TIMER)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    private Counter counter(String name, String operation) {
+        return counters.computeIfAbsent(name + '|' + operation, key -> Counter.builder(name)
+                .tag("operation", operation)
+                .register(registry));
+    }
+}
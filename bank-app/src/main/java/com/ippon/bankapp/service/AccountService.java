@@ -1,19 +1,31 @@
 package com.ippon.bankapp.service;
 
 import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
 import com.ippon.bankapp.domain.Transaction;
 import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.Shards;
 import com.ippon.bankapp.repository.TransactionRepository;
 import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.dto.PendingTransferDTO;
 
 import com.ippon.bankapp.service.exception.AccountLastNameExistsException;
 import com.ippon.bankapp.service.exception.AccountNotFoundException;
 import com.ippon.bankapp.service.exception.DepositNotValidException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.validation.constraints.NotNull;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 
 
@@ -24,195 +36,351 @@ public class AccountService {
     private AccountRepository accountRepository;
     private NotificationFactory notificationFactory;
     private TransactionRepository transactionRepository;
-    private BigDecimal accountDepositDailyLimit = new BigDecimal(5000);
-    private BigDecimal dailyDeposited = new BigDecimal(0);
-
-    private LocalDateTime startTime = LocalDateTime.of(LocalDateTime.now().getYear(), LocalDateTime.now().getMonth(), LocalDateTime.now().getDayOfMonth(), 0,0,0);
-    private LocalDateTime endTime = LocalDateTime.of(LocalDateTime.now().getYear(), LocalDateTime.now().getMonth(), LocalDateTime.now().getDayOfMonth(), 23,59,59);
-
-
-    public AccountService(AccountRepository accountRepository, NotificationFactory notificationFactory, TransactionRepository transactionRepository) {
+    private DailyDepositLedger dailyDepositLedger;
+    private AccountLocks accountLocks;
+    private TransferService transferService;
+    private AccountCache accountCache;
+    private NotificationOutbox notificationOutbox;
+    private BalanceSnapshots balanceSnapshots;
+    private OptimisticRetry optimisticRetry;
+    private AccountMetrics accountMetrics;
+    private TransactionTemplate transactionTemplate;
+    private LedgerStore ledgerStore;
+    private ReplicaReads replicaReads;
+    private Shards shards;
+    private CrossShardTransfer crossShardTransfer;
+    private ShardLastNames shardLastNames;
+
+
+    public AccountService(AccountRepository accountRepository, NotificationFactory notificationFactory, TransactionRepository transactionRepository,
+                          DailyDepositLedger dailyDepositLedger, AccountLocks accountLocks, TransferService transferService,
+                          AccountCache accountCache, NotificationOutbox notificationOutbox,
+                          BalanceSnapshots balanceSnapshots, OptimisticRetry optimisticRetry,
+                          AccountMetrics accountMetrics, PlatformTransactionManager transactionManager,
+                          ReplicaReads replicaReads, Shards shards, CrossShardTransfer crossShardTransfer) {
         this.accountRepository = accountRepository;
         this.notificationFactory = notificationFactory;
         this.transactionRepository = transactionRepository;
+        this.dailyDepositLedger = dailyDepositLedger;
+        this.accountLocks = accountLocks;
+        this.transferService = transferService;
+        this.accountCache = accountCache;
+        this.notificationOutbox = notificationOutbox;
+        this.balanceSnapshots = balanceSnapshots;
+        this.optimisticRetry = optimisticRetry;
+        this.accountMetrics = accountMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.replicaReads = replicaReads;
+        this.shards = shards;
+        this.crossShardTransfer = crossShardTransfer;
+    }
+
+    /**
+     * Switches deposits, withdrawals and transfers to the given store instead of Account rows.
+     */
+    @Autowired(required = false)
+    public void setLedgerStore(LedgerStore ledgerStore) {
+        this.ledgerStore = ledgerStore;
+    }
+
+    @Autowired(required = false)
+    public void setShardLastNames(ShardLastNames shardLastNames) {
+        this.shardLastNames = shardLastNames;
     }
 
     public AccountDTO createAccount(AccountDTO newAccount) {
-        validateLastNameUnique(newAccount.getLastName());
-        Account account = new Account(newAccount.getFirstName(), newAccount.getLastName());
-        account.setNotificationPreference(notificationFactory
-                .getDefaultNotification()
-                .getName());
-        Account save = accountRepository.save(account);
+        return accountMetrics.time("createAccount", () -> {
+            Account account = newAccount(newAccount.getFirstName(), newAccount.getLastName());
+            account.setNotificationPreference(notificationFactory
+                    .getDefaultNotification()
+                    .getName());
+            Account save;
+            try {
+                save = shards.on(account.getAccountId(), () -> transactionTemplate.execute(status -> {
+                    Account saved = accountRepository.save(account);
+                    notificationOutbox.publish(saved, "Account Created", "Welcome aboard!");
+                    return saved;
+                }));
+            } catch (DataIntegrityViolationException e) {
+                releaseLastName(account);
+                throw violates(e, Account.LAST_NAME_INDEX) ? new AccountLastNameExistsException() : e;
+            } catch (RuntimeException e) {
+                releaseLastName(account);
+                throw e;
+            }
+            replicaReads.wrote(save.getAccountId());
+            if (ledgerStore != null) {
+                ledgerStore.open(save.getAccountId(), save.getBalance().getMinor());
+            }
 
-        notificationFactory
-                .getPreferredService(save.getNotificationPreference())
-                .orElseGet(notificationFactory::getDefaultNotification)
-                .sendMessage("bank",
-                        account.getLastName(),
-                        "Account Created",
-                        "Welcome aboard!");
+            return mapAccountToDTO(save);
+        });
+    }
+
+    /**
+     * With sharding, the id is drawn first since it decides the account's shard, and the last name is claimed for
+     * that id on shard-0 before the account is written, since each shard's unique index only sees its own accounts.
+     */
+    private Account newAccount(String firstName, String lastName) {
+        if (shardLastNames == null) {
+            return new Account(firstName, lastName);
+        }
+        Account account = new Account(accountRepository.nextAccountId(), firstName, lastName);
+        shardLastNames.claim(account.getAccountId(), lastName);
+        return account;
+    }
 
-        return mapAccountToDTO(save);
+    private void releaseLastName(Account account) {
+        if (shardLastNames != null) {
+            shardLastNames.release(account.getAccountId(), account.getLastName());
+        }
     }
 
     public AccountDTO getAccount(String lastName) {
-        Account account = accountRepository
-                .findByLastName(lastName)
-                .orElseThrow(AccountNotFoundException::new);
-        return mapAccountToDTO(account);
+        return accountMetrics.time("getAccountByLastName", () -> {
+            Integer id = accountCache.idForLastName(lastName);
+            if (id != null) {
+                try {
+                    return accountCache.get(id, this::loadAccount);
+                } catch (AccountNotFoundException e) {
+                    accountCache.forgetLastName(lastName);
+                }
+            }
+            AccountDTO account = findDTOByLastName(lastName).orElseThrow(AccountNotFoundException::new);
+            accountCache.rememberLastName(lastName, account.getAccountId());
+            return withLedgerBalance(account);
+        });
     }
 
-    public AccountDTO getAccountViaFirst(String firstName) {
-        Account account = accountRepository
-                .findByFirstName(firstName)
-                .orElseThrow(AccountNotFoundException::new);
+    /**
+     * With sharding, the account holding the name comes from its reservation, and is read from its own shard.
+     */
+    private Optional<AccountDTO> findDTOByLastName(String lastName) {
+        if (shardLastNames == null) {
+            return replicaReads.lookup(() -> accountRepository.findDTOByLastName(lastName), AccountDTO::getAccountId);
+        }
+        return shardLastNames.accountIdOf(lastName)
+                .flatMap(id -> replicaReads.read(id, () -> accountRepository.findDTOByAccountId(id)));
+    }
 
-        return mapAccountToDTO(account);
+    public AccountDTO getAccountViaFirst(String firstName) {
+        return accountMetrics.time("getAccountByFirstName", () -> {
+            Integer id = accountCache.idForFirstName(firstName);
+            if (id != null) {
+                try {
+                    return accountCache.get(id, this::loadAccount);
+                } catch (AccountNotFoundException e) {
+                    accountCache.forgetFirstName(firstName);
+                }
+            }
+            AccountDTO account = replicaReads
+                    .lookup(() -> accountRepository.findDTOByFirstName(firstName), AccountDTO::getAccountId)
+                    .orElseThrow(AccountNotFoundException::new);
+            accountCache.rememberFirstName(firstName, account.getAccountId());
+            return withLedgerBalance(account);
+        });
     }
 
     public AccountDTO getAccountByIdNum(int id) {
-        Account account = accountRepository.findByAccountId(id).orElseThrow(AccountNotFoundException::new);
-        return mapAccountToDTO(account);
+        return accountMetrics.time("getAccountById", () -> accountCache.get(id, this::loadAccount));
     }
 
-    public AccountDTO deposit(int id, BigDecimal depositAmount) throws DepositNotValidException {
-        Account account = accountRepository.findByAccountId(id).orElseThrow(AccountNotFoundException::new);
-        AccountDTO dto = new AccountDTO();
-        BigDecimal newBal = new BigDecimal("0");
-
-        LocalDateTime lastUpdateTime = account.getLastUpdatedDate();
-
-
-        if(LocalDateTime.now().isAfter(endTime)){
-            dailyDeposited = new BigDecimal("0");
-            accountDepositDailyLimit = new BigDecimal("5000");
-            dto = depositHelper(account, dto, newBal, id,depositAmount);
-            LocalDateTime copy = endTime;
-            startTime = endTime;
-            endTime = copy.plusDays(1);
-        }
-        else if (lastUpdateTime.isAfter(startTime) && lastUpdateTime.isBefore(endTime) && dailyDeposited.doubleValue() <= 5000 ){
-            dto = depositHelper(account, dto, newBal, id, depositAmount);
-        }
-        else{
-            throw new DepositNotValidException();
-        }
-        return dto;
-
+    private AccountDTO loadAccount(int id) {
+        return withLedgerBalance(replicaReads.read(id, () -> accountRepository.findDTOByAccountId(id)
+                .orElseThrow(AccountNotFoundException::new)));
     }
 
-    @NotNull
-    public AccountDTO depositHelper(Account account, AccountDTO dto, BigDecimal newBal, int id, BigDecimal depositAmount) throws DepositNotValidException{
-        if (depositAmount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new DepositNotValidException();
-        } else {
-            if (accountDepositDailyLimit.subtract(depositAmount).doubleValue() < 0) {
+    public AccountDTO deposit(int id, Money depositAmount) throws DepositNotValidException {
+        return accountMetrics.time("deposit", () -> {
+            if (!depositAmount.isPositive() || !dailyDepositLedger.tryReserve(id, depositAmount)) {
                 throw new DepositNotValidException();
-            } else {
-                newBal = account.getBalance().add(depositAmount);
-                accountDepositDailyLimit = accountDepositDailyLimit.subtract(depositAmount);
-                account.setBalance(newBal);
-                account.setLastUpdatedDate(LocalDateTime.now());
-
-                String message = "Deposit of " + depositAmount + "$";
-                Transaction transaction = new Transaction(account, message , depositAmount);
-                account.getTransactions().add(transaction);
-                //transactionRepository.save(transaction);
-
-                dailyDeposited.add(depositAmount);
-                dto = mapAccountToDTO(account);
-                accountRepository.save(account);
             }
-        }
+            try {
+                if (ledgerStore != null) {
+                    return postToLedger(id, "Deposit", "Deposit of " + depositAmount + "$",
+                            () -> ledgerStore.deposit(id, depositAmount.getMinor()));
+                }
+                return optimisticRetry.execute(() -> locked(id, () -> transactionTemplate.execute(status -> depositHelper(
+                        accountRepository.findById(id).orElseThrow(AccountNotFoundException::new),
+                        depositAmount))));
+            } catch (RuntimeException e) {
+                dailyDepositLedger.release(id, depositAmount);
+                throw e;
+            }
+        });
+    }
+
+    @NotNull
+    public AccountDTO depositHelper(Account account, Money depositAmount) {
+        Money oldBal = account.getBalance();
+        Money newBal = oldBal.plus(depositAmount);
+        account.setBalance(newBal);
+        account.setLastUpdatedDate(LocalDateTime.now());
+        balanceSnapshots.record(account, oldBal);
+
+        String message = "Deposit of " + depositAmount + "$";
+        transactionRepository.save(new Transaction(account, message, depositAmount));
+        notificationOutbox.publish(account, "Deposit", message);
+
+        AccountDTO dto = mapAccountToDTO(account);
+        accountRepository.save(account);
         return dto;
     }
 
-    public AccountDTO withdraw(int id, BigDecimal depositAmount) throws DepositNotValidException {
-        Account account = accountRepository.findByAccountId(id).orElseThrow(AccountNotFoundException::new);
-        if (depositAmount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new DepositNotValidException();
-        } else {
-            if (account.getBalance().compareTo(BigDecimal.ZERO) <= 0) {
+    public AccountDTO withdraw(int id, Money depositAmount) throws DepositNotValidException {
+        if (ledgerStore != null) {
+            return accountMetrics.time("withdraw", () -> postToLedger(id, "Withdrawal", "Withdrawal of " + depositAmount + "$",
+                    () -> ledgerStore.withdraw(id, depositAmount.getMinor())));
+        }
+        return accountMetrics.time("withdraw", () -> optimisticRetry.execute(() -> locked(id, () -> transactionTemplate.execute(status -> {
+            Account account = accountRepository.findById(id).orElseThrow(AccountNotFoundException::new);
+            if (!depositAmount.isPositive()) {
                 throw new DepositNotValidException();
             } else {
-                BigDecimal newBal = account.getBalance().subtract(depositAmount);
-                account.setBalance(newBal);
-                Transaction transaction = new Transaction(account, "Withdrawal of " + depositAmount + "$", depositAmount);
-                //transactionRepository.save(transaction);
-
-                AccountDTO dto = mapAccountToDTO(account);
-                accountRepository.save(account);
-                return dto;
+                if (account.getBalance().signum() <= 0) {
+                    throw new DepositNotValidException();
+                } else {
+                    Money oldBal = account.getBalance();
+                    Money newBal = oldBal.minus(depositAmount);
+                    account.setBalance(newBal);
+                    balanceSnapshots.record(account, oldBal);
+                    String message = "Withdrawal of " + depositAmount + "$";
+                    transactionRepository.save(new Transaction(account, message, depositAmount));
+                    notificationOutbox.publish(account, "Withdrawal", message);
+
+                    AccountDTO dto = mapAccountToDTO(account);
+                    accountRepository.save(account);
+                    return dto;
+                }
             }
-        }
+        }))));
     }
 
-    public void wireTransferFromAccount1ToAccount2(int id1, int id2, BigDecimal depositAmount) throws DepositNotValidException{
-        AccountDTO account1 = withdrawHelperForWireTransfer(id1, id2, depositAmount);
-        AccountDTO account2 = depositHelperForWireTransfer(id2, id1, depositAmount);
+    /**
+     * Runs one attempt under the account's stripe lock, so writers on this node never conflict with each other
+     * and the optimistic version check only has to catch writers on other nodes. Backoff between attempts
+     * happens outside the lock.
+     */
+    private <T> T locked(int id, Supplier<T> attempt) {
+        ReentrantLock lock = accountLocks.lockFor(id);
+        lock.lock();
+        try {
+            return shards.on(id, attempt);
+        } finally {
+            // pin the primary first, so a cache miss in between cannot reload the old balance from a replica
+            replicaReads.wrote(id);
+            accountCache.invalidate(id);
+            lock.unlock();
+        }
     }
 
-    @NotNull
-    public AccountDTO depositHelperForWireTransfer(int id2, int id1, BigDecimal depositAmount) throws DepositNotValidException {
-        Account account = accountRepository.findByAccountId(id2).orElseThrow(AccountNotFoundException::new);
-        BigDecimal newBal = new BigDecimal("0");
-        if (depositAmount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new DepositNotValidException();
-        } else {
-            if (account.getBalance().compareTo(BigDecimal.ZERO) <= 0) {
-                throw new DepositNotValidException();
-            } else {
-                newBal = account.getBalance().add(depositAmount);
-                account.setBalance(newBal);
-                String message = "Wire Transfer of " + depositAmount + "$ was received from "
-                        + accountRepository.findByAccountId(id1).get().getFirstName();
-                Transaction transaction = new Transaction(account, message, depositAmount);
-                transactionRepository.save(transaction);
-
-                AccountDTO dto = mapAccountToDTO(account);
-                accountRepository.save(account);
-                return dto;
+    /**
+     * @return the saga of a transfer between shards that was debited but not yet credited, which will be finished
+     * in the background, or null once the transfer is complete
+     */
+    public PendingTransferDTO wireTransferFromAccount1ToAccount2(int id1, int id2, Money depositAmount) throws DepositNotValidException{
+        return accountMetrics.time("wireTransfer", () -> {
+            if (ledgerStore != null) {
+                transferOnLedger(id1, id2, depositAmount);
+                return null;
             }
-        }
+            ReentrantLock[] locks = accountLocks.lockOrderFor(Arrays.asList(id1, id2));
+            for (ReentrantLock lock : locks) {
+                lock.lock();
+            }
+            try {
+                if (shards.isEnabled() && !shards.shardFor(id1).equals(shards.shardFor(id2))) {
+                    return crossShardTransfer.transfer(id1, id2, depositAmount).getPending();
+                }
+                return shards.on(id1, () -> {
+                    transferService.transfer(id1, id2, depositAmount);
+                    return null;
+                });
+            } finally {
+                replicaReads.wrote(id1);
+                replicaReads.wrote(id2);
+                accountCache.invalidate(id1);
+                accountCache.invalidate(id2);
+                for (int i = locks.length - 1; i >= 0; i--) {
+                    locks[i].unlock();
+                }
+            }
+        });
     }
 
-    public AccountDTO withdrawHelperForWireTransfer(int id1, int id2, BigDecimal depositAmount) throws DepositNotValidException {
-        Account account = accountRepository.findByAccountId(id1).orElseThrow(AccountNotFoundException::new);
-        if (depositAmount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new DepositNotValidException();
-        } else {
-            if (account.getBalance().compareTo(BigDecimal.ZERO) <= 0) {
-                throw new DepositNotValidException();
-            } else {
-                BigDecimal newBal = account.getBalance().subtract(depositAmount);
-                account.setBalance(newBal);
-                String message = "Wire Transfer of " + depositAmount + "$ was sent to " + accountRepository.findByAccountId(id2).get().getFirstName();
-                Transaction transaction = new Transaction(account, message, depositAmount);
-                transactionRepository.save(transaction);
-
-                AccountDTO dto = mapAccountToDTO(account);
-                accountRepository.save(account);
-                return dto;
-            }
-        }
+
+    /**
+     * One posting through the LedgerStore. The store serialises postings itself, so no stripe lock or
+     * database transaction is involved.
+     */
+    private AccountDTO postToLedger(int id, String subject, String message, LongSupplier posting) {
+        AccountDTO account = ledgerAccount(id);
+        long balance = posting.getAsLong();
+        replicaReads.wrote(id);
+        accountCache.invalidate(id);
+        notificationOutbox.dispatch(account.getNotificationPreference(), account.getLastName(), subject, message);
+        return new AccountDTO()
+                .accountId(id)
+                .firstName(account.getFirstName())
+                .lastName(account.getLastName())
+                .balance(Money.ofMinor(balance).toBigDecimal())
+                .notificationPreference(account.getNotificationPreference());
     }
 
+    private void transferOnLedger(int fromId, int toId, Money amount) {
+        AccountDTO from = ledgerAccount(fromId);
+        AccountDTO to = ledgerAccount(toId);
+        ledgerStore.transfer(fromId, toId, amount.getMinor());
+        replicaReads.wrote(fromId);
+        replicaReads.wrote(toId);
+        accountCache.invalidate(fromId);
+        accountCache.invalidate(toId);
+        notificationOutbox.dispatch(from.getNotificationPreference(), from.getLastName(), "Wire Transfer",
+                "Wire Transfer of " + amount + "$ was sent to " + to.getFirstName());
+        notificationOutbox.dispatch(to.getNotificationPreference(), to.getLastName(), "Wire Transfer",
+                "Wire Transfer of " + amount + "$ was received from " + from.getFirstName());
+    }
 
-    private void validateLastNameUnique(String lastName) {
-        accountRepository
-                .findByLastName(lastName)
-                .ifPresent(t -> {
-                    throw new AccountLastNameExistsException();
-                });
+    /**
+     * The account's details, after making sure the store holds it. An account the store has not seen yet,
+     * such as one created before the store was enabled, starts from its Account row's balance.
+     */
+    private AccountDTO ledgerAccount(int id) {
+        AccountDTO account = accountCache.get(id, this::loadAccount);
+        ledgerStore.open(id, Money.of(account.getBalance()).getMinor());
+        return account;
+    }
+
+    /**
+     * Whether the insert or update was refused by the named unique index. Checked against the messages in the
+     * cause chain, because neither the driver nor the dialect reliably reports the constraint name on its own.
+     */
+    private static boolean violates(DataIntegrityViolationException e, String indexName) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().toLowerCase(Locale.ROOT).contains(indexName)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     protected AccountDTO mapAccountToDTO(Account account) {
-        return new AccountDTO()
+        return withLedgerBalance(new AccountDTO()
+                .accountId(account.getAccountId())
                 .firstName(account.getFirstName())
                 .lastName(account.getLastName())
-                .balance(account.getBalance())
-                .notificationPreference(account.getNotificationPreference());
+                .balance(account.getBalance().toBigDecimal())
+                .notificationPreference(account.getNotificationPreference()));
+    }
+
+    /**
+     * Replaces the row's balance with the LedgerStore's, when the store holds the account.
+     */
+    private AccountDTO withLedgerBalance(AccountDTO account) {
+        if (ledgerStore != null && ledgerStore.contains(account.getAccountId())) {
+            account.balance(Money.ofMinor(ledgerStore.balance(account.getAccountId())).toBigDecimal());
+        }
+        return account;
     }
 
 
@@ -0,0 +1,63 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.ServerBusyException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the API requests being served at once. On blocking request threads the default matches the connection
+ * pool, so a burst waits here for at most max-wait-ms and is then turned away, instead of queueing for a
+ * connection until every request, including the ones already admitted, is slow. An async request keeps its permit
+ * until its dispatch completes, so with {@code bankapp.web.execution-mode=async} the default is
+ * {@code bankapp.web.async.max-concurrency} instead; sized to the pool, the permits would cap the async endpoints
+ * at the same few requests the Tomcat threads did.
+ */
+@Component
+public class AdmissionControl {
+
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+
+    @Autowired
+    public AdmissionControl(@Value("${bankapp.admission.max-concurrent-requests:0}") int maxConcurrentRequests,
+                            @Value("${bankapp.admission.max-wait-ms:100}") long maxWaitMillis,
+                            @Value("${bankapp.web.execution-mode:}") String executionMode,
+                            @Value("${bankapp.web.async.max-concurrency:1024}") int asyncMaxConcurrency,
+                            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this(maxConcurrentRequests > 0 ? maxConcurrentRequests
+                : "async".equals(executionMode) ? asyncMaxConcurrency : poolSize, maxWaitMillis);
+    }
+
+    public AdmissionControl(int maxConcurrentRequests, long maxWaitMillis) {
+        this.permits = new Semaphore(maxConcurrentRequests);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Takes a permit, to be given back with {@link #release()} when the request completes.
+     */
+    public void admit() {
+        boolean admitted;
+        try {
+            admitted = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            throw new ServerBusyException();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int available() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,342 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.service.dto.ArchivedTransactionDTO;
+import com.ippon.bankapp.service.dto.TransactionExportDTO;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The directory of one archived month of transactions. On disk, each account's rows for the month are a block of
+ * their own, gzipped on its own and holding one column per field, so runs of similar values (ids, timestamps,
+ * repeated messages) sit together and compress well. The blocks are ordered by account and followed by the
+ * directory, which gives each block's account and offset, and a fixed-size trailer that locates the directory.
+ * Reading an account's rows takes a binary search of the directory and decodes that account's block only, so
+ * only the directory is ever held in memory for a month.
+ * <p>
+ * Each file's trailer carries a random stamp, so a directory read from a file that has since been replaced is
+ * told apart from the new one.
+ */
+final class ArchiveSegment {
+
+    private static final int MAGIC = 0x54584e53;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    // directory offset, account count, stamp, magic
+    private static final int TRAILER_SIZE = 24;
+    // account id, block offset
+    private static final int DIRECTORY_ENTRY_SIZE = 12;
+
+    static final Comparator<ArchivedTransactionDTO> ORDER = Comparator
+            .comparingInt(ArchivedTransactionDTO::getAccountId)
+            .thenComparing(ArchivedTransactionDTO::getTimestamp)
+            .thenComparingInt(ArchivedTransactionDTO::getTransactionId);
+
+    private final long stamp;
+    private final int[] accountIds;
+    // the block of accountIds[i] is offsets[i] until offsets[i + 1], the last being the directory's offset
+    private final long[] offsets;
+
+    private ArchiveSegment(long stamp, int[] accountIds, long[] offsets) {
+        this.stamp = stamp;
+        this.accountIds = accountIds;
+        this.offsets = offsets;
+    }
+
+    static ArchiveSegment read(FileChannel channel) throws IOException {
+        ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a transaction archive segment");
+        }
+        ByteBuffer trailer = trailer(channel);
+        long directoryOffset = trailer.getLong();
+        int accountCount = trailer.getInt();
+        long stamp = trailer.getLong();
+        ByteBuffer directory = readFully(channel, directoryOffset, accountCount * DIRECTORY_ENTRY_SIZE);
+        int[] accountIds = new int[accountCount];
+        long[] offsets = new long[accountCount + 1];
+        for (int i = 0; i < accountCount; i++) {
+            accountIds[i] = directory.getInt();
+            offsets[i] = directory.getLong();
+        }
+        offsets[accountCount] = directoryOffset;
+        return new ArchiveSegment(stamp, accountIds, offsets);
+    }
+
+    /**
+     * The stamp of the file open on channel, read from its trailer alone.
+     */
+    static long stampOf(FileChannel channel) throws IOException {
+        return trailer(channel).getLong(12);
+    }
+
+    long stamp() {
+        return stamp;
+    }
+
+    int accountCount() {
+        return accountIds.length;
+    }
+
+    int accountIdAt(int account) {
+        return accountIds[account];
+    }
+
+    /**
+     * The account's rows, decoded from channel, which must be open on the file this directory was read from.
+     *
+     * @return null if the account has no rows in the month
+     */
+    Block block(FileChannel channel, int accountId) throws IOException {
+        int account = Arrays.binarySearch(accountIds, accountId);
+        return account < 0 ? null : decode(channel, account);
+    }
+
+    /**
+     * An account's rows for the month, oldest first.
+     */
+    static final class Block {
+        private final int accountId;
+        private final int[] transactionIds;
+        private final long[] seconds;
+        private final int[] nanos;
+        private final long[] amounts;
+        private final String[] types;
+
+        private Block(int accountId, int[] transactionIds, long[] seconds, int[] nanos, long[] amounts, String[] types) {
+            this.accountId = accountId;
+            this.transactionIds = transactionIds;
+            this.seconds = seconds;
+            this.nanos = nanos;
+            this.amounts = amounts;
+            this.types = types;
+        }
+
+        int size() {
+            return transactionIds.length;
+        }
+
+        List<TransactionExportDTO> rows() {
+            List<TransactionExportDTO> rows = new ArrayList<>(size());
+            for (int i = 0; i < size(); i++) {
+                rows.add(row(i));
+            }
+            return rows;
+        }
+
+        List<ArchivedTransactionDTO> archivedRows() {
+            List<ArchivedTransactionDTO> rows = new ArrayList<>(size());
+            for (int i = 0; i < size(); i++) {
+                rows.add(new ArchivedTransactionDTO(accountId, transactionIds[i], timestamp(i), types[i],
+                        Money.ofMinor(amounts[i])));
+            }
+            return rows;
+        }
+
+        Set<Integer> transactionIds() {
+            Set<Integer> ids = new HashSet<>(size() * 2);
+            for (int transactionId : transactionIds) {
+                ids.add(transactionId);
+            }
+            return ids;
+        }
+
+        /**
+         * Adds up to limit rows to into, newest first, skipping rows at or after the (timestamp, transactionId)
+         * position when timestamp is not null.
+         */
+        void addBefore(LocalDateTime timestamp, int transactionId, int limit, List<TransactionExportDTO> into) {
+            for (int i = size() - 1; i >= 0 && limit > 0; i--) {
+                if (timestamp != null) {
+                    int order = timestamp(i).compareTo(timestamp);
+                    if (order > 0 || order == 0 && transactionIds[i] >= transactionId) {
+                        continue;
+                    }
+                }
+                into.add(row(i));
+                limit--;
+            }
+        }
+
+        private TransactionExportDTO row(int i) {
+            return new TransactionExportDTO(transactionIds[i], timestamp(i), types[i], Money.ofMinor(amounts[i]));
+        }
+
+        private LocalDateTime timestamp(int i) {
+            return LocalDateTime.ofEpochSecond(seconds[i], nanos[i], ZoneOffset.UTC);
+        }
+    }
+
+    /**
+     * Writes a segment one account at a time, in ascending account order. The directory is kept in memory until
+     * {@link #finish}, which writes it and the trailer and forces the file to disk.
+     */
+    static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private int[] accountIds = new int[64];
+        private long[] offsets = new long[64];
+        private int accountCount;
+        private long position = HEADER_SIZE;
+
+        Writer(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            writeFully(header, 0);
+        }
+
+        /**
+         * Writes the account's rows, which must be in {@link #ORDER}.
+         */
+        void add(int accountId, List<ArchivedTransactionDTO> rows) throws IOException {
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            try (DataOutputStream data = new DataOutputStream(new GZIPOutputStream(block, 1 << 12))) {
+                data.writeInt(rows.size());
+                for (ArchivedTransactionDTO row : rows) {
+                    data.writeInt(row.getTransactionId());
+                }
+                for (ArchivedTransactionDTO row : rows) {
+                    data.writeLong(row.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+                }
+                for (ArchivedTransactionDTO row : rows) {
+                    data.writeInt(row.getTimestamp().getNano());
+                }
+                for (ArchivedTransactionDTO row : rows) {
+                    data.writeLong(row.getAmount().getMinor());
+                }
+                for (ArchivedTransactionDTO row : rows) {
+                    data.writeBoolean(row.getType() != null);
+                    if (row.getType() != null) {
+                        data.writeUTF(row.getType());
+                    }
+                }
+            }
+            entry(accountId);
+            writeFully(ByteBuffer.wrap(block.toByteArray()), position);
+            position += block.size();
+        }
+
+        /**
+         * Copies an account's block from another segment as it is, without decoding it.
+         */
+        void copy(ArchiveSegment segment, FileChannel from, int account) throws IOException {
+            entry(segment.accountIds[account]);
+            long length = segment.offsets[account + 1] - segment.offsets[account];
+            long copied = 0;
+            while (copied < length) {
+                copied += from.transferTo(segment.offsets[account] + copied, length - copied,
+                        channel.position(position + copied));
+            }
+            position += length;
+        }
+
+        void finish() throws IOException {
+            ByteBuffer directory = ByteBuffer.allocate(accountCount * DIRECTORY_ENTRY_SIZE + TRAILER_SIZE);
+            for (int i = 0; i < accountCount; i++) {
+                directory.putInt(accountIds[i]).putLong(offsets[i]);
+            }
+            directory.putLong(position).putInt(accountCount).putLong(ThreadLocalRandom.current().nextLong()).putInt(MAGIC);
+            directory.flip();
+            writeFully(directory, position);
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private void entry(int accountId) {
+            if (accountCount > 0 && accountId <= accountIds[accountCount - 1]) {
+                throw new IllegalArgumentException("Account " + accountId + " is out of order");
+            }
+            if (accountCount == accountIds.length) {
+                accountIds = Arrays.copyOf(accountIds, accountCount * 2);
+                offsets = Arrays.copyOf(offsets, accountCount * 2);
+            }
+            accountIds[accountCount] = accountId;
+            offsets[accountCount++] = position;
+        }
+
+        private void writeFully(ByteBuffer buffer, long at) throws IOException {
+            while (buffer.hasRemaining()) {
+                at += channel.write(buffer, at);
+            }
+        }
+    }
+
+    private Block decode(FileChannel channel, int account) throws IOException {
+        ByteBuffer bytes = readFully(channel, offsets[account], (int) (offsets[account + 1] - offsets[account]));
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+                new ByteArrayInputStream(bytes.array()), 1 << 12)))) {
+            int size = data.readInt();
+            int[] transactionIds = new int[size];
+            long[] seconds = new long[size];
+            int[] nanos = new int[size];
+            long[] amounts = new long[size];
+            String[] types = new String[size];
+            for (int i = 0; i < size; i++) {
+                transactionIds[i] = data.readInt();
+            }
+            for (int i = 0; i < size; i++) {
+                seconds[i] = data.readLong();
+            }
+            for (int i = 0; i < size; i++) {
+                nanos[i] = data.readInt();
+            }
+            for (int i = 0; i < size; i++) {
+                amounts[i] = data.readLong();
+            }
+            for (int i = 0; i < size; i++) {
+                types[i] = data.readBoolean() ? data.readUTF() : null;
+            }
+            return new Block(accountIds[account], transactionIds, seconds, nanos, amounts, types);
+        }
+    }
+
+    private static ByteBuffer trailer(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + TRAILER_SIZE) {
+            throw new IOException("Transaction archive segment is truncated");
+        }
+        ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+        if (trailer.getInt(TRAILER_SIZE - 4) != MAGIC) {
+            throw new IOException("Transaction archive segment is truncated");
+        }
+        return trailer;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long at, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, at + buffer.position()) < 0) {
+                throw new EOFException("Transaction archive segment is truncated");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
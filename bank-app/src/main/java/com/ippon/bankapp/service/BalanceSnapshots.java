@@ -0,0 +1,88 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.BalanceSnapshot;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.BalanceSnapshotRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps today's balance snapshot in step with every posting. Must be called inside the posting's transaction,
+ * after the balance has changed, by a caller that holds the account's stripe lock.
+ */
+@Component
+public class BalanceSnapshots {
+
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final Clock clock;
+
+    @Autowired
+    public BalanceSnapshots(BalanceSnapshotRepository balanceSnapshotRepository) {
+        this(balanceSnapshotRepository, Clock.systemDefaultZone());
+    }
+
+    BalanceSnapshots(BalanceSnapshotRepository balanceSnapshotRepository, Clock clock) {
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.clock = clock;
+    }
+
+    public void record(Account account, Money balanceBefore) {
+        recordAll(Collections.singletonList(account), Collections.singletonMap(account.getAccountId(), balanceBefore));
+    }
+
+    /**
+     * Records one posting for each account, loading and saving all of today's snapshots together.
+     *
+     * @param balancesBefore each account's balance before the postings being recorded; becomes the opening
+     *                       balance when this is the account's first posting today
+     */
+    public void recordAll(Collection<Account> accounts, Map<Integer, Money> balancesBefore) {
+        Map<Integer, Integer> postings = new HashMap<>();
+        for (Account account : accounts) {
+            postings.put(account.getAccountId(), 1);
+        }
+        recordAll(accounts, postings, balancesBefore);
+    }
+
+    /**
+     * Records the given number of postings for each account, loading and saving all of today's snapshots
+     * together.
+     *
+     * @param postings       how many postings each account's balance has taken since balancesBefore
+     * @param balancesBefore each account's balance before the postings being recorded; becomes the opening
+     *                       balance when this is the account's first posting today
+     */
+    public void recordAll(Collection<Account> accounts, Map<Integer, Integer> postings, Map<Integer, Money> balancesBefore) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        LocalDate today = LocalDate.now(clock);
+        Map<Integer, Account> byId = new HashMap<>();
+        for (Account account : accounts) {
+            byId.put(account.getAccountId(), account);
+        }
+
+        List<BalanceSnapshot> snapshots = new ArrayList<>(byId.size());
+        for (BalanceSnapshot snapshot : balanceSnapshotRepository.findAllByAccountIdInAndSnapshotDate(byId.keySet(), today)) {
+            snapshot.post(byId.remove(snapshot.getAccountId()).getBalance(), postings.get(snapshot.getAccountId()));
+            snapshots.add(snapshot);
+        }
+        for (Account account : byId.values()) {
+            BalanceSnapshot snapshot = new BalanceSnapshot(account.getAccountId(), today,
+                    balancesBefore.get(account.getAccountId()));
+            snapshot.post(account.getBalance(), postings.get(account.getAccountId()));
+            snapshots.add(snapshot);
+        }
+        balanceSnapshotRepository.saveAll(snapshots);
+    }
+}
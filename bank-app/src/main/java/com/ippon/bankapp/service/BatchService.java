@@ -0,0 +1,368 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.domain.Transaction;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.Shards;
+import com.ippon.bankapp.repository.TransactionRepository;
+import com.ippon.bankapp.service.dto.BatchOperationDTO;
+import com.ippon.bankapp.service.dto.BatchResultDTO;
+import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import com.ippon.bankapp.service.exception.DepositNotValidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Applies many deposits, withdrawals and transfers per database transaction. Operations are split into chunks;
+ * each chunk locks and loads every account it touches in one query, applies its operations in order against
+ * those in-memory accounts, and writes all of its ledger rows in one JDBC batch. A rejected operation does not
+ * affect the others. A chunk whose transaction fails is rolled back as a whole and each of its operations is
+ * rejected, while the chunks committed before it stand and the chunks after it are still applied.
+ */
+@Service
+public class BatchService {
+
+    static final String ACCOUNT_NOT_FOUND = "Account not found";
+    static final String OPERATION_NOT_VALID = "Operation not valid";
+    static final String DAILY_LIMIT_EXCEEDED = "Daily deposit limit exceeded";
+    static final String UNKNOWN_OPERATION = "Unknown operation type";
+    static final String CHUNK_FAILED = "Operation not applied";
+
+    private static final Logger log = LoggerFactory.getLogger(BatchService.class);
+
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+    private DailyDepositLedger dailyDepositLedger;
+    private AccountLocks accountLocks;
+    private AccountCache accountCache;
+    private NotificationOutbox notificationOutbox;
+    private BalanceSnapshots balanceSnapshots;
+    private TransactionTemplate transactionTemplate;
+    private int chunkSize;
+    private LedgerStore ledgerStore;
+    private ReplicaReads replicaReads;
+    private Shards shards;
+    private CrossShardTransfer crossShardTransfer;
+
+    public BatchService(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                        DailyDepositLedger dailyDepositLedger, AccountLocks accountLocks, AccountCache accountCache,
+                        NotificationOutbox notificationOutbox, BalanceSnapshots balanceSnapshots,
+                        PlatformTransactionManager transactionManager, ReplicaReads replicaReads,
+                        Shards shards, CrossShardTransfer crossShardTransfer,
+                        @Value("${bankapp.batch.chunk-size:500}") int chunkSize) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.dailyDepositLedger = dailyDepositLedger;
+        this.accountLocks = accountLocks;
+        this.accountCache = accountCache;
+        this.notificationOutbox = notificationOutbox;
+        this.balanceSnapshots = balanceSnapshots;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.replicaReads = replicaReads;
+        this.shards = shards;
+        this.crossShardTransfer = crossShardTransfer;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Switches batches to the given store instead of Account rows.
+     */
+    @Autowired(required = false)
+    public void setLedgerStore(LedgerStore ledgerStore) {
+        this.ledgerStore = ledgerStore;
+    }
+
+    public List<BatchResultDTO> apply(List<BatchOperationDTO> operations) {
+        if (ledgerStore != null) {
+            return applyToLedger(operations);
+        }
+        if (shards.isEnabled()) {
+            return applyAcrossShards(operations);
+        }
+        List<BatchResultDTO> results = new ArrayList<>(operations.size());
+        for (int from = 0; from < operations.size(); from += chunkSize) {
+            results.addAll(applyChunk(operations.subList(from, Math.min(from + chunkSize, operations.size())), from));
+        }
+        return results;
+    }
+
+    /**
+     * Each shard's operations are applied in chunks on that shard, keeping their order. A transfer between two
+     * shards cannot be part of a chunk's transaction, so those are made one by one through CrossShardTransfer after
+     * all the chunks, and see the balances the rest of the batch left behind.
+     */
+    private List<BatchResultDTO> applyAcrossShards(List<BatchOperationDTO> operations) {
+        Map<String, List<Integer>> byShard = new LinkedHashMap<>();
+        List<Integer> crossShard = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperationDTO operation = operations.get(i);
+            String shard = shards.shardFor(operation.getId());
+            if (BatchOperationDTO.TRANSFER.equals(operation.getType()) && operation.getId2() != null
+                    && !shard.equals(shards.shardFor(operation.getId2()))) {
+                crossShard.add(i);
+            } else {
+                byShard.computeIfAbsent(shard, name -> new ArrayList<>()).add(i);
+            }
+        }
+
+        BatchResultDTO[] results = new BatchResultDTO[operations.size()];
+        byShard.forEach((shard, indexes) -> {
+            for (int from = 0; from < indexes.size(); from += chunkSize) {
+                List<Integer> chunkIndexes = indexes.subList(from, Math.min(from + chunkSize, indexes.size()));
+                List<BatchOperationDTO> chunk = new ArrayList<>(chunkIndexes.size());
+                for (int index : chunkIndexes) {
+                    chunk.add(operations.get(index));
+                }
+                for (BatchResultDTO result : shards.onShard(shard, () -> applyChunk(chunk, 0))) {
+                    int index = chunkIndexes.get(result.getIndex());
+                    result.setIndex(index);
+                    results[index] = result;
+                }
+            }
+        });
+        for (int index : crossShard) {
+            results[index] = transferAcrossShards(index, operations.get(index));
+        }
+        return Arrays.asList(results);
+    }
+
+    private BatchResultDTO transferAcrossShards(int index, BatchOperationDTO operation) {
+        Money amount = operation.getAmount();
+        if (amount == null || !amount.isPositive()) {
+            return BatchResultDTO.rejected(index, OPERATION_NOT_VALID);
+        }
+        List<Integer> accountIds = Arrays.asList(operation.getId(), operation.getId2());
+        ReentrantLock[] locks = accountLocks.lockOrderFor(accountIds);
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            CrossShardTransfer.Outcome outcome = crossShardTransfer.transfer(operation.getId(), operation.getId2(), amount);
+            if (outcome.getPending() != null) {
+                return BatchResultDTO.pending(index, outcome.getBalance().toBigDecimal(), outcome.getPending().getSagaId());
+            }
+            return BatchResultDTO.applied(index, outcome.getBalance().toBigDecimal());
+        } catch (AccountNotFoundException e) {
+            return BatchResultDTO.rejected(index, ACCOUNT_NOT_FOUND);
+        } catch (DepositNotValidException e) {
+            return BatchResultDTO.rejected(index, OPERATION_NOT_VALID);
+        } finally {
+            replicaReads.wroteAll(accountIds);
+            accountCache.invalidateAll(accountIds);
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Same rules as the database path, posted one by one through the LedgerStore. The accounts' details are
+     * read in one query so unknown ids can be rejected and notifications addressed.
+     */
+    private List<BatchResultDTO> applyToLedger(List<BatchOperationDTO> operations) {
+        Set<Integer> accountIds = new HashSet<>();
+        for (BatchOperationDTO operation : operations) {
+            accountIds.add(operation.getId());
+            if (operation.getId2() != null) {
+                accountIds.add(operation.getId2());
+            }
+        }
+        Map<Integer, Account> accounts = new HashMap<>();
+        for (Account account : accountRepository.findAllByAccountIdIn(accountIds)) {
+            accounts.put(account.getAccountId(), account);
+            ledgerStore.open(account.getAccountId(), account.getBalance().getMinor());
+        }
+        try {
+            List<BatchResultDTO> results = new ArrayList<>(operations.size());
+            for (int i = 0; i < operations.size(); i++) {
+                results.add(postToLedger(i, operations.get(i), accounts));
+            }
+            return results;
+        } finally {
+            replicaReads.wroteAll(accountIds);
+            accountCache.invalidateAll(accountIds);
+        }
+    }
+
+    private BatchResultDTO postToLedger(int index, BatchOperationDTO operation, Map<Integer, Account> accounts) {
+        Account account = accounts.get(operation.getId());
+        if (account == null) {
+            return BatchResultDTO.rejected(index, ACCOUNT_NOT_FOUND);
+        }
+        Money amount = operation.getAmount();
+        if (amount == null || !amount.isPositive()) {
+            return BatchResultDTO.rejected(index, OPERATION_NOT_VALID);
+        }
+
+        String type = operation.getType() == null ? "" : operation.getType();
+        try {
+            switch (type) {
+                case BatchOperationDTO.DEPOSIT:
+                    if (!dailyDepositLedger.tryReserve(account.getAccountId(), amount)) {
+                        return BatchResultDTO.rejected(index, DAILY_LIMIT_EXCEEDED);
+                    }
+                    try {
+                        ledgerStore.deposit(account.getAccountId(), amount.getMinor());
+                    } catch (DepositNotValidException e) {
+                        dailyDepositLedger.release(account.getAccountId(), amount);
+                        throw e;
+                    }
+                    dispatch(account, "Deposit", "Deposit of " + amount + "$");
+                    break;
+                case BatchOperationDTO.WITHDRAW:
+                    ledgerStore.withdraw(account.getAccountId(), amount.getMinor());
+                    dispatch(account, "Withdrawal", "Withdrawal of " + amount + "$");
+                    break;
+                case BatchOperationDTO.TRANSFER:
+                    Account recipient = operation.getId2() == null ? null : accounts.get(operation.getId2());
+                    if (recipient == null) {
+                        return BatchResultDTO.rejected(index, ACCOUNT_NOT_FOUND);
+                    }
+                    ledgerStore.transfer(account.getAccountId(), recipient.getAccountId(), amount.getMinor());
+                    dispatch(account, "Wire Transfer", "Wire Transfer of " + amount + "$ was sent to " + recipient.getFirstName());
+                    dispatch(recipient, "Wire Transfer", "Wire Transfer of " + amount + "$ was received from " + account.getFirstName());
+                    break;
+                default:
+                    return BatchResultDTO.rejected(index, UNKNOWN_OPERATION);
+            }
+        } catch (DepositNotValidException e) {
+            return BatchResultDTO.rejected(index, OPERATION_NOT_VALID);
+        }
+        return BatchResultDTO.applied(index, Money.ofMinor(ledgerStore.balance(account.getAccountId())).toBigDecimal());
+    }
+
+    private void dispatch(Account account, String subject, String message) {
+        notificationOutbox.dispatch(account.getNotificationPreference(), account.getLastName(), subject, message);
+    }
+
+    private List<BatchResultDTO> applyChunk(List<BatchOperationDTO> chunk, int firstIndex) {
+        Set<Integer> accountIds = new HashSet<>();
+        for (BatchOperationDTO operation : chunk) {
+            accountIds.add(operation.getId());
+            if (operation.getId2() != null) {
+                accountIds.add(operation.getId2());
+            }
+        }
+
+        Map<Integer, Money> reserved = new HashMap<>();
+        ReentrantLock[] locks = accountLocks.lockOrderFor(accountIds);
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            return transactionTemplate.execute(status -> postChunk(chunk, firstIndex, accountIds, reserved));
+        } catch (RuntimeException e) {
+            log.warn("Batch chunk of {} operations from index {} was rolled back", chunk.size(), firstIndex, e);
+            reserved.forEach(dailyDepositLedger::release);
+            List<BatchResultDTO> rejected = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                rejected.add(BatchResultDTO.rejected(firstIndex + i, CHUNK_FAILED));
+            }
+            return rejected;
+        } finally {
+            replicaReads.wroteAll(accountIds);
+            accountCache.invalidateAll(accountIds);
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    private List<BatchResultDTO> postChunk(List<BatchOperationDTO> chunk, int firstIndex, Set<Integer> accountIds,
+                                           Map<Integer, Money> reserved) {
+        Map<Integer, Account> accounts = new HashMap<>();
+        Map<Integer, Money> balancesBefore = new HashMap<>();
+        for (Account account : accountRepository.findAllByAccountIdForUpdate(accountIds)) {
+            accounts.put(account.getAccountId(), account);
+            balancesBefore.put(account.getAccountId(), account.getBalance());
+        }
+
+        List<Transaction> postings = new ArrayList<>(chunk.size() * 2);
+        List<BatchResultDTO> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            results.add(post(firstIndex + i, chunk.get(i), accounts, postings, reserved));
+        }
+        transactionRepository.saveAll(postings);
+
+        Map<Integer, Account> posted = new HashMap<>();
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Transaction posting : postings) {
+            posted.put(posting.getAccount().getAccountId(), posting.getAccount());
+            counts.merge(posting.getAccount().getAccountId(), 1, Integer::sum);
+        }
+        balanceSnapshots.recordAll(posted.values(), counts, balancesBefore);
+        return results;
+    }
+
+    private BatchResultDTO post(int index, BatchOperationDTO operation, Map<Integer, Account> accounts,
+                                List<Transaction> postings, Map<Integer, Money> reserved) {
+        Account account = accounts.get(operation.getId());
+        if (account == null) {
+            return BatchResultDTO.rejected(index, ACCOUNT_NOT_FOUND);
+        }
+        Money amount = operation.getAmount();
+        if (amount == null || !amount.isPositive()) {
+            return BatchResultDTO.rejected(index, OPERATION_NOT_VALID);
+        }
+
+        String type = operation.getType() == null ? "" : operation.getType();
+        switch (type) {
+            case BatchOperationDTO.DEPOSIT:
+                if (!dailyDepositLedger.tryReserve(account.getAccountId(), amount)) {
+                    return BatchResultDTO.rejected(index, DAILY_LIMIT_EXCEEDED);
+                }
+                reserved.merge(account.getAccountId(), amount, Money::plus);
+                account.setBalance(account.getBalance().plus(amount));
+                account.setLastUpdatedDate(LocalDateTime.now());
+                post(postings, account, "Deposit", "Deposit of " + amount + "$", amount);
+                break;
+            case BatchOperationDTO.WITHDRAW:
+                if (account.getBalance().signum() <= 0) {
+                    return BatchResultDTO.rejected(index, OPERATION_NOT_VALID);
+                }
+                account.setBalance(account.getBalance().minus(amount));
+                post(postings, account, "Withdrawal", "Withdrawal of " + amount + "$", amount);
+                break;
+            case BatchOperationDTO.TRANSFER:
+                Account recipient = operation.getId2() == null ? null : accounts.get(operation.getId2());
+                if (recipient == null) {
+                    return BatchResultDTO.rejected(index, ACCOUNT_NOT_FOUND);
+                }
+                if (recipient == account
+                        || account.getBalance().signum() <= 0
+                        || recipient.getBalance().signum() <= 0) {
+                    return BatchResultDTO.rejected(index, OPERATION_NOT_VALID);
+                }
+                account.setBalance(account.getBalance().minus(amount));
+                recipient.setBalance(recipient.getBalance().plus(amount));
+                post(postings, account, "Wire Transfer", "Wire Transfer of " + amount + "$ was sent to " + recipient.getFirstName(), amount);
+                post(postings, recipient, "Wire Transfer", "Wire Transfer of " + amount + "$ was received from " + account.getFirstName(), amount);
+                break;
+            default:
+                return BatchResultDTO.rejected(index, UNKNOWN_OPERATION);
+        }
+        return BatchResultDTO.applied(index, account.getBalance().toBigDecimal());
+    }
+
+    private void post(List<Transaction> postings, Account account, String subject, String message, Money amount) {
+        postings.add(new Transaction(account, message, amount));
+        notificationOutbox.publish(account, subject, message);
+    }
+}
@@ -0,0 +1,60 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.dto.CacheRegionStatsDTO;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Hit, miss and put counts for each of Hibernate's second-level cache regions, with the region's current size
+ * when the cache provider reports one. Empty when the second-level cache is off.
+ */
+@Component
+public class CacheRegionStats {
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    public CacheRegionStats(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    public List<CacheRegionStatsDTO> regions() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Set<String> names = new TreeSet<>(sessionFactory.getCache().getCacheRegionNames());
+        List<CacheRegionStatsDTO> regions = new ArrayList<>(names.size());
+        for (String name : names) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if (region == null) {
+                continue;
+            }
+            long lookups = region.getHitCount() + region.getMissCount();
+            regions.add(new CacheRegionStatsDTO(name, size(name), region.getHitCount(), region.getMissCount(),
+                    lookups == 0 ? 1.0 : (double) region.getHitCount() / lookups, region.getPutCount()));
+        }
+        return regions;
+    }
+
+    private long size(String name) {
+        RegionFactory regionFactory = sessionFactory.getCache().getRegionFactory();
+        if (!(regionFactory instanceof JCacheRegionFactory)) {
+            return CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN;
+        }
+        CacheManager cacheManager = ((JCacheRegionFactory) regionFactory).getCacheManager();
+        Cache<Object, Object> cache = cacheManager.getCache(name);
+        if (cache == null) {
+            return CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN;
+        }
+        return cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class).estimatedSize();
+    }
+}
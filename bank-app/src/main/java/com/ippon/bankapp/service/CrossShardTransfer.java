@@ -0,0 +1,227 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.domain.Transaction;
+import com.ippon.bankapp.domain.TransferSaga;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.Shards;
+import com.ippon.bankapp.repository.TransactionRepository;
+import com.ippon.bankapp.repository.TransferSagaRepository;
+import com.ippon.bankapp.service.dto.PendingTransferDTO;
+import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import com.ippon.bankapp.service.exception.DepositNotValidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Wire transfers between accounts on different shards, as a saga of local transactions rather than one distributed
+ * transaction: debit the sender and record the saga on the sender's shard, credit the recipient on the recipient's
+ * shard, then mark the saga completed. If the recipient has gone by the time of the credit, the debit is reversed.
+ * A saga left DEBITED by a crash or an unreachable shard is finished by {@link #resume()}. Between the debit and
+ * the credit the money is in neither account. Once the debit has committed, a failure to credit is reported as a
+ * pending transfer rather than an error, so that a client does not send the money a second time.
+ */
+@Service
+public class CrossShardTransfer {
+
+    private static final Logger log = LoggerFactory.getLogger(CrossShardTransfer.class);
+
+    private static final int RESUME_BATCH_SIZE = 100;
+
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+    private TransferSagaRepository transferSagaRepository;
+    private NotificationOutbox notificationOutbox;
+    private BalanceSnapshots balanceSnapshots;
+    private AccountCache accountCache;
+    private Shards shards;
+    private TransactionTemplate transactionTemplate;
+    private long retryAfterMillis;
+
+    public CrossShardTransfer(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                              TransferSagaRepository transferSagaRepository, NotificationOutbox notificationOutbox,
+                              BalanceSnapshots balanceSnapshots, AccountCache accountCache, Shards shards,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${bankapp.sharding.saga.retry-after-ms:60000}") long retryAfterMillis) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transferSagaRepository = transferSagaRepository;
+        this.notificationOutbox = notificationOutbox;
+        this.balanceSnapshots = balanceSnapshots;
+        this.accountCache = accountCache;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Same rules as TransferService: both accounts must exist and have a positive balance.
+     *
+     * @throws AccountNotFoundException if the recipient is missing, in which case any debit has been reversed
+     */
+    public Outcome transfer(int fromId, int toId, Money amount) throws DepositNotValidException {
+        if (fromId == toId || !amount.isPositive()) {
+            throw new DepositNotValidException();
+        }
+        Account recipient = shards.on(toId, () -> accountRepository.findById(toId))
+                .orElseThrow(AccountNotFoundException::new);
+        if (recipient.getBalance().signum() <= 0) {
+            throw new DepositNotValidException();
+        }
+        String sentMessage = "Wire Transfer of " + amount + "$ was sent to " + recipient.getFirstName();
+        Outcome debit = shards.on(fromId, () -> transactionTemplate.execute(status -> debit(fromId, toId, amount, sentMessage)));
+        try {
+            finish(debit.saga);
+        } catch (AccountNotFoundException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("{} was debited but not credited, it is left for resume", debit.saga, e);
+            return debit;
+        }
+        debit.pending = false;
+        return debit;
+    }
+
+    private Outcome debit(int fromId, int toId, Money amount, String message) {
+        Account from = lockAccount(fromId);
+        if (from.getBalance().signum() <= 0) {
+            throw new DepositNotValidException();
+        }
+        post(from, from.getBalance().minus(amount), message, amount);
+        TransferSaga saga = new TransferSaga(UUID.randomUUID().toString(), fromId, toId, amount, TransferSaga.State.DEBITED,
+                "Wire Transfer of " + amount + "$ was received from " + from.getFirstName(), LocalDateTime.now());
+        transferSagaRepository.save(saga);
+        return new Outcome(saga, from.getBalance());
+    }
+
+    /**
+     * Credits the recipient and completes the saga, or reverses the debit if the recipient no longer exists. Any
+     * other failure leaves the saga DEBITED for {@link #resume()}.
+     */
+    private void finish(TransferSaga saga) {
+        try {
+            shards.on(saga.getToAccountId(), () -> transactionTemplate.execute(status -> credit(saga)));
+        } catch (AccountNotFoundException e) {
+            shards.on(saga.getFromAccountId(), () -> transactionTemplate.execute(status -> compensate(saga.getSagaId())));
+            throw e;
+        } catch (DataIntegrityViolationException e) {
+            // another attempt wrote the CREDITED copy first, so the credit has been made
+            log.debug("{} was credited by another attempt", saga);
+        } finally {
+            accountCache.invalidate(saga.getToAccountId());
+            accountCache.invalidate(saga.getFromAccountId());
+        }
+        shards.on(saga.getFromAccountId(), () -> transactionTemplate.execute(status -> complete(saga.getSagaId())));
+    }
+
+    private Void credit(TransferSaga saga) {
+        if (transferSagaRepository.existsById(saga.getSagaId())) {
+            return null;
+        }
+        Account to = lockAccount(saga.getToAccountId());
+        post(to, to.getBalance().plus(saga.getAmount()), saga.getRecipientMessage(), saga.getAmount());
+        transferSagaRepository.save(saga.credited());
+        return null;
+    }
+
+    private Void compensate(String sagaId) {
+        TransferSaga saga = transferSagaRepository.findById(sagaId).orElseThrow(IllegalStateException::new);
+        if (saga.getState() != TransferSaga.State.DEBITED) {
+            return null;
+        }
+        Account from = lockAccount(saga.getFromAccountId());
+        post(from, from.getBalance().plus(saga.getAmount()),
+                "Wire Transfer of " + saga.getAmount() + "$ was returned: recipient not found", saga.getAmount());
+        saga.setState(TransferSaga.State.COMPENSATED);
+        return null;
+    }
+
+    private Void complete(String sagaId) {
+        transferSagaRepository.findById(sagaId)
+                .filter(saga -> saga.getState() == TransferSaga.State.DEBITED)
+                .ifPresent(saga -> saga.setState(TransferSaga.State.COMPLETED));
+        return null;
+    }
+
+    private Account lockAccount(int accountId) {
+        List<Account> accounts = accountRepository.findAllByAccountIdForUpdate(Collections.singletonList(accountId));
+        if (accounts.isEmpty()) {
+            throw new AccountNotFoundException();
+        }
+        return accounts.get(0);
+    }
+
+    private void post(Account account, Money balance, String message, Money amount) {
+        Money before = account.getBalance();
+        account.setBalance(balance);
+        balanceSnapshots.record(account, before);
+        transactionRepository.save(new Transaction(account, message, amount));
+        notificationOutbox.publish(account, "Wire Transfer", message);
+    }
+
+    /**
+     * Finishes the sagas on every shard that have been DEBITED for longer than
+     * {@code bankapp.sharding.saga.retry-after-ms}.
+     */
+    @Scheduled(initialDelayString = "${bankapp.sharding.saga.retry-after-ms:60000}",
+            fixedDelayString = "${bankapp.sharding.saga.retry-after-ms:60000}")
+    public void resume() {
+        if (!shards.isEnabled()) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(retryAfterMillis * 1_000_000);
+        for (String shard : shards.names()) {
+            List<TransferSaga> stuck = shards.onShard(shard, () -> transferSagaRepository
+                    .findByStateAndCreatedAtBeforeOrderByCreatedAt(TransferSaga.State.DEBITED, cutoff,
+                            PageRequest.of(0, RESUME_BATCH_SIZE)));
+            for (TransferSaga saga : stuck) {
+                try {
+                    finish(saga);
+                } catch (AccountNotFoundException e) {
+                    log.info("{} was reversed, its recipient no longer exists", saga);
+                } catch (RuntimeException e) {
+                    log.warn("Resuming {} failed", saga, e);
+                }
+            }
+        }
+    }
+
+    public static final class Outcome {
+
+        private final TransferSaga saga;
+        private final Money balance;
+        private boolean pending = true;
+
+        private Outcome(TransferSaga saga, Money balance) {
+            this.saga = saga;
+            this.balance = balance;
+        }
+
+        /**
+         * The sender's balance after the debit.
+         */
+        public Money getBalance() {
+            return balance;
+        }
+
+        /**
+         * The saga still to be finished by {@link #resume()}, or null once the transfer has completed.
+         */
+        public PendingTransferDTO getPending() {
+            return pending ? new PendingTransferDTO(saga.getSagaId()) : null;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Tracks how much each account has deposited today, against the limit {@link DepositLimits} gives it. Each account
+ * has one long in an {@link AccountLongArray}, holding the epoch day in the high bits and the minor units deposited
+ * that day in the low ones. A reservation is a compare-and-set on that word, so different accounts never contend,
+ * nothing is allocated, and a word from an earlier day counts as nothing deposited. The current day is cached with
+ * its bounds in the clock's zone, so finding it is a clock read and two comparisons, and it rolls over at the
+ * first call after midnight.
+ */
+@Component
+public class DailyDepositLedger {
+
+    static final int DAY_SHIFT = 44;
+    private static final long DEPOSITED_MASK = (1L << DAY_SHIFT) - 1;
+
+    private final AccountLongArray usage = new AccountLongArray();
+    private final DepositLimits limits;
+    private final Clock clock;
+    private volatile Day day;
+
+    @Autowired
+    public DailyDepositLedger(DepositLimits limits) {
+        this(limits, Clock.systemDefaultZone());
+    }
+
+    DailyDepositLedger(DepositLimits limits, Clock clock) {
+        this.limits = limits;
+        this.clock = clock;
+        this.day = Day.containing(clock.millis(), clock.getZone());
+    }
+
+    /**
+     * Reserves amount against the account's allowance for today.
+     *
+     * @return false, leaving the allowance untouched, if the deposit would exceed the account's daily limit
+     */
+    public boolean tryReserve(int accountId, Money amount) {
+        long today = today();
+        long limit = limits.limitOf(accountId);
+        while (true) {
+            long current = usage.get(accountId);
+            long deposited = depositedOn(current, today);
+            long reserved = deposited + amount.getMinor();
+            if (reserved > limit || reserved < deposited) {
+                return false;
+            }
+            if (usage.compareAndSet(accountId, current, today << DAY_SHIFT | reserved)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a reservation whose posting did not go through. A reservation from a previous day is dropped.
+     */
+    public void release(int accountId, Money amount) {
+        long today = today();
+        while (true) {
+            long current = usage.get(accountId);
+            if (current >>> DAY_SHIFT != today) {
+                return;
+            }
+            long deposited = Math.max((current & DEPOSITED_MASK) - amount.getMinor(), 0);
+            if (usage.compareAndSet(accountId, current, today << DAY_SHIFT | deposited)) {
+                return;
+            }
+        }
+    }
+
+    public Money depositedToday(int accountId) {
+        return Money.ofMinor(depositedOn(usage.get(accountId), today()));
+    }
+
+    private static long depositedOn(long usage, long epochDay) {
+        return usage >>> DAY_SHIFT == epochDay ? usage & DEPOSITED_MASK : 0;
+    }
+
+    private long today() {
+        long now = clock.millis();
+        Day current = day;
+        if (now < current.startMillis || now >= current.endMillis) {
+            current = Day.containing(now, clock.getZone());
+            day = current;
+        }
+        return current.epochDay;
+    }
+
+    private static final class Day {
+        private final long epochDay;
+        private final long startMillis;
+        private final long endMillis;
+
+        private Day(long epochDay, long startMillis, long endMillis) {
+            this.epochDay = epochDay;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        private static Day containing(long millis, ZoneId zone) {
+            LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+            return new Day(date.toEpochDay(), date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.ippon.bankapp.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "bankapp.deposit")
+public class DepositLimitProperties {
+
+    /** Daily limit of accounts without a deposit_limit row. */
+    private BigDecimal dailyLimit = new BigDecimal(5000);
+
+    /** Daily limit per tier name, for deposit_limit rows that name a tier. */
+    private Map<String, BigDecimal> tiers = new LinkedHashMap<>();
+
+    public BigDecimal getDailyLimit() {
+        return dailyLimit;
+    }
+
+    public void setDailyLimit(BigDecimal dailyLimit) {
+        this.dailyLimit = dailyLimit;
+    }
+
+    public Map<String, BigDecimal> getTiers() {
+        return tiers;
+    }
+
+    public void setTiers(Map<String, BigDecimal> tiers) {
+        this.tiers = tiers;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.DepositLimit;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.DepositLimitRepository;
+import com.ippon.bankapp.repository.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Each account's daily deposit limit in minor units: its own amount or tier from the deposit_limit table, or
+ * {@code bankapp.deposit.daily-limit}. The table is read once at startup, before requests are served, and again
+ * every {@code bankapp.deposit.refresh-interval-ms}, so a change made on any node or straight in the database is
+ * picked up within that interval. Lookups read a primitive array and never reach the database.
+ */
+@Component
+public class DepositLimits implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(DepositLimits.class);
+
+    /**
+     * Larger limits are lowered to this, about 175 billion, so that a day's deposits fit in
+     * {@link DailyDepositLedger}'s packed usage word. It is no limit in practice.
+     */
+    static final long MAX_LIMIT = (1L << DailyDepositLedger.DAY_SHIFT) - 1;
+
+    private final DepositLimitRepository depositLimitRepository;
+    private final Shards shards;
+    private final long defaultLimit;
+    private final Map<String, Long> tiers = new HashMap<>();
+    // limit + 1 per account with a deposit_limit row, so that 0 still means none and a limit of 0 can be set
+    private volatile AccountLongArray limits = new AccountLongArray();
+
+    public DepositLimits(DepositLimitProperties properties, DepositLimitRepository depositLimitRepository, Shards shards) {
+        this.depositLimitRepository = depositLimitRepository;
+        this.shards = shards;
+        this.defaultLimit = minor(properties.getDailyLimit());
+        properties.getTiers().forEach((tier, limit) -> tiers.put(tier, minor(limit)));
+    }
+
+    public long limitOf(int accountId) {
+        long limit = limits.get(accountId);
+        return limit == 0 ? defaultLimit : limit - 1;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        refresh();
+    }
+
+    /**
+     * Rereads the deposit_limit table on every shard and swaps the result in whole, so rows deleted since the
+     * last read go back to the default.
+     */
+    @Scheduled(initialDelayString = "${bankapp.deposit.refresh-interval-ms:60000}",
+            fixedDelayString = "${bankapp.deposit.refresh-interval-ms:60000}")
+    public void refresh() {
+        AccountLongArray loaded = new AccountLongArray();
+        int[] rows = {0};
+        shards.forEach(() -> {
+            for (DepositLimit row : depositLimitRepository.findAll()) {
+                loaded.set(row.getAccountId(), limitOf(row) + 1);
+                rows[0]++;
+            }
+        });
+        limits = loaded;
+        log.debug("Loaded {} deposit limits", rows[0]);
+    }
+
+    private long limitOf(DepositLimit row) {
+        if (row.getDailyLimit() != null) {
+            return Math.min(Math.max(row.getDailyLimit().getMinor(), 0), MAX_LIMIT);
+        }
+        Long tier = row.getTier() == null ? null : tiers.get(row.getTier());
+        if (tier == null) {
+            log.warn("Account {} has no daily limit and unknown tier '{}', using the default", row.getAccountId(), row.getTier());
+            return defaultLimit;
+        }
+        return tier;
+    }
+
+    private static long minor(BigDecimal limit) {
+        return Math.min(Math.max(Money.of(limit).getMinor(), 0), MAX_LIMIT);
+    }
+}
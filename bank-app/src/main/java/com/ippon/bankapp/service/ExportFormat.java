@@ -0,0 +1,28 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.ExportFormatNotValidException;
+
+public enum ExportFormat {
+
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static ExportFormat of(String name) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new ExportFormatNotValidException();
+    }
+}
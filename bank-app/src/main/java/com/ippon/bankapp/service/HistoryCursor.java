@@ -0,0 +1,56 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.dto.TransactionExportDTO;
+import com.ippon.bankapp.service.exception.HistoryCursorNotValidException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in an account's history: the (timestamp, transactionId) of the last row returned.
+ */
+public final class HistoryCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime timestamp;
+    private final int transactionId;
+
+    HistoryCursor(LocalDateTime timestamp, int transactionId) {
+        this.timestamp = timestamp;
+        this.transactionId = transactionId;
+    }
+
+    static HistoryCursor of(TransactionExportDTO row) {
+        return new HistoryCursor(row.getTimestamp(), row.getTransactionId());
+    }
+
+    static HistoryCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.lastIndexOf(SEPARATOR);
+            if (split < 0) {
+                throw new HistoryCursorNotValidException();
+            }
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, split)),
+                    Integer.parseInt(raw.substring(split + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new HistoryCursorNotValidException();
+        }
+    }
+
+    String encode() {
+        String raw = timestamp + SEPARATOR + transactionId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    int getTransactionId() {
+        return transactionId;
+    }
+}
@@ -0,0 +1,171 @@
+package com.ippon.bankapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ippon.bankapp.domain.IdempotencyKey;
+import com.ippon.bankapp.repository.IdempotencyKeyRepository;
+import com.ippon.bankapp.service.exception.IdempotencyKeyInProgressException;
+import com.ippon.bankapp.service.exception.IdempotencyKeyNotValidException;
+import com.ippon.bankapp.service.exception.IdempotencyKeyReusedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs a posting at most once per client-supplied key and replays its response to retries. The key is claimed
+ * by inserting its row before the posting runs, so a retry arriving on another node while the first attempt is
+ * still running is refused rather than posted twice. Completed keys are also held in a bounded in-memory cache,
+ * so a retry on the node that served the original normally returns without touching the database. There is no
+ * front for keys never seen before: whether another node has claimed a key can only be learnt from the table,
+ * and the insert that claims it is that one round trip.
+ * <p>
+ * A key still without a response {@code bankapp.idempotency.stale-after-ms} after its attempt started belongs to
+ * an attempt whose node died, and the next retry takes it over and runs the posting. If that node died after the
+ * posting committed but before its response was recorded, the posting runs twice; taking the key over trades that
+ * narrow window for not refusing every retry until the key expires.
+ */
+@Component
+public class IdempotentRequests {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotentRequests.class);
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    private TransactionTemplate transactionTemplate;
+    private ObjectMapper objectMapper;
+    private Cache<String, IdempotencyKey> completed;
+    private long ttlHours;
+    private long staleAfterMillis;
+
+    public IdempotentRequests(IdempotencyKeyRepository idempotencyKeyRepository,
+                              PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                              @Value("${bankapp.idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${bankapp.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${bankapp.idempotency.stale-after-ms:300000}") long staleAfterMillis) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttlHours, TimeUnit.HOURS)
+                .build();
+        this.ttlHours = ttlHours;
+        this.staleAfterMillis = staleAfterMillis;
+    }
+
+    /**
+     * Runs posting, or returns the response it gave the first time key was used. A key without a response yet
+     * belongs to a request that is still running; one used for a different request is refused. A posting that
+     * throws gives its key back, since it left nothing behind to replay.
+     *
+     * @param key     the client's Idempotency-Key, or null to simply run the posting
+     * @param request what is being asked, e.g. "deposit 12 5.00", compared against the key's first use
+     */
+    public <T> T execute(String key, String request, Class<T> responseType, Supplier<T> posting) {
+        if (key == null) {
+            return posting.get();
+        }
+        if (key.trim().isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyNotValidException();
+        }
+        IdempotencyKey previous = completed.getIfPresent(key);
+        if (previous != null) {
+            return replay(previous, request, responseType);
+        }
+
+        IdempotencyKey existing = claim(key, request);
+        if (existing != null) {
+            if (existing.isCompleted()) {
+                completed.put(key, existing);
+                return replay(existing, request, responseType);
+            }
+            if (!existing.getRequest().equals(request)) {
+                throw new IdempotencyKeyReusedException();
+            }
+            if (!takeOver(key)) {
+                throw new IdempotencyKeyInProgressException();
+            }
+            log.warn("Taking over idempotency key {}, whose attempt started at {} and never finished", key,
+                    existing.getStartedAt());
+        }
+
+        T response;
+        try {
+            response = posting.get();
+        } catch (RuntimeException e) {
+            transactionTemplate.execute(status -> idempotencyKeyRepository.release(key));
+            throw e;
+        }
+        String json = write(response);
+        transactionTemplate.execute(status -> idempotencyKeyRepository.complete(key, json));
+        completed.put(key, new IdempotencyKey(key, request, json, LocalDateTime.now()));
+        return response;
+    }
+
+    @Scheduled(initialDelayString = "${bankapp.idempotency.purge-interval-ms:60000}",
+            fixedDelayString = "${bankapp.idempotency.purge-interval-ms:60000}")
+    public void purge() {
+        Integer purged = transactionTemplate.execute(status ->
+                idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(ttlHours)));
+        if (purged != null && purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    /**
+     * @return null once the key is claimed for this attempt, or the row of the attempt that claimed it first
+     */
+    private IdempotencyKey claim(String key, String request) {
+        try {
+            transactionTemplate.execute(status -> {
+                idempotencyKeyRepository.claim(key, request, LocalDateTime.now());
+                return null;
+            });
+            return null;
+        } catch (DataIntegrityViolationException e) {
+            return transactionTemplate.execute(status -> idempotencyKeyRepository
+                    .findById(key)
+                    .orElseThrow(IdempotencyKeyInProgressException::new));
+        }
+    }
+
+    private boolean takeOver(String key) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer taken = transactionTemplate.execute(status ->
+                idempotencyKeyRepository.takeOver(key, now.minusNanos(staleAfterMillis * 1_000_000), now));
+        return taken != null && taken == 1;
+    }
+
+    private <T> T replay(IdempotencyKey previous, String request, Class<T> responseType) {
+        if (!previous.getRequest().equals(request)) {
+            throw new IdempotencyKeyReusedException();
+        }
+        try {
+            return objectMapper.readValue(previous.getResponse(), responseType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.ippon.bankapp.service;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing int to long hash map with linear probing, so balances are held without boxing. Not
+ * thread-safe; {@link MappedLedgerStore} guards it.
+ */
+final class IntLongMap {
+
+    private static final int EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    interface Visitor {
+        void visit(int key, long value);
+    }
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+    private boolean hasEmptyKey;
+    private long emptyKeyValue;
+
+    IntLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new long[capacity];
+    }
+
+    boolean containsKey(int key) {
+        return key == EMPTY ? hasEmptyKey : keys[slot(keys, key)] == key;
+    }
+
+    /**
+     * @return the value, or missing if the key is absent
+     */
+    long get(int key, long missing) {
+        if (key == EMPTY) {
+            return hasEmptyKey ? emptyKeyValue : missing;
+        }
+        int slot = slot(keys, key);
+        return keys[slot] == key ? values[slot] : missing;
+    }
+
+    void put(int key, long value) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                size++;
+            }
+            emptyKeyValue = value;
+            return;
+        }
+        int slot = slot(keys, key);
+        if (keys[slot] != key) {
+            keys[slot] = key;
+            if (++size > keys.length * LOAD_FACTOR) {
+                values[slot] = value;
+                grow();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Visitor visitor) {
+        if (hasEmptyKey) {
+            visitor.visit(EMPTY, emptyKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    IntLongMap copy() {
+        IntLongMap copy = new IntLongMap(0);
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.values = Arrays.copyOf(values, values.length);
+        copy.size = size;
+        copy.hasEmptyKey = hasEmptyKey;
+        copy.emptyKeyValue = emptyKeyValue;
+        return copy;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new int[oldKeys.length << 1];
+        values = new long[oldValues.length << 1];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * The key's slot, or the empty slot where it would go.
+     */
+    private static int slot(int[] keys, int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
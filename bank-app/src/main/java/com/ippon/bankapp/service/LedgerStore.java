@@ -0,0 +1,49 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import com.ippon.bankapp.service.exception.DepositNotValidException;
+
+/**
+ * Holds balances, in minor units (cents), outside the database and records every posting durably. When a
+ * LedgerStore bean is present, {@link AccountService} and {@link BatchService} post through it instead of
+ * updating Account rows. The posting rules are the same as on the JPA path.
+ */
+public interface LedgerStore {
+
+    boolean contains(int accountId);
+
+    /**
+     * Starts holding an account at the given balance. Does nothing if the account is already held.
+     */
+    void open(int accountId, long balanceMinor);
+
+    /**
+     * @throws AccountNotFoundException if the account is not held
+     */
+    long balance(int accountId);
+
+    /**
+     * @return the balance after the posting
+     * @throws DepositNotValidException if the amount is not positive
+     */
+    long deposit(int accountId, long amountMinor);
+
+    /**
+     * @return the balance after the posting
+     * @throws DepositNotValidException if the amount is not positive or the balance is not positive
+     */
+    long withdraw(int accountId, long amountMinor);
+
+    /**
+     * Moves amountMinor as one journalled unit.
+     *
+     * @throws DepositNotValidException if the accounts are the same, the amount is not positive, or either
+     *                                  balance is not positive
+     */
+    void transfer(int fromId, int toId, long amountMinor);
+
+    /**
+     * Sequence number of the last posting recorded.
+     */
+    long lastSequence();
+}
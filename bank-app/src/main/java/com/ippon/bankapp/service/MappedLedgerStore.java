@@ -0,0 +1,354 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import com.ippon.bankapp.service.exception.DepositNotValidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Event-sourced {@link LedgerStore}: balances live in an {@link IntLongMap}, and every posting is appended as
+ * a fixed-size record to a memory-mapped journal before the call returns. A posting is therefore a map update
+ * plus a few stores into mapped memory. The journal is never rewritten, so it doubles as the audit trail.
+ * <p>
+ * The journal survives a process crash as soon as a record is written, because the pages belong to the OS.
+ * To survive power loss as well, set bankapp.ledger.force-writes, which forces each record to disk. Snapshots
+ * of every balance are written periodically and on shutdown, each forced to disk before it replaces the last and
+ * ending with a checksum. A restart loads the latest snapshot and replays only the journal records after it;
+ * record n sits at a fixed offset, so no scan is needed to find them. A snapshot that is short or fails its
+ * checksum is ignored and the whole journal is replayed instead.
+ * <p>
+ * A transfer is a TRANSFER_OUT record immediately followed by its TRANSFER_IN. The pair is forced and counted
+ * together, and recovery stops before a TRANSFER_OUT whose TRANSFER_IN did not make it to the journal, so a crash
+ * between the two legs loses the whole transfer rather than leaving the debit without its credit.
+ */
+@Component
+@ConditionalOnProperty(name = "bankapp.ledger.store", havingValue = "memory")
+public class MappedLedgerStore implements LedgerStore, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedLedgerStore.class);
+
+    static final String JOURNAL_FILE = "ledger.journal";
+    static final String SNAPSHOT_FILE = "ledger.snapshot";
+
+    // record layout: sequence (written last, so a zero marks the end), timestamp, account, type, amount, balance
+    static final int RECORD_SIZE = 40;
+    private static final int SEQUENCE = 0;
+    private static final int TIMESTAMP = 8;
+    private static final int ACCOUNT = 16;
+    private static final int TYPE = 20;
+    private static final int AMOUNT = 24;
+    private static final int BALANCE = 32;
+
+    static final int OPEN = 1;
+    static final int DEPOSIT = 2;
+    static final int WITHDRAW = 3;
+    static final int TRANSFER_OUT = 4;
+    static final int TRANSFER_IN = 5;
+
+    // snapshot layout: sequence, account count, (account, balance) per account, CRC32 of everything before it
+    private static final int SNAPSHOT_HEADER_SIZE = 12;
+    private static final int SNAPSHOT_ENTRY_SIZE = 12;
+    private static final int SNAPSHOT_CHECKSUM_SIZE = 8;
+
+    private static final long MISSING = Long.MIN_VALUE;
+
+    private final Path directory;
+    private final long chunkBytes;
+    private final boolean forceWrites;
+    private final FileChannel journal;
+    private final Object snapshotLock = new Object();
+
+    private IntLongMap balances;
+    private MappedByteBuffer chunk;
+    private long chunkIndex = -1;
+    private long lastSequence;
+
+    @Autowired
+    public MappedLedgerStore(@Value("${bankapp.ledger.directory:ledger}") String directory,
+                             @Value("${bankapp.ledger.journal-chunk-bytes:67108864}") long chunkBytes,
+                             @Value("${bankapp.ledger.force-writes:false}") boolean forceWrites) throws IOException {
+        this(Paths.get(directory), chunkBytes, forceWrites);
+    }
+
+    MappedLedgerStore(Path directory, long chunkBytes, boolean forceWrites) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.chunkBytes = Math.max(1, chunkBytes / RECORD_SIZE) * RECORD_SIZE;
+        this.forceWrites = forceWrites;
+        this.journal = FileChannel.open(directory.resolve(JOURNAL_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+    }
+
+    @Override
+    public synchronized boolean contains(int accountId) {
+        return balances.containsKey(accountId);
+    }
+
+    @Override
+    public synchronized void open(int accountId, long balanceMinor) {
+        if (!balances.containsKey(accountId)) {
+            balances.put(accountId, balanceMinor);
+            append(accountId, OPEN, balanceMinor, balanceMinor);
+        }
+    }
+
+    @Override
+    public synchronized long balance(int accountId) {
+        return held(accountId);
+    }
+
+    @Override
+    public synchronized long deposit(int accountId, long amountMinor) {
+        long balance = held(accountId);
+        if (amountMinor <= 0) {
+            throw new DepositNotValidException();
+        }
+        long after = Math.addExact(balance, amountMinor);
+        balances.put(accountId, after);
+        append(accountId, DEPOSIT, amountMinor, after);
+        return after;
+    }
+
+    @Override
+    public synchronized long withdraw(int accountId, long amountMinor) {
+        long balance = held(accountId);
+        if (amountMinor <= 0 || balance <= 0) {
+            throw new DepositNotValidException();
+        }
+        long after = Math.subtractExact(balance, amountMinor);
+        balances.put(accountId, after);
+        append(accountId, WITHDRAW, amountMinor, after);
+        return after;
+    }
+
+    @Override
+    public synchronized void transfer(int fromId, int toId, long amountMinor) {
+        long from = held(fromId);
+        long to = held(toId);
+        if (fromId == toId || amountMinor <= 0 || from <= 0 || to <= 0) {
+            throw new DepositNotValidException();
+        }
+        long fromAfter = Math.subtractExact(from, amountMinor);
+        long toAfter = Math.addExact(to, amountMinor);
+        balances.put(fromId, fromAfter);
+        balances.put(toId, toAfter);
+        write(lastSequence + 1, fromId, TRANSFER_OUT, amountMinor, fromAfter);
+        write(lastSequence + 2, toId, TRANSFER_IN, amountMinor, toAfter);
+        if (forceWrites) {
+            chunk.force();
+        }
+        lastSequence += 2;
+    }
+
+    @Override
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Writes every balance and the sequence it is current to, replacing the previous snapshot atomically. The
+     * balances are copied under the store's lock and written outside it, so postings only wait for the copy.
+     */
+    @Scheduled(initialDelayString = "${bankapp.ledger.snapshot-interval-ms:60000}",
+            fixedDelayString = "${bankapp.ledger.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        synchronized (snapshotLock) {
+            IntLongMap copy;
+            long sequence;
+            synchronized (this) {
+                copy = balances.copy();
+                sequence = lastSequence;
+                // the snapshot must not claim records that could still be lost
+                chunk.force();
+            }
+            Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            CRC32 checksum = new CRC32();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                         new BufferedOutputStream(Channels.newOutputStream(channel)), checksum))) {
+                out.writeLong(sequence);
+                out.writeInt(copy.size());
+                IOException[] failure = new IOException[1];
+                copy.forEach((accountId, balance) -> {
+                    try {
+                        out.writeInt(accountId);
+                        out.writeLong(balance);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                out.writeLong(checksum.getValue());
+                out.flush();
+                // otherwise the rename can reach the disk before the data, leaving a short snapshot behind
+                channel.force(true);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            try {
+                Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            log.debug("Ledger snapshot of {} accounts at sequence {}", copy.size(), sequence);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        snapshot();
+        journal.close();
+    }
+
+    private long held(int accountId) {
+        long balance = balances.get(accountId, MISSING);
+        if (balance == MISSING) {
+            throw new AccountNotFoundException();
+        }
+        return balance;
+    }
+
+    private void append(int accountId, int type, long amount, long balance) {
+        write(lastSequence + 1, accountId, type, amount, balance);
+        if (forceWrites) {
+            chunk.force();
+        }
+        lastSequence++;
+    }
+
+    private void write(long sequence, int accountId, int type, long amount, long balance) {
+        int position = position(sequence);
+        chunk.putLong(position + TIMESTAMP, System.currentTimeMillis());
+        chunk.putInt(position + ACCOUNT, accountId);
+        chunk.putInt(position + TYPE, type);
+        chunk.putLong(position + AMOUNT, amount);
+        chunk.putLong(position + BALANCE, balance);
+        chunk.putLong(position + SEQUENCE, sequence);
+    }
+
+    /**
+     * Offset of the record within its chunk, mapping the chunk first if the record lies in a new one.
+     */
+    private int position(long sequence) {
+        long offset = (sequence - 1) * RECORD_SIZE;
+        long index = offset / chunkBytes;
+        if (index != chunkIndex) {
+            if (chunk != null) {
+                chunk.force();
+            }
+            try {
+                chunk = journal.map(FileChannel.MapMode.READ_WRITE, index * chunkBytes, chunkBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            chunkIndex = index;
+        }
+        return (int) (offset - index * chunkBytes);
+    }
+
+    private void recover() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot) || !readSnapshot(snapshot)) {
+            balances = new IntLongMap(1024);
+            lastSequence = 0;
+        }
+        long fromSnapshot = lastSequence;
+
+        while (true) {
+            long sequence = lastSequence + 1;
+            if ((sequence - 1) * RECORD_SIZE >= journal.size()) {
+                break;
+            }
+            int position = position(sequence);
+            if (chunk.getLong(position + SEQUENCE) != sequence || chunk.getInt(position + TYPE) == TRANSFER_IN) {
+                break;
+            }
+            int accountId = chunk.getInt(position + ACCOUNT);
+            long balance = chunk.getLong(position + BALANCE);
+            if (chunk.getInt(position + TYPE) == TRANSFER_OUT) {
+                if (!isRecord(sequence + 1, TRANSFER_IN)) {
+                    log.warn("Ledger journal ends with the debit of a transfer at sequence {}; discarding it", sequence);
+                    break;
+                }
+                int credit = position(sequence + 1);
+                balances.put(chunk.getInt(credit + ACCOUNT), chunk.getLong(credit + BALANCE));
+                sequence++;
+            }
+            balances.put(accountId, balance);
+            lastSequence = sequence;
+        }
+        // the next posting overwrites a discarded debit in place
+        position(lastSequence + 1);
+        log.info("Ledger recovered {} accounts: snapshot at sequence {}, {} journal records replayed",
+                balances.size(), fromSnapshot, lastSequence - fromSnapshot);
+    }
+
+    /**
+     * @return false, leaving the store untouched, if the snapshot is short or fails its checksum
+     */
+    private boolean readSnapshot(Path snapshot) throws IOException {
+        long fileSize = Files.size(snapshot);
+        if (fileSize < SNAPSHOT_HEADER_SIZE + SNAPSHOT_CHECKSUM_SIZE) {
+            log.warn("Ledger snapshot is truncated; replaying the whole journal");
+            return false;
+        }
+        CRC32 checksum = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshot)), checksum))) {
+            long sequence = in.readLong();
+            int size = in.readInt();
+            if (size < 0 || fileSize != SNAPSHOT_HEADER_SIZE + (long) size * SNAPSHOT_ENTRY_SIZE + SNAPSHOT_CHECKSUM_SIZE) {
+                log.warn("Ledger snapshot is truncated; replaying the whole journal");
+                return false;
+            }
+            IntLongMap loaded = new IntLongMap(size);
+            for (int i = 0; i < size; i++) {
+                loaded.put(in.readInt(), in.readLong());
+            }
+            long expected = checksum.getValue();
+            if (in.readLong() != expected) {
+                log.warn("Ledger snapshot fails its checksum; replaying the whole journal");
+                return false;
+            }
+            balances = loaded;
+            lastSequence = sequence;
+            return true;
+        }
+    }
+
+    private boolean isRecord(long sequence, int type) throws IOException {
+        if ((sequence - 1) * RECORD_SIZE >= journal.size()) {
+            return false;
+        }
+        int position = position(sequence);
+        return chunk.getLong(position + SEQUENCE) == sequence && chunk.getInt(position + TYPE) == type;
+    }
+}
@@ -0,0 +1,42 @@
+package com.ippon.bankapp.service;
+
+public class Notification {
+
+    private final String source;
+    private final String destination;
+    private final String subject;
+    private final String message;
+
+    public Notification(String source, String destination, String subject, String message) {
+        this.source = source;
+        this.destination = destination;
+        this.subject = subject;
+        this.message = message;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "Notification{" +
+                "source='" + source + '\'' +
+                ", destination='" + destination + '\'' +
+                ", subject='" + subject + '\'' +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
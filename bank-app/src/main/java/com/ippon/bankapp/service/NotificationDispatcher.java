@@ -0,0 +1,213 @@
+package com.ippon.bankapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers notifications off the request thread. Every channel (one per {@link NotificationService}) has its own
+ * bounded queue and worker pool; workers drain the queue in batches and retry failed batches with a linear
+ * backoff before giving up on them.
+ */
+@Component
+public class NotificationDispatcher implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+    private static final long POLL_MILLIS = 100;
+    private static final long SHUTDOWN_SECONDS = 10;
+
+    private final NotificationProperties properties;
+    private final ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean running = true;
+
+    public NotificationDispatcher(NotificationProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Queues a notification for the given channel.
+     *
+     * @return false if the notification was dropped because the channel queue is full
+     */
+    public boolean dispatch(NotificationService service, Notification notification) {
+        if (!running) {
+            return deliverNow(service, notification);
+        }
+        Channel channel = channels.computeIfAbsent(service.getName(), name -> new Channel(service));
+        switch (properties.getOverflowPolicy()) {
+            case DROP:
+                return offerOrDrop(channel, notification);
+            case CALLER_RUNS:
+                return channel.queue.offer(notification) || deliverNow(service, notification);
+            case BLOCK:
+            default:
+                try {
+                    if (channel.queue.offer(notification, properties.getOfferTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                dropped.incrementAndGet();
+                log.warn("Notification queue for {} is full, dropped {}", service.getName(), notification);
+                return false;
+        }
+    }
+
+    private boolean offerOrDrop(Channel channel, Notification notification) {
+        if (channel.queue.offer(notification)) {
+            return true;
+        }
+        dropped.incrementAndGet();
+        log.warn("Notification queue for {} is full, dropped {}", channel.service.getName(), notification);
+        return false;
+    }
+
+    private boolean deliverNow(NotificationService service, Notification notification) {
+        List<Notification> single = new ArrayList<>(1);
+        single.add(notification);
+        return deliver(service, single);
+    }
+
+    private boolean deliver(NotificationService service, List<Notification> batch) {
+        for (int attempt = 1; attempt <= properties.getMaxAttempts(); attempt++) {
+            try {
+                service.sendMessages(batch);
+                delivered.addAndGet(batch.size());
+                return true;
+            } catch (RuntimeException e) {
+                log.warn("Delivery of {} notifications via {} failed (attempt {}/{})",
+                        batch.size(), service.getName(), attempt, properties.getMaxAttempts(), e);
+                if (attempt < properties.getMaxAttempts() && !sleep(properties.getRetryBackoffMillis() * attempt)) {
+                    break;
+                }
+            }
+        }
+        failed.addAndGet(batch.size());
+        return false;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public int getQueued() {
+        int queued = 0;
+        for (Channel channel : channels.values()) {
+            queued += channel.queue.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Stops accepting work into the queues and lets the workers drain what is already queued.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        for (Channel channel : channels.values()) {
+            channel.workers.shutdown();
+        }
+        for (Channel channel : channels.values()) {
+            if (!channel.workers.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("{} notifications for {} were not delivered before shutdown",
+                        channel.queue.size(), channel.service.getName());
+                channel.workers.shutdownNow();
+            }
+        }
+    }
+
+    private final class Channel {
+        private final NotificationService service;
+        private final BlockingQueue<Notification> queue;
+        private final ExecutorService workers;
+
+        private Channel(NotificationService service) {
+            this.service = service;
+            this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+            this.workers = Executors.newFixedThreadPool(properties.getWorkersPerChannel(),
+                    threadFactory("notify-" + service.getName() + "-", properties.isVirtualThreads()));
+            for (int i = 0; i < properties.getWorkersPerChannel(); i++) {
+                workers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            List<Notification> batch = new ArrayList<>(properties.getBatchSize());
+            while (running || !queue.isEmpty()) {
+                try {
+                    Notification first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, properties.getBatchSize() - 1);
+                    deliver(service, batch);
+                    batch.clear();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Virtual threads when the runtime has them (Java 21+), otherwise daemon platform threads.
+     */
+    static ThreadFactory threadFactory(String prefix, boolean preferVirtual) {
+        if (preferVirtual) {
+            try {
+                Method ofVirtual = Thread.class.getMethod("ofVirtual");
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                Object builder = builderType.getMethod("name", String.class, long.class)
+                        .invoke(ofVirtual.invoke(null), prefix, 1L);
+                return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                log.debug("Virtual threads not available, using platform threads for {}", prefix);
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
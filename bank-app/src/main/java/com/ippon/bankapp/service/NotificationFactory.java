@@ -15,6 +15,9 @@ public class NotificationFactory {
     @Autowired
     private Map<String, NotificationService> notificationServices;
 
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
     public NotificationFactory(EmailService defaultNotificationService) {
         this.defaultNotificationService = defaultNotificationService;
     }
@@ -28,4 +31,13 @@ public class NotificationFactory {
         return defaultNotificationService;
     }
 
+    /**
+     * Queues a notification on the preferred channel, falling back to the default one. Returns without waiting
+     * for delivery.
+     */
+    public void dispatch(String preference, Notification notification) {
+        NotificationService service = getPreferredService(preference).orElseGet(this::getDefaultNotification);
+        notificationDispatcher.dispatch(service, notification);
+    }
+
 }
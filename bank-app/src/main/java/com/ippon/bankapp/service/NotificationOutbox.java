@@ -0,0 +1,59 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.OutboxEvent;
+import com.ippon.bankapp.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Entry point for account notifications. With the outbox enabled the notification is written to outbox_event in
+ * the caller's transaction and delivered later by {@link OutboxRelay}; otherwise it goes straight to the
+ * in-memory {@link NotificationDispatcher} once the caller's transaction commits.
+ */
+@Component
+public class NotificationOutbox {
+
+    static final String SOURCE = "bank";
+
+    private OutboxEventRepository outboxEventRepository;
+    private NotificationFactory notificationFactory;
+    private boolean enabled;
+
+    public NotificationOutbox(OutboxEventRepository outboxEventRepository, NotificationFactory notificationFactory,
+                              @Value("${bankapp.outbox.enabled:true}") boolean enabled) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.notificationFactory = notificationFactory;
+        this.enabled = enabled;
+    }
+
+    public void publish(Account account, String subject, String message) {
+        if (enabled) {
+            outboxEventRepository.save(new OutboxEvent(account.getNotificationPreference(), SOURCE,
+                    account.getLastName(), subject, message));
+            return;
+        }
+        String preference = account.getNotificationPreference();
+        Notification notification = new Notification(SOURCE, account.getLastName(), subject, message);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    notificationFactory.dispatch(preference, notification);
+                }
+            });
+        } else {
+            notificationFactory.dispatch(preference, notification);
+        }
+    }
+
+    /**
+     * Hands a notification straight to the in-memory dispatcher. For postings made through a
+     * {@link LedgerStore}: they have no database transaction to join, and their journal is the durable record.
+     */
+    public void dispatch(String preference, String destination, String subject, String message) {
+        notificationFactory.dispatch(preference, new Notification(SOURCE, destination, subject, message));
+    }
+}
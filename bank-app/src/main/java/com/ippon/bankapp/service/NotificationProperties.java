@@ -0,0 +1,98 @@
+package com.ippon.bankapp.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "bankapp.notifications")
+public class NotificationProperties {
+
+    public enum OverflowPolicy {
+        /** Wait up to offerTimeoutMillis for room, then drop. */
+        BLOCK,
+        /** Drop the new notification immediately. */
+        DROP,
+        /** Deliver on the calling thread. */
+        CALLER_RUNS
+    }
+
+    private int queueCapacity = 10000;
+
+    private int workersPerChannel = 2;
+
+    private int batchSize = 50;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private long offerTimeoutMillis = 50;
+
+    private int maxAttempts = 3;
+
+    private long retryBackoffMillis = 200;
+
+    private boolean virtualThreads = true;
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getWorkersPerChannel() {
+        return workersPerChannel;
+    }
+
+    public void setWorkersPerChannel(int workersPerChannel) {
+        this.workersPerChannel = workersPerChannel;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public long getOfferTimeoutMillis() {
+        return offerTimeoutMillis;
+    }
+
+    public void setOfferTimeoutMillis(long offerTimeoutMillis) {
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getRetryBackoffMillis() {
+        return retryBackoffMillis;
+    }
+
+    public void setRetryBackoffMillis(long retryBackoffMillis) {
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+}
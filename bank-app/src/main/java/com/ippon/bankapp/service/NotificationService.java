@@ -1,9 +1,20 @@
 package com.ippon.bankapp.service;
 
 
+import java.util.List;
+
 public interface NotificationService {
 
     void sendMessage(String source, String destination, String subject, String message);
 
     String getName();
+
+    /**
+     * Delivers a batch drained from the channel queue. Gateways with a bulk API should override this.
+     */
+    default void sendMessages(List<Notification> notifications) {
+        for (Notification notification : notifications) {
+            sendMessage(notification.getSource(), notification.getDestination(), notification.getSubject(), notification.getMessage());
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.ServerBusyException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking service calls off the servlet container's request threads, so a request waiting on the
+ * database holds one of these threads instead of one of Tomcat's. Uses virtual threads when the runtime has
+ * them; max-concurrency bounds how many calls run at once either way, and the rest wait in a queue of
+ * queue-capacity. A call that finds the queue full is refused with {@link ServerBusyException}, as admission
+ * control refuses a request it has no permit for.
+ */
+@Component
+@ConditionalOnProperty(name = "bankapp.web.execution-mode", havingValue = "async")
+public class OffloadExecutor implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+
+    public OffloadExecutor(@Value("${bankapp.web.async.max-concurrency:1024}") int maxConcurrency,
+                           @Value("${bankapp.web.async.queue-capacity:1024}") int queueCapacity,
+                           @Value("${bankapp.web.async.virtual-threads:true}") boolean virtualThreads) {
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                NotificationDispatcher.threadFactory("request-", virtualThreads));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @throws ServerBusyException if max-concurrency calls are running and the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> call) {
+        try {
+            return CompletableFuture.supplyAsync(call, executor);
+        } catch (RejectedExecutionException e) {
+            throw new ServerBusyException();
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,80 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.ConcurrentUpdateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs an operation whose transaction lost an optimistic version check on Account. Each attempt must start
+ * its own transaction and re-read the account. Between attempts it sleeps for a random time up to
+ * attempt * backoff, so writers that collided do not collide again in lockstep.
+ */
+@Component
+public class OptimisticRetry {
+
+    private static final Logger log = LoggerFactory.getLogger(OptimisticRetry.class);
+
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public OptimisticRetry(@Value("${bankapp.optimistic-retry.max-attempts:5}") int maxAttempts,
+                           @Value("${bankapp.optimistic-retry.backoff-millis:10}") long backoffMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(0, backoffMillis);
+    }
+
+    /**
+     * @throws ConcurrentUpdateException if every attempt lost its version check
+     */
+    public <T> T execute(Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.incrementAndGet();
+                if (attempt >= maxAttempts) {
+                    exhausted.incrementAndGet();
+                    log.warn("Giving up after {} conflicting attempts", attempt, e);
+                    throw new ConcurrentUpdateException();
+                }
+                pause(attempt);
+            }
+        }
+    }
+
+    private void pause(int attempt) {
+        long jitter = ThreadLocalRandom.current().nextLong(backoffMillis * attempt + 1);
+        if (jitter == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(jitter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentUpdateException();
+        }
+    }
+
+    /**
+     * Version checks lost, including those that were retried successfully.
+     */
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    /**
+     * Operations that gave up with ConcurrentUpdateException.
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+}
@@ -0,0 +1,106 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.OutboxEvent;
+import com.ippon.bankapp.repository.OutboxEventRepository;
+import com.ippon.bankapp.repository.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drains outbox_event in batches into the notification services. An event is deleted once its channel accepted
+ * it; a failed event stays for the next poll until it has used up its attempts. With sharding, events are written
+ * on the shard of the posting that raised them, and each poll drains every shard.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private OutboxEventRepository outboxEventRepository;
+    private NotificationFactory notificationFactory;
+    private TransactionTemplate transactionTemplate;
+    private Shards shards;
+    private int batchSize;
+    private int maxAttempts;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, NotificationFactory notificationFactory,
+                       PlatformTransactionManager transactionManager, Shards shards,
+                       @Value("${bankapp.outbox.batch-size:100}") int batchSize,
+                       @Value("${bankapp.outbox.max-attempts:10}") int maxAttempts) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.notificationFactory = notificationFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Scheduled(initialDelayString = "${bankapp.outbox.poll-interval-ms:1000}",
+            fixedDelayString = "${bankapp.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        shards.forEach(() -> {
+            // keep draining while batches come back full so a backlog clears without waiting for the next tick
+            int removed;
+            do {
+                removed = relayBatch();
+            } while (removed == batchSize);
+        });
+    }
+
+    /**
+     * @return the number of events removed from the outbox, delivered or given up on
+     */
+    public int relayBatch() {
+        Integer removed = transactionTemplate.execute(status -> {
+            List<OutboxEvent> events = outboxEventRepository.findOldestForUpdate(PageRequest.of(0, batchSize));
+            Map<String, List<OutboxEvent>> byChannel = new LinkedHashMap<>();
+            for (OutboxEvent event : events) {
+                byChannel.computeIfAbsent(String.valueOf(event.getChannel()), channel -> new ArrayList<>()).add(event);
+            }
+            int count = 0;
+            for (Map.Entry<String, List<OutboxEvent>> channel : byChannel.entrySet()) {
+                count += deliver(channel.getKey(), channel.getValue());
+            }
+            return count;
+        });
+        return removed == null ? 0 : removed;
+    }
+
+    private int deliver(String channel, List<OutboxEvent> events) {
+        NotificationService service = notificationFactory
+                .getPreferredService(channel)
+                .orElseGet(notificationFactory::getDefaultNotification);
+        List<Notification> notifications = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            notifications.add(new Notification(event.getSource(), event.getDestination(), event.getSubject(), event.getMessage()));
+        }
+        try {
+            service.sendMessages(notifications);
+            outboxEventRepository.deleteAll(events);
+            return events.size();
+        } catch (RuntimeException e) {
+            log.warn("Relaying {} outbox events via {} failed", events.size(), service.getName(), e);
+            int abandoned = 0;
+            for (OutboxEvent event : events) {
+                event.setAttempts(event.getAttempts() + 1);
+                if (event.getAttempts() >= maxAttempts) {
+                    log.error("Giving up on {} after {} attempts", event, event.getAttempts());
+                    outboxEventRepository.delete(event);
+                    abandoned++;
+                }
+            }
+            return abandoned;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ippon.bankapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ippon.bankapp.service.exception.RateLimitExceededException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets per account and per client. Each bucket is a single AtomicLong holding the time at which it
+ * will be full again (the generic cell rate algorithm), so taking a token is one compare-and-set and never
+ * blocks. Buckets live in a bounded cache and are dropped once idle long enough to have refilled, since a
+ * fresh bucket is then indistinguishable from the old one.
+ */
+@Component
+public class RateLimiter {
+
+    private final Limit account;
+    private final Limit client;
+    private final Cache<String, AtomicLong> buckets;
+
+    public RateLimiter(@Value("${bankapp.rate-limit.account.per-second:50}") double accountPerSecond,
+                       @Value("${bankapp.rate-limit.account.burst:100}") int accountBurst,
+                       @Value("${bankapp.rate-limit.client.per-second:100}") double clientPerSecond,
+                       @Value("${bankapp.rate-limit.client.burst:200}") int clientBurst,
+                       @Value("${bankapp.rate-limit.maximum-keys:100000}") long maximumKeys) {
+        this.account = new Limit(accountPerSecond, accountBurst);
+        this.client = new Limit(clientPerSecond, clientBurst);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(Math.max(account.refillNanos(), client.refillNanos()), TimeUnit.NANOSECONDS)
+                .build();
+    }
+
+    public void checkAccount(int accountId) {
+        check("account:" + accountId, account);
+    }
+
+    public void checkClient(String clientKey) {
+        check("client:" + clientKey, client);
+    }
+
+    private void check(String key, Limit limit) {
+        if (!limit.isEnabled()) {
+            return;
+        }
+        AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(System.nanoTime()));
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            // the bucket is short of a token while it is more than the burst's worth of intervals from full
+            long wait = current - limit.toleranceNanos - now;
+            if (wait > 0) {
+                throw new RateLimitExceededException(TimeUnit.NANOSECONDS.toSeconds(wait) + 1);
+            }
+            if (fullAt.compareAndSet(current, Math.max(current, now) + limit.intervalNanos)) {
+                return;
+            }
+        }
+    }
+
+    private static final class Limit {
+
+        private final long intervalNanos;
+        private final long toleranceNanos;
+
+        Limit(double perSecond, int burst) {
+            this.intervalNanos = perSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / perSecond) : 0;
+            this.toleranceNanos = intervalNanos * (Math.max(burst, 1) - 1);
+        }
+
+        boolean isEnabled() {
+            return intervalNanos > 0;
+        }
+
+        long refillNanos() {
+            return Math.max(intervalNanos + toleranceNanos, TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.repository.Shards;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs reads in read-only transactions, which the routing data source sends to a replica when replicas are
+ * configured. An account written through this node within the read-your-writes window is read from the
+ * primary instead, so a client never sees its own deposit disappear while the replicas catch up. The window
+ * is tracked per node, so a write on another node is not seen until replication delivers it.
+ * With sharding, a read about one account goes to the account's shard, and a lookup asks each shard in turn.
+ */
+@Component
+public class ReplicaReads {
+
+    private static final int PRUNE_EVERY_WRITES = 1024;
+
+    private final TransactionTemplate replicaReads;
+    private final TransactionTemplate primaryReads;
+    private final boolean replicasEnabled;
+    private final Shards shards;
+    private final long windowNanos;
+    private final ConcurrentMap<Integer, Long> pinnedUntil = new ConcurrentHashMap<>();
+    private final AtomicInteger writesSincePrune = new AtomicInteger();
+
+    public ReplicaReads(PlatformTransactionManager transactionManager, Shards shards,
+                        @Value("${bankapp.datasource.replicas:}") String replicas,
+                        @Value("${bankapp.datasource.read-your-writes-ms:5000}") long readYourWritesMillis) {
+        this.replicaReads = new TransactionTemplate(transactionManager);
+        this.replicaReads.setReadOnly(true);
+        this.primaryReads = new TransactionTemplate(transactionManager);
+        this.replicasEnabled = !replicas.trim().isEmpty();
+        this.shards = shards;
+        this.windowNanos = readYourWritesMillis * 1_000_000;
+    }
+
+    /**
+     * Reads that are not about one account, or about an account the caller cannot name yet.
+     */
+    public <T> T read(Supplier<T> query) {
+        return replicaReads.execute(status -> query.get());
+    }
+
+    /**
+     * Reads about one account, from the primary if this node wrote the account within the window.
+     */
+    public <T> T read(int accountId, Supplier<T> query) {
+        TransactionTemplate reads = wroteRecently(accountId) ? primaryReads : replicaReads;
+        return shards.on(accountId, () -> reads.execute(status -> query.get()));
+    }
+
+    /**
+     * Finds an account by something other than its id. A replica miss is confirmed on the primary, since the
+     * account may be newer than the replica. A hit on an account written within the window is read again from
+     * the primary.
+     */
+    public <T> Optional<T> lookup(Supplier<Optional<T>> query, ToIntFunction<T> accountId) {
+        Optional<T> found = shards.findFirst(() -> read(query));
+        if (!replicasEnabled || found.isPresent() && !wroteRecently(accountId.applyAsInt(found.get()))) {
+            return found;
+        }
+        return shards.findFirst(() -> primaryReads.execute(status -> query.get()));
+    }
+
+    /**
+     * Records a committed write to the account, starting its read-your-writes window.
+     */
+    public void wrote(int accountId) {
+        if (!replicasEnabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        pinnedUntil.put(accountId, now + windowNanos);
+        if (writesSincePrune.incrementAndGet() >= PRUNE_EVERY_WRITES) {
+            writesSincePrune.set(0);
+            pinnedUntil.values().removeIf(until -> until - now <= 0);
+        }
+    }
+
+    public void wroteAll(Iterable<Integer> accountIds) {
+        for (Integer accountId : accountIds) {
+            wrote(accountId);
+        }
+    }
+
+    public boolean wroteRecently(int accountId) {
+        if (!replicasEnabled) {
+            return false;
+        }
+        Long until = pinnedUntil.get(accountId);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        pinnedUntil.remove(accountId, until);
+        return false;
+    }
+}
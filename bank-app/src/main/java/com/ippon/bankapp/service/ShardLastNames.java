@@ -0,0 +1,163 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.repository.ShardRoutingDataSource;
+import com.ippon.bankapp.service.exception.AccountLastNameExistsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * With sharding, each shard's unique index on last_name only sees that shard's accounts, so every last name is
+ * reserved in one place instead: the account_last_name table on shard-0, whose primary key settles two creations
+ * racing for the same name on any shards. An account is written only once its name is claimed for its id, and a
+ * lookup by last name reads the id there and goes to the owning shard, so it finds the same account from every
+ * node. A claim whose account was never written, because its node died in between, is taken over once it is
+ * older than {@link #STALE_AFTER} and no shard holds the account.
+ * <p>
+ * At startup, before requests are served, accounts without a reservation, such as those created before sharding
+ * was turned on, are registered. Where two shards already hold the same last name, the account on the earlier
+ * shard keeps it, and the other is logged and can only be found by id.
+ */
+@Service
+@ConditionalOnProperty(name = "bankapp.sharding.shards")
+public class ShardLastNames implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardLastNames.class);
+
+    static final Duration STALE_AFTER = Duration.ofMinutes(1);
+    private static final int REGISTER_BATCH = 500;
+
+    private final Map<String, JdbcTemplate> jdbc = new LinkedHashMap<>();
+    private final JdbcTemplate home;
+    private final NamedParameterJdbcTemplate homeNamed;
+
+    public ShardLastNames(ShardRoutingDataSource shardRoutingDataSource) {
+        shardRoutingDataSource.getShards().forEach((name, dataSource) -> jdbc.put(name, new JdbcTemplate(dataSource)));
+        this.home = jdbc.values().iterator().next();
+        this.homeNamed = new NamedParameterJdbcTemplate(home);
+    }
+
+    /**
+     * Reserves the last name for the account about to be created with this id.
+     *
+     * @throws AccountLastNameExistsException if another account holds the name
+     */
+    public void claim(int accountId, String lastName) {
+        if (tryClaim(accountId, lastName)) {
+            return;
+        }
+        if (!takeOverStale(lastName) || !tryClaim(accountId, lastName)) {
+            throw new AccountLastNameExistsException();
+        }
+    }
+
+    /**
+     * Gives up the claim of an account whose insert failed.
+     */
+    public void release(int accountId, String lastName) {
+        home.update("delete from account_last_name where last_name = ? and account_id = ?", lastName, accountId);
+    }
+
+    public Optional<Integer> accountIdOf(String lastName) {
+        return home.queryForList("select account_id from account_last_name where last_name = ?", Integer.class, lastName)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        int[] registered = {0};
+        jdbc.forEach((name, shard) -> {
+            Map<String, Integer> batch = new HashMap<>();
+            shard.query("select account_id, last_name from account where last_name is not null", row -> {
+                batch.put(row.getString("last_name"), row.getInt("account_id"));
+                if (batch.size() == REGISTER_BATCH) {
+                    registered[0] += register(name, batch);
+                    batch.clear();
+                }
+            });
+            registered[0] += register(name, batch);
+        });
+        if (registered[0] > 0) {
+            log.info("Reserved the last names of {} existing accounts", registered[0]);
+        }
+    }
+
+    private boolean tryClaim(int accountId, String lastName) {
+        try {
+            home.update("insert into account_last_name (last_name, account_id, claimed_at) values (?, ?, ?)",
+                    lastName, accountId, Timestamp.valueOf(LocalDateTime.now()));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return whether the name is free to claim again
+     */
+    private boolean takeOverStale(String lastName) {
+        List<Map<String, Object>> holders = home.queryForList(
+                "select account_id, claimed_at from account_last_name where last_name = ?", lastName);
+        if (holders.isEmpty()) {
+            return true;
+        }
+        int holder = ((Number) holders.get(0).get("account_id")).intValue();
+        LocalDateTime claimedAt = ((Timestamp) holders.get(0).get("claimed_at")).toLocalDateTime();
+        if (claimedAt.isAfter(LocalDateTime.now().minus(STALE_AFTER)) || exists(holder)) {
+            return false;
+        }
+        log.warn("Taking over last name {} from account {}, which was never created", lastName, holder);
+        release(holder, lastName);
+        return true;
+    }
+
+    private boolean exists(int accountId) {
+        // every shard, since a rebalance may not have moved the account to the shard the ring now names
+        for (JdbcTemplate shard : jdbc.values()) {
+            if (shard.queryForObject("select count(*) from account where account_id = ?", Integer.class, accountId) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int register(String shard, Map<String, Integer> accounts) {
+        if (accounts.isEmpty()) {
+            return 0;
+        }
+        Map<String, Integer> reserved = new HashMap<>();
+        homeNamed.query("select last_name, account_id from account_last_name where last_name in (:names)",
+                new MapSqlParameterSource("names", accounts.keySet()),
+                row -> {
+                    reserved.put(row.getString("last_name"), row.getInt("account_id"));
+                });
+        int registered = 0;
+        for (Map.Entry<String, Integer> account : accounts.entrySet()) {
+            Integer holder = reserved.get(account.getKey());
+            // a claim can still lose to one another node made since the names were read
+            if (holder == null && tryClaim(account.getValue(), account.getKey())) {
+                registered++;
+            } else if (holder == null || holder.intValue() != account.getValue()) {
+                log.warn("Account {} on {} shares last name {} with another account, which keeps it",
+                        account.getValue(), shard, account.getKey());
+            }
+        }
+        return registered;
+    }
+}
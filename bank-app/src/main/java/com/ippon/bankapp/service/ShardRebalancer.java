@@ -0,0 +1,151 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.TransferSaga;
+import com.ippon.bankapp.repository.ShardRoutingDataSource;
+import com.ippon.bankapp.repository.Shards;
+import com.ippon.bankapp.repository.TransferSagaRepository;
+import com.ippon.bankapp.service.dto.ShardDTO;
+import com.ippon.bankapp.service.dto.ShardMoveDTO;
+import com.ippon.bankapp.service.exception.RebalanceNotAllowedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves every account that is not on the shard the ring assigns it to, with its transactions, balance snapshots and
+ * deposit limit. Run it after adding a shard, while postings are paused: until an account has moved, the ring
+ * already sends its requests to the new shard, which does not have it yet. Each account is copied in one
+ * transaction on the target and deleted in another on the source, so an interrupted run leaves at worst a copy on
+ * both shards, which the next run resolves in favour of the target.
+ */
+@Service
+@ConditionalOnProperty(name = "bankapp.sharding.shards")
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    /**
+     * The tables keyed by account_id, parents first.
+     */
+    static final List<String> ACCOUNT_TABLES = Arrays.asList("account", "transactions", "balance_snapshot", "deposit_limit");
+
+    private Shards shards;
+    private TransferSagaRepository transferSagaRepository;
+    private AccountLocks accountLocks;
+    private AccountCache accountCache;
+    private EntityManagerFactory entityManagerFactory;
+    private Map<String, JdbcTemplate> jdbc = new LinkedHashMap<>();
+    private Map<String, TransactionTemplate> transactions = new LinkedHashMap<>();
+
+    public ShardRebalancer(Shards shards, ShardRoutingDataSource shardRoutingDataSource,
+                           TransferSagaRepository transferSagaRepository, AccountLocks accountLocks,
+                           AccountCache accountCache, EntityManagerFactory entityManagerFactory) {
+        this.shards = shards;
+        this.transferSagaRepository = transferSagaRepository;
+        this.accountLocks = accountLocks;
+        this.accountCache = accountCache;
+        this.entityManagerFactory = entityManagerFactory;
+        shardRoutingDataSource.getShards().forEach((name, dataSource) -> {
+            jdbc.put(name, new JdbcTemplate(dataSource));
+            transactions.put(name, new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        });
+    }
+
+    public List<ShardDTO> shards() {
+        List<ShardDTO> result = new ArrayList<>(jdbc.size());
+        jdbc.forEach((name, shard) ->
+                result.add(new ShardDTO(name, shard.queryForObject("select count(*) from account", Long.class))));
+        return result;
+    }
+
+    /**
+     * Refused while any cross-shard transfer is between its debit and its credit, since moving either account
+     * would strand the saga.
+     *
+     * @return how many accounts moved between each pair of shards
+     */
+    public List<ShardMoveDTO> rebalance() {
+        for (String shard : shards.names()) {
+            if (shards.onShard(shard, () -> transferSagaRepository.countByState(TransferSaga.State.DEBITED)) > 0) {
+                throw new RebalanceNotAllowedException();
+            }
+        }
+        Map<String, Integer> moved = new LinkedHashMap<>();
+        for (String source : jdbc.keySet()) {
+            for (Integer accountId : jdbc.get(source).queryForList("select account_id from account", Integer.class)) {
+                String target = shards.shardFor(accountId);
+                if (!target.equals(source)) {
+                    move(accountId, source, target);
+                    moved.merge(source + "\n" + target, 1, Integer::sum);
+                }
+            }
+        }
+        List<ShardMoveDTO> result = new ArrayList<>(moved.size());
+        moved.forEach((pair, accounts) -> {
+            String[] shardNames = pair.split("\n");
+            log.info("Moved {} accounts from {} to {}", accounts, shardNames[0], shardNames[1]);
+            result.add(new ShardMoveDTO(shardNames[0], shardNames[1], accounts));
+        });
+        return result;
+    }
+
+    private void move(int accountId, String source, String target) {
+        JdbcTemplate from = jdbc.get(source);
+        JdbcTemplate to = jdbc.get(target);
+        ReentrantLock lock = accountLocks.lockFor(accountId);
+        lock.lock();
+        try {
+            transactions.get(target).execute(status -> {
+                // already there if an earlier run was interrupted between the copy and the delete
+                if (to.queryForObject("select count(*) from account where account_id = ?", Integer.class, accountId) == 0) {
+                    for (String table : ACCOUNT_TABLES) {
+                        copy(from, to, table, accountId);
+                    }
+                }
+                return null;
+            });
+            transactions.get(source).execute(status -> {
+                for (int i = ACCOUNT_TABLES.size() - 1; i >= 0; i--) {
+                    from.update("delete from " + ACCOUNT_TABLES.get(i) + " where account_id = ?", accountId);
+                }
+                return null;
+            });
+        } finally {
+            entityManagerFactory.getCache().evict(Account.class, accountId);
+            accountCache.invalidate(accountId);
+            lock.unlock();
+        }
+    }
+
+    private static void copy(JdbcTemplate from, JdbcTemplate to, String table, int accountId) {
+        List<Map<String, Object>> rows = from.queryForList("select * from " + table + " where account_id = ?", accountId);
+        if (rows.isEmpty()) {
+            return;
+        }
+        StringJoiner columns = new StringJoiner(", ");
+        StringJoiner values = new StringJoiner(", ");
+        for (String column : rows.get(0).keySet()) {
+            columns.add(column);
+            values.add("?");
+        }
+        List<Object[]> batch = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            batch.add(row.values().toArray());
+        }
+        to.batchUpdate("insert into " + table + " (" + columns + ") values (" + values + ")", batch);
+    }
+}
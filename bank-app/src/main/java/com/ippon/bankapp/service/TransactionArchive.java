@@ -0,0 +1,260 @@
+package com.ippon.bankapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ippon.bankapp.service.dto.ArchivedTransactionDTO;
+import com.ippon.bankapp.service.dto.TransactionExportDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * The cold tier of the transaction history: one {@link ArchiveSegment} file per closed month under
+ * {@code bankapp.archive.directory}, written by {@link TransactionArchiver}. Every archived row is older than
+ * every row still in the transactions table, so a history read takes the hot rows first and continues here.
+ * A read decodes only the account's block of each month it reaches. The directories of recently read segments
+ * are kept in memory, up to {@code bankapp.archive.cached-accounts} entries in all, and are reread when another
+ * node has replaced the file.
+ * <p>
+ * The directory is meant to be shared by every node, and one node at a time writes to it, holding the lock file
+ * it keeps there. Months written by another node are noticed through the directory's modification time.
+ */
+@Component
+@ConditionalOnProperty(name = "bankapp.archive.enabled", havingValue = "true")
+public class TransactionArchive {
+
+    private static final String PREFIX = "transactions-";
+    private static final String SUFFIX = ".seg";
+    private static final String LOCK_FILE = "archiver.lock";
+    // a change within this long of the last listing may not have moved the directory's modification time
+    private static final long MODIFIED_TIME_RESOLUTION_MILLIS = 2000;
+
+    private final Path directory;
+    private final FileChannel lockChannel;
+    private final Cache<YearMonth, ArchiveSegment> segments;
+    private volatile NavigableSet<YearMonth> months = new ConcurrentSkipListSet<>();
+    private volatile FileTime listedModified;
+
+    @Autowired
+    public TransactionArchive(@Value("${bankapp.archive.directory:archive}") String directory,
+                              @Value("${bankapp.archive.cached-accounts:1000000}") long cachedAccounts) throws IOException {
+        this(Paths.get(directory), cachedAccounts);
+    }
+
+    TransactionArchive(Path directory, long cachedAccounts) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        this.segments = Caffeine.newBuilder()
+                .maximumWeight(cachedAccounts)
+                .<YearMonth, ArchiveSegment>weigher((month, segment) -> segment.accountCount() + 1)
+                .build();
+        list();
+    }
+
+    public List<YearMonth> months() {
+        return new ArrayList<>(currentMonths());
+    }
+
+    /**
+     * Takes the lock file in the directory, so that only one node archives at a time.
+     *
+     * @return the lock to release when done, or null while another node or another run on this one holds it
+     */
+    public FileLock tryLock() throws IOException {
+        try {
+            return lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Up to limit of the account's archived rows, newest first, older than the cursor when there is one.
+     */
+    public List<TransactionExportDTO> latest(int accountId, HistoryCursor before, int limit) {
+        List<TransactionExportDTO> rows = new ArrayList<>(limit);
+        NavigableSet<YearMonth> months = currentMonths();
+        NavigableSet<YearMonth> candidates = before == null
+                ? months.descendingSet()
+                : months.headSet(YearMonth.from(before.getTimestamp()), true).descendingSet();
+        for (YearMonth month : candidates) {
+            if (rows.size() >= limit) {
+                break;
+            }
+            ArchiveSegment.Block block = block(month, accountId);
+            if (block != null) {
+                block.addBefore(before == null ? null : before.getTimestamp(),
+                        before == null ? 0 : before.getTransactionId(), limit - rows.size(), rows);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * The account's archived rows, oldest first, one month decoded at a time.
+     */
+    public Stream<TransactionExportDTO> all(int accountId) {
+        return months().stream().flatMap(month -> {
+            ArchiveSegment.Block block = block(month, accountId);
+            return block == null ? Stream.empty() : block.rows().stream();
+        });
+    }
+
+    /**
+     * For an export that reads the archive and then the table: false for a row still in the table whose month
+     * was archived with it, which happens when the archiver stops between writing a month and deleting its rows.
+     * Only rows from archived months are looked up, one account's block per month.
+     */
+    public Predicate<TransactionExportDTO> notArchived(int accountId) {
+        NavigableSet<YearMonth> months = currentMonths();
+        Map<YearMonth, Set<Integer>> archived = new HashMap<>();
+        return row -> {
+            YearMonth month = YearMonth.from(row.getTimestamp());
+            if (!months.contains(month)) {
+                return true;
+            }
+            return !archived.computeIfAbsent(month, m -> {
+                ArchiveSegment.Block block = block(m, accountId);
+                return block == null ? Collections.emptySet() : block.transactionIds();
+            }).contains(row.getTransactionId());
+        };
+    }
+
+    /**
+     * Adds rows, which must be in {@link ArchiveSegment#ORDER}, to the month's segment, merging them with rows
+     * already archived for it. Rows are taken one account at a time and blocks of accounts without new rows are
+     * copied undecoded, so memory use does not grow with the month. The segment is written to a temporary file,
+     * forced to disk and moved into place, so a crash leaves either the old or the new segment, never a partial
+     * one. A row archived twice is kept once.
+     *
+     * @param archived told the id of every row taken from rows; they are archived once this returns
+     * @return the number of rows taken from rows
+     */
+    public synchronized int append(YearMonth month, Stream<ArchivedTransactionDTO> rows, IntConsumer archived) {
+        Path file = file(month);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        int taken = 0;
+        try (FileChannel existing = currentMonths().contains(month) ? FileChannel.open(file, StandardOpenOption.READ) : null;
+             ArchiveSegment.Writer writer = new ArchiveSegment.Writer(temporary)) {
+            ArchiveSegment old = existing == null ? null : ArchiveSegment.read(existing);
+            int next = 0;
+            Iterator<ArchivedTransactionDTO> it = rows.iterator();
+            ArchivedTransactionDTO row = it.hasNext() ? it.next() : null;
+            while (row != null) {
+                int accountId = row.getAccountId();
+                Map<Integer, ArchivedTransactionDTO> merged = new LinkedHashMap<>();
+                for (; row != null && row.getAccountId() == accountId; row = it.hasNext() ? it.next() : null) {
+                    merged.put(row.getTransactionId(), row);
+                }
+                taken += merged.size();
+                for (; old != null && next < old.accountCount() && old.accountIdAt(next) < accountId; next++) {
+                    writer.copy(old, existing, next);
+                }
+                List<ArchivedTransactionDTO> block = new ArrayList<>(merged.values());
+                if (old != null && next < old.accountCount() && old.accountIdAt(next) == accountId) {
+                    for (ArchivedTransactionDTO archivedRow : old.block(existing, accountId).archivedRows()) {
+                        if (!merged.containsKey(archivedRow.getTransactionId())) {
+                            block.add(archivedRow);
+                        }
+                    }
+                    block.sort(ArchiveSegment.ORDER);
+                    next++;
+                }
+                writer.add(accountId, block);
+                merged.keySet().forEach(archived::accept);
+            }
+            for (; old != null && next < old.accountCount(); next++) {
+                writer.copy(old, existing, next);
+            }
+            writer.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.invalidate(month);
+        currentMonths().add(month);
+        return taken;
+    }
+
+    private ArchiveSegment.Block block(YearMonth month, int accountId) {
+        try (FileChannel channel = FileChannel.open(file(month), StandardOpenOption.READ)) {
+            long stamp = ArchiveSegment.stampOf(channel);
+            ArchiveSegment segment = segments.getIfPresent(month);
+            if (segment == null || segment.stamp() != stamp) {
+                segment = ArchiveSegment.read(channel);
+                segments.put(month, segment);
+            }
+            return segment.block(channel, accountId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private NavigableSet<YearMonth> currentMonths() {
+        try {
+            FileTime modified = Files.getLastModifiedTime(directory);
+            if (!modified.equals(listedModified)
+                    || System.currentTimeMillis() - modified.toMillis() < MODIFIED_TIME_RESOLUTION_MILLIS) {
+                list();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return months;
+    }
+
+    private void list() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(directory);
+        NavigableSet<YearMonth> listed = new ConcurrentSkipListSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    listed.add(YearMonth.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (DateTimeParseException e) {
+                    // not one of ours
+                }
+            }
+        }
+        months = listed;
+        listedModified = modified;
+    }
+
+    private Path file(YearMonth month) {
+        return directory.resolve(PREFIX + month + SUFFIX);
+    }
+}
@@ -0,0 +1,121 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.repository.Shards;
+import com.ippon.bankapp.repository.TransactionRepository;
+import com.ippon.bankapp.service.dto.ArchivedTransactionDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileLock;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Moves closed months out of the transactions table into the {@link TransactionArchive}, keeping the current month
+ * and the {@code bankapp.archive.hot-months} - 1 before it in the table. A month's rows are streamed from the
+ * table into its segment, and only once the segment is in place are they deleted, by id, so a crash in between
+ * leaves the rows in both tiers until the next run archives them again; the segment keeps one copy. Only the ids
+ * are held in memory meanwhile. A run is skipped while another node holds the archive's lock.
+ */
+@Component
+@ConditionalOnProperty(name = "bankapp.archive.enabled", havingValue = "true")
+public class TransactionArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionArchiver.class);
+
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive transactionArchive;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnly;
+    private final int hotMonths;
+    private final Clock clock;
+
+    @Autowired
+    public TransactionArchiver(TransactionRepository transactionRepository, TransactionArchive transactionArchive,
+                               Shards shards, PlatformTransactionManager transactionManager,
+                               @Value("${bankapp.archive.hot-months:3}") int hotMonths) {
+        this(transactionRepository, transactionArchive, shards, transactionManager, hotMonths, Clock.systemDefaultZone());
+    }
+
+    TransactionArchiver(TransactionRepository transactionRepository, TransactionArchive transactionArchive,
+                        Shards shards, PlatformTransactionManager transactionManager, int hotMonths, Clock clock) {
+        this.transactionRepository = transactionRepository;
+        this.transactionArchive = transactionArchive;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.hotMonths = Math.max(1, hotMonths);
+        this.clock = clock;
+    }
+
+    /**
+     * With sharding, each shard's closed months are merged into the same segments.
+     *
+     * @return the number of rows moved to the archive
+     */
+    @Scheduled(initialDelayString = "${bankapp.archive.interval-ms:3600000}",
+            fixedDelayString = "${bankapp.archive.interval-ms:3600000}")
+    public int archive() {
+        try (FileLock lock = transactionArchive.tryLock()) {
+            if (lock == null) {
+                log.debug("Another node is archiving transactions");
+                return 0;
+            }
+            YearMonth firstHot = YearMonth.now(clock).minusMonths(hotMonths - 1);
+            int[] archived = {0};
+            shards.forEach(() -> {
+                LocalDateTime oldest;
+                while ((oldest = readOnly.execute(status -> transactionRepository.findOldestTimestamp())) != null
+                        && YearMonth.from(oldest).isBefore(firstHot)) {
+                    archived[0] += archiveMonth(YearMonth.from(oldest));
+                }
+            });
+            return archived[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int archiveMonth(YearMonth month) {
+        IntStream.Builder archived = IntStream.builder();
+        readOnly.execute(status -> {
+            try (Stream<ArchivedTransactionDTO> rows = transactionRepository.streamArchivable(
+                    month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay())) {
+                return transactionArchive.append(month, rows, archived::add);
+            }
+        });
+        int[] ids = archived.build().toArray();
+
+        transactionTemplate.execute(status -> {
+            List<Integer> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+            for (int from = 0; from < ids.length; from += DELETE_BATCH_SIZE) {
+                batch.clear();
+                for (int i = from; i < Math.min(from + DELETE_BATCH_SIZE, ids.length); i++) {
+                    batch.add(ids[i]);
+                }
+                transactionRepository.deleteByTransactionIdIn(batch);
+            }
+            return null;
+        });
+        log.info("Archived {} transactions from {}", ids.length, month);
+        return ids.length;
+    }
+}
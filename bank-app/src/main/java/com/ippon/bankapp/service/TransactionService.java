@@ -1,54 +1,260 @@
 package com.ippon.bankapp.service;
 
-import com.ippon.bankapp.domain.Account;
-import com.ippon.bankapp.domain.Transaction;
+import com.ippon.bankapp.domain.BalanceSnapshot;
+import com.ippon.bankapp.domain.Money;
 import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.BalanceSnapshotRepository;
 import com.ippon.bankapp.repository.TransactionRepository;
 import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.dto.StatementDTO;
 import com.ippon.bankapp.service.dto.TransactionDTO;
+import com.ippon.bankapp.service.dto.TransactionPageDTO;
 import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import com.ippon.bankapp.service.exception.StatementRangeNotValidException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.ippon.bankapp.service.dto.TransactionExportDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class TransactionService {
+
+    static final int RECENT_HISTORY_SIZE = 10;
+    static final int MAX_PAGE_SIZE = 100;
+    static final int MAX_STATEMENT_DAYS = 366;
+
     private TransactionRepository transactionRepository;
     private AccountRepository accountRepository;
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    private ObjectWriter exportWriter;
+    private AccountMetrics accountMetrics;
+    private ReplicaReads replicaReads;
+    private TransactionArchive transactionArchive;
 
-    public TransactionService(TransactionRepository transactionRepository, AccountRepository accountRepository) {
+    public TransactionService(TransactionRepository transactionRepository, AccountRepository accountRepository,
+                              BalanceSnapshotRepository balanceSnapshotRepository, ObjectMapper objectMapper,
+                              AccountMetrics accountMetrics, ReplicaReads replicaReads) {
         this.transactionRepository = transactionRepository;
         this.accountRepository = accountRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.exportWriter = objectMapper.writerFor(TransactionExportDTO.class);
+        this.accountMetrics = accountMetrics;
+        this.replicaReads = replicaReads;
+    }
+
+    /**
+     * Continues history reads and exports into the archived months once the transactions table runs out.
+     */
+    @Autowired(required = false)
+    public void setTransactionArchive(TransactionArchive transactionArchive) {
+        this.transactionArchive = transactionArchive;
     }
 
 
     public ArrayList<TransactionDTO> findAllTransactionsByAccount(AccountDTO account){
-        Account client = getAccountViaFirstWithoutDTO(account.getFirstName());
-        ArrayList<Transaction> transactions = transactionRepository.findAllByAccount(client);
-        ArrayList<TransactionDTO> previousTransactions = new ArrayList<>();
-        if(transactions.size() < 10){
-            for(int i = transactions.size() - 1; i >= 0; i--){
-                previousTransactions.add(mapTransactionToDTO(transactions.get(i)));
+        return accountMetrics.time("findAllTransactionsByAccount", () -> {
+            int accountId = accountIdForFirstName(account.getFirstName());
+            return replicaReads.read(accountId, () -> {
+                List<TransactionExportDTO> transactions = withArchived(accountId, null, RECENT_HISTORY_SIZE,
+                        transactionRepository.findLatestByAccountId(accountId, PageRequest.of(0, RECENT_HISTORY_SIZE)));
+                ArrayList<TransactionDTO> previousTransactions = new ArrayList<>(transactions.size());
+                for (TransactionExportDTO transaction : transactions) {
+                    previousTransactions.add(mapTransactionToDTO(transaction));
+                }
+                return previousTransactions;
+            });
+        });
+    }
+
+    /**
+     * Keyset paginated history, newest first. Pass the returned nextCursor back to get the following page;
+     * a null nextCursor means the history is exhausted.
+     */
+    public TransactionPageDTO findTransactionPage(int accountId, String cursor, int limit) {
+        return replicaReads.read(accountId, () -> readTransactionPage(accountId, cursor, limit));
+    }
+
+    private TransactionPageDTO readTransactionPage(int accountId, String cursor, int limit) {
+        if (!accountRepository.existsByAccountId(accountId)) {
+            throw new AccountNotFoundException();
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // one extra row tells us whether another page exists without a count query
+        PageRequest window = PageRequest.of(0, pageSize + 1);
+
+        List<TransactionExportDTO> transactions;
+        HistoryCursor position = null;
+        if (cursor == null || cursor.isEmpty()) {
+            transactions = transactionRepository.findLatestByAccountId(accountId, window);
+        } else {
+            position = HistoryCursor.decode(cursor);
+            transactions = transactionRepository.findPageByAccountIdBefore(accountId,
+                    position.getTimestamp(), position.getTransactionId(), window);
+        }
+        transactions = withArchived(accountId, position, pageSize + 1, transactions);
+
+        boolean hasMore = transactions.size() > pageSize;
+        List<TransactionExportDTO> page = hasMore ? transactions.subList(0, pageSize) : transactions;
+        List<TransactionDTO> dtos = new ArrayList<>(page.size());
+        for (TransactionExportDTO transaction : page) {
+            dtos.add(mapTransactionToDTO(transaction));
+        }
+        String nextCursor = hasMore ? HistoryCursor.of(page.get(page.size() - 1)).encode() : null;
+        return new TransactionPageDTO(dtos, nextCursor);
+    }
+
+    /**
+     * Fills a short page of hot rows, newest first, from the archive. Archived rows are all older than the hot
+     * ones, so they carry on from the last hot row, or from the cursor when there were none.
+     */
+    private List<TransactionExportDTO> withArchived(int accountId, HistoryCursor before, int wanted,
+                                                    List<TransactionExportDTO> hot) {
+        if (transactionArchive == null || hot.size() >= wanted) {
+            return hot;
+        }
+        List<TransactionExportDTO> rows = new ArrayList<>(hot);
+        HistoryCursor from = rows.isEmpty() ? before : HistoryCursor.of(rows.get(rows.size() - 1));
+        rows.addAll(transactionArchive.latest(accountId, from, wanted - rows.size()));
+        return rows;
+    }
+
+    /**
+     * Opening balance at the start of from and closing balance at the end of to, both inclusive. Reads the
+     * snapshot rows inside the range (at most one per day) plus one snapshot either side of it, never the
+     * account's transactions.
+     */
+    public StatementDTO findStatement(int accountId, LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_STATEMENT_DAYS) {
+            throw new StatementRangeNotValidException();
+        }
+        return replicaReads.read(accountId, () -> readStatement(accountId, from, to));
+    }
+
+    private StatementDTO readStatement(int accountId, LocalDate from, LocalDate to) {
+        Money balance = accountRepository.findBalanceByAccountId(accountId).orElseThrow(AccountNotFoundException::new);
+
+        Optional<BalanceSnapshot> before = balanceSnapshotRepository
+                .findFirstByAccountIdAndSnapshotDateBeforeOrderBySnapshotDateDesc(accountId, from);
+        List<BalanceSnapshot> inRange = balanceSnapshotRepository
+                .findAllByAccountIdAndSnapshotDateBetweenOrderBySnapshotDate(accountId, from, to);
+
+        Money opening;
+        Money closing;
+        int postings = 0;
+        if (!inRange.isEmpty()) {
+            opening = before.map(BalanceSnapshot::getClosingBalance).orElse(inRange.get(0).getOpeningBalance());
+            closing = inRange.get(inRange.size() - 1).getClosingBalance();
+            for (BalanceSnapshot snapshot : inRange) {
+                postings += snapshot.getPostings();
             }
+        } else {
+            // nothing was posted in the range, so the balance held throughout it
+            opening = before.map(BalanceSnapshot::getClosingBalance)
+                    .orElseGet(() -> balanceSnapshotRepository
+                            .findFirstByAccountIdAndSnapshotDateAfterOrderBySnapshotDate(accountId, to)
+                            .map(BalanceSnapshot::getOpeningBalance)
+                            .orElse(balance));
+            closing = opening;
         }
-        else{
-            int startIndex = transactions.size() -1;
-            int endIndex = startIndex - 9;
-            for(int i = startIndex; i >= endIndex; i--){
-                previousTransactions.add(mapTransactionToDTO(transactions.get(i)));
+        return new StatementDTO()
+                .from(from)
+                .to(to)
+                .openingBalance(opening.toBigDecimal())
+                .closingBalance(closing.toBigDecimal())
+                .postings(postings);
+    }
+
+    /**
+     * Checked before an export starts streaming, while a 404 can still be sent.
+     */
+    public void validateAccountExists(int accountId) {
+        if (!replicaReads.read(accountId, () -> accountRepository.existsByAccountId(accountId))) {
+            throw new AccountNotFoundException();
+        }
+    }
+
+    /**
+     * Writes the account's whole ledger, oldest first, to out as rows arrive from the database cursor. Rows are
+     * projections rather than entities and are written through a fixed-size buffer, so memory use does not
+     * grow with the history. Archived months come first, decoded one at a time, and rows left in the table after
+     * being archived are skipped.
+     *
+     * @return the number of rows written
+     */
+    public long exportTransactions(int accountId, ExportFormat format, OutputStream out) throws IOException {
+        try {
+            return replicaReads.read(accountId, () -> {
+                try {
+                    return writeExport(accountId, format, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long writeExport(int accountId, ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long rows = 0;
+        if (format == ExportFormat.CSV) {
+            writer.write("transaction_id,timestamp,type,amount\n");
+        }
+        try (Stream<TransactionExportDTO> hot = transactionRepository.streamExportByAccountId(accountId);
+             Stream<TransactionExportDTO> ledger = transactionArchive == null
+                ? hot : Stream.concat(transactionArchive.all(accountId), hot.filter(transactionArchive.notArchived(accountId)))) {
+            Iterator<TransactionExportDTO> it = ledger.iterator();
+            while (it.hasNext()) {
+                TransactionExportDTO row = it.next();
+                if (format == ExportFormat.CSV) {
+                    writer.write(row.getTransactionId() + "," + row.getTimestamp() + "," + csvField(row.getType())
+                            + "," + row.getAmount() + "\n");
+                } else {
+                    writer.write(exportWriter.writeValueAsString(row));
+                    writer.write('\n');
+                }
+                rows++;
             }
         }
+        writer.flush();
+        return rows;
+    }
 
-        return previousTransactions;
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 
-    protected TransactionDTO mapTransactionToDTO(Transaction transaction){
-        return new TransactionDTO(transaction.getTransactionType(),transaction.getAmount());
+    protected TransactionDTO mapTransactionToDTO(TransactionExportDTO transaction){
+        return new TransactionDTO(transaction.getType(),transaction.getAmount());
     }
 
-    public Account getAccountViaFirstWithoutDTO(String firstName){
-        return accountRepository
-                .findByFirstName(firstName)
+    private int accountIdForFirstName(String firstName){
+        return replicaReads
+                .lookup(() -> accountRepository.findAccountIdByFirstName(firstName), Integer::intValue)
                 .orElseThrow(AccountNotFoundException::new);
     }
 }
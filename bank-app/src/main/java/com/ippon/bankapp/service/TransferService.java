@@ -0,0 +1,67 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.domain.Transaction;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.TransactionRepository;
+import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import com.ippon.bankapp.service.exception.DepositNotValidException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves money between two accounts in a single database transaction: one locking read for both accounts,
+ * both balances updated, both ledger rows written in one batch.
+ */
+@Service
+public class TransferService {
+
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+    private NotificationOutbox notificationOutbox;
+    private BalanceSnapshots balanceSnapshots;
+
+    public TransferService(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                           NotificationOutbox notificationOutbox, BalanceSnapshots balanceSnapshots) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.notificationOutbox = notificationOutbox;
+        this.balanceSnapshots = balanceSnapshots;
+    }
+
+    @Transactional
+    public void transfer(int fromId, int toId, Money amount) throws DepositNotValidException {
+        if (fromId == toId || !amount.isPositive()) {
+            throw new DepositNotValidException();
+        }
+        List<Account> accounts = accountRepository.findAllByAccountIdForUpdate(Arrays.asList(fromId, toId));
+        if (accounts.size() != 2) {
+            throw new AccountNotFoundException();
+        }
+        Account from = accounts.get(0).getAccountId() == fromId ? accounts.get(0) : accounts.get(1);
+        Account to = from == accounts.get(0) ? accounts.get(1) : accounts.get(0);
+
+        if (from.getBalance().signum() <= 0 || to.getBalance().signum() <= 0) {
+            throw new DepositNotValidException();
+        }
+
+        Map<Integer, Money> balancesBefore = new HashMap<>();
+        balancesBefore.put(fromId, from.getBalance());
+        balancesBefore.put(toId, to.getBalance());
+        from.setBalance(from.getBalance().minus(amount));
+        to.setBalance(to.getBalance().plus(amount));
+        balanceSnapshots.recordAll(accounts, balancesBefore);
+
+        Transaction debit = new Transaction(from, "Wire Transfer of " + amount + "$ was sent to " + to.getFirstName(), amount);
+        Transaction credit = new Transaction(to, "Wire Transfer of " + amount + "$ was received from " + from.getFirstName(), amount);
+        transactionRepository.saveAll(Arrays.asList(debit, credit));
+        notificationOutbox.publish(from, "Wire Transfer", debit.getTransactionType());
+        notificationOutbox.publish(to, "Wire Transfer", credit.getTransactionType());
+    }
+}
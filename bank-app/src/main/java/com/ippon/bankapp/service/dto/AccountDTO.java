@@ -1,11 +1,17 @@
 package com.ippon.bankapp.service.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.ippon.bankapp.domain.Money;
+
 import javax.validation.constraints.NotEmpty;
 import java.math.BigDecimal;
 import java.util.Objects;
 
 public class AccountDTO {
 
+    @JsonIgnore
+    private Integer accountId;
+
     @NotEmpty
     private String firstName;
 
@@ -19,6 +25,30 @@ public class AccountDTO {
     public AccountDTO() {
     }
 
+    /**
+     * For constructor-expression queries, which select these columns without loading the Account.
+     */
+    public AccountDTO(int accountId, String firstName, String lastName, Money balance, String notificationPreference) {
+        this.accountId = accountId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.balance = balance == null ? null : balance.toBigDecimal();
+        this.notificationPreference = notificationPreference;
+    }
+
+    public Integer getAccountId() {
+        return accountId;
+    }
+
+    public AccountDTO accountId(Integer accountId) {
+        this.accountId = accountId;
+        return this;
+    }
+
+    public void setAccountId(Integer accountId) {
+        this.accountId = accountId;
+    }
+
     public String getFirstName() {
         return firstName;
     }
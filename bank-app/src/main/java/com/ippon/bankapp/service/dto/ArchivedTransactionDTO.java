@@ -0,0 +1,50 @@
+package com.ippon.bankapp.service.dto;
+
+import com.ippon.bankapp.domain.Money;
+
+import java.time.LocalDateTime;
+
+/**
+ * A ledger row on its way into, or read back out of, the transaction archive. Unlike TransactionExportDTO it
+ * carries the account, since a segment holds a whole month for every account.
+ */
+public class ArchivedTransactionDTO {
+
+    private int accountId;
+
+    private int transactionId;
+
+    private LocalDateTime timestamp;
+
+    private String type;
+
+    private Money amount;
+
+    public ArchivedTransactionDTO(int accountId, int transactionId, LocalDateTime timestamp, String type, Money amount) {
+        this.accountId = accountId;
+        this.transactionId = transactionId;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.amount = amount;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public int getTransactionId() {
+        return transactionId;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,83 @@
+package com.ippon.bankapp.service.dto;
+
+import com.ippon.bankapp.domain.Money;
+
+public class BatchOperationDTO {
+
+    public static final String DEPOSIT = "deposit";
+    public static final String WITHDRAW = "withdraw";
+    public static final String TRANSFER = "transfer";
+
+    private String type;
+
+    private int id;
+
+    private Integer id2;
+
+    private Money amount;
+
+    public BatchOperationDTO() {
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public BatchOperationDTO type(String type) {
+        this.type = type;
+        return this;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public BatchOperationDTO id(int id) {
+        this.id = id;
+        return this;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public Integer getId2() {
+        return id2;
+    }
+
+    public BatchOperationDTO id2(Integer id2) {
+        this.id2 = id2;
+        return this;
+    }
+
+    public void setId2(Integer id2) {
+        this.id2 = id2;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public BatchOperationDTO amount(Money amount) {
+        this.amount = amount;
+        return this;
+    }
+
+    public void setAmount(Money amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchOperationDTO{" +
+                "type='" + type + '\'' +
+                ", id=" + id +
+                ", id2=" + id2 +
+                ", amount=" + amount +
+                '}';
+    }
+}
@@ -0,0 +1,88 @@
+package com.ippon.bankapp.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+public class BatchResultDTO {
+
+    public static final String APPLIED = "applied";
+    public static final String REJECTED = "rejected";
+    /** Debited, with the credit on another shard still to be confirmed; see {@link PendingTransferDTO}. */
+    public static final String PENDING = PendingTransferDTO.PENDING;
+
+    private int index;
+
+    private String status;
+
+    private BigDecimal balance;
+
+    private String error;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String sagaId;
+
+    public BatchResultDTO() {
+    }
+
+    public BatchResultDTO(int index, String status, BigDecimal balance, String error) {
+        this.index = index;
+        this.status = status;
+        this.balance = balance;
+        this.error = error;
+    }
+
+    public static BatchResultDTO applied(int index, BigDecimal balance) {
+        return new BatchResultDTO(index, APPLIED, balance, null);
+    }
+
+    public static BatchResultDTO rejected(int index, String error) {
+        return new BatchResultDTO(index, REJECTED, null, error);
+    }
+
+    public static BatchResultDTO pending(int index, BigDecimal balance, String sagaId) {
+        BatchResultDTO result = new BatchResultDTO(index, PENDING, balance, null);
+        result.sagaId = sagaId;
+        return result;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getSagaId() {
+        return sagaId;
+    }
+
+    public void setSagaId(String sagaId) {
+        this.sagaId = sagaId;
+    }
+}
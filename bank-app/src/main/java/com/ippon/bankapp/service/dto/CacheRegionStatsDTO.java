@@ -0,0 +1,49 @@
+package com.ippon.bankapp.service.dto;
+
+public class CacheRegionStatsDTO {
+
+    private String name;
+
+    private long size;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private double hitRate;
+
+    private long putCount;
+
+    public CacheRegionStatsDTO(String name, long size, long hitCount, long missCount, double hitRate, long putCount) {
+        this.name = name;
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.hitRate = hitRate;
+        this.putCount = putCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getPutCount() {
+        return putCount;
+    }
+}
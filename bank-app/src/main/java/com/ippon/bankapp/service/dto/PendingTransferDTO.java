@@ -0,0 +1,37 @@
+package com.ippon.bankapp.service.dto;
+
+/**
+ * A wire transfer between shards whose debit has committed but whose credit has not been confirmed yet. The saga
+ * is finished in the background, so the transfer must not be sent again.
+ */
+public class PendingTransferDTO {
+
+    public static final String PENDING = "pending";
+
+    private String sagaId;
+
+    private String status = PENDING;
+
+    public PendingTransferDTO() {
+    }
+
+    public PendingTransferDTO(String sagaId) {
+        this.sagaId = sagaId;
+    }
+
+    public String getSagaId() {
+        return sagaId;
+    }
+
+    public void setSagaId(String sagaId) {
+        this.sagaId = sagaId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
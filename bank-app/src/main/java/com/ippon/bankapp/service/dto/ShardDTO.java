@@ -0,0 +1,21 @@
+package com.ippon.bankapp.service.dto;
+
+public class ShardDTO {
+
+    private String name;
+
+    private long accounts;
+
+    public ShardDTO(String name, long accounts) {
+        this.name = name;
+        this.accounts = accounts;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getAccounts() {
+        return accounts;
+    }
+}
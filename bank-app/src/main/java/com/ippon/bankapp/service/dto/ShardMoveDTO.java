@@ -0,0 +1,28 @@
+package com.ippon.bankapp.service.dto;
+
+public class ShardMoveDTO {
+
+    private String from;
+
+    private String to;
+
+    private int accounts;
+
+    public ShardMoveDTO(String from, String to, int accounts) {
+        this.from = from;
+        this.to = to;
+        this.accounts = accounts;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public int getAccounts() {
+        return accounts;
+    }
+}
@@ -0,0 +1,85 @@
+package com.ippon.bankapp.service.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class StatementDTO {
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    private BigDecimal openingBalance;
+
+    private BigDecimal closingBalance;
+
+    private int postings;
+
+    public StatementDTO() {
+    }
+
+    public StatementDTO from(LocalDate from) {
+        this.from = from;
+        return this;
+    }
+
+    public StatementDTO to(LocalDate to) {
+        this.to = to;
+        return this;
+    }
+
+    public StatementDTO openingBalance(BigDecimal openingBalance) {
+        this.openingBalance = openingBalance;
+        return this;
+    }
+
+    public StatementDTO closingBalance(BigDecimal closingBalance) {
+        this.closingBalance = closingBalance;
+        return this;
+    }
+
+    public StatementDTO postings(int postings) {
+        this.postings = postings;
+        return this;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public BigDecimal getOpeningBalance() {
+        return openingBalance;
+    }
+
+    public void setOpeningBalance(BigDecimal openingBalance) {
+        this.openingBalance = openingBalance;
+    }
+
+    public BigDecimal getClosingBalance() {
+        return closingBalance;
+    }
+
+    public void setClosingBalance(BigDecimal closingBalance) {
+        this.closingBalance = closingBalance;
+    }
+
+    public int getPostings() {
+        return postings;
+    }
+
+    public void setPostings(int postings) {
+        this.postings = postings;
+    }
+}
@@ -1,14 +1,14 @@
 package com.ippon.bankapp.service.dto;
 
-import java.math.BigDecimal;
+import com.ippon.bankapp.domain.Money;
 
 public class TransactionDTO {
 
     private String type;
 
-    private BigDecimal amount;
+    private Money amount;
 
-    public TransactionDTO(String type, BigDecimal amount) {
+    public TransactionDTO(String type, Money amount) {
         this.type = type;
         this.amount = amount;
 
@@ -22,11 +22,11 @@ public class TransactionDTO {
         this.type = type;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 }
@@ -0,0 +1,59 @@
+package com.ippon.bankapp.service.dto;
+
+import com.ippon.bankapp.domain.Money;
+
+import java.time.LocalDateTime;
+
+/**
+ * One ledger row, as exported and as paged through in the history. Selected with a constructor expression, so
+ * neither ever puts Transaction or Account entities in the persistence context.
+ */
+public class TransactionExportDTO {
+
+    private int transactionId;
+
+    private LocalDateTime timestamp;
+
+    private String type;
+
+    private Money amount;
+
+    public TransactionExportDTO(int transactionId, LocalDateTime timestamp, String type, Money amount) {
+        this.transactionId = transactionId;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.amount = amount;
+    }
+
+    public int getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(int transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Money amount) {
+        this.amount = amount;
+    }
+}
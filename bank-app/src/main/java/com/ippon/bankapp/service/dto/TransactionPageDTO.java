@@ -0,0 +1,31 @@
+package com.ippon.bankapp.service.dto;
+
+import java.util.List;
+
+public class TransactionPageDTO {
+
+    private List<TransactionDTO> transactions;
+
+    private String nextCursor;
+
+    public TransactionPageDTO(List<TransactionDTO> transactions, String nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TransactionDTO> getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(List<TransactionDTO> transactions) {
+        this.transactions = transactions;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,4 @@
+package com.ippon.bankapp.service.exception;
+
+public class ExportFormatNotValidException extends BankAppException {
+}
@@ -0,0 +1,14 @@
+package com.ippon.bankapp.service.exception;
+
+public class RateLimitExceededException extends BankAppException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(long retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
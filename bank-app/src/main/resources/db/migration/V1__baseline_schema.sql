@@ -0,0 +1,53 @@
+-- The schema as Hibernate generated it before migrations took over, so existing databases can be baselined at 1.
+
+create sequence account_seq start with 1 increment by 50;
+create sequence transactions_seq start with 1 increment by 50;
+create sequence balance_snapshot_seq start with 1 increment by 50;
+create sequence outbox_event_seq start with 1 increment by 50;
+
+create table account (
+    account_id              integer        not null,
+    version                 bigint         not null default 0,
+    balance                 numeric(19, 2),
+    first_name              varchar(255),
+    last_name               varchar(255),
+    notification_preference varchar(255),
+    last_updated_date       timestamp,
+    primary key (account_id)
+);
+
+create table transactions (
+    transaction_id   integer        not null,
+    transaction_type varchar(255),
+    amount           numeric(19, 2),
+    timestamp        timestamp,
+    account_id       integer        not null,
+    primary key (transaction_id),
+    constraint fk_transactions_account foreign key (account_id) references account (account_id)
+);
+
+create index idx_transactions_account_timestamp on transactions (account_id, timestamp, transaction_id);
+
+create table balance_snapshot (
+    snapshot_id     bigint         not null,
+    account_id      integer,
+    snapshot_date   date,
+    opening_balance numeric(19, 2),
+    closing_balance numeric(19, 2),
+    postings        integer,
+    primary key (snapshot_id)
+);
+
+create unique index uk_balance_snapshot_account_date on balance_snapshot (account_id, snapshot_date);
+
+create table outbox_event (
+    event_id    bigint       not null,
+    source      varchar(255),
+    channel     varchar(255),
+    destination varchar(255),
+    subject     varchar(255),
+    message     varchar(255),
+    attempts    integer,
+    created_at  timestamp,
+    primary key (event_id)
+);
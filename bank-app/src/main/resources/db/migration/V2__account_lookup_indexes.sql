@@ -0,0 +1,5 @@
+-- findByLastName and findByFirstName lookups. Last names are unique, so account creation relies on this index
+-- instead of reading before it inserts.
+
+create unique index uk_account_last_name on account (last_name);
+create index idx_account_first_name on account (first_name);
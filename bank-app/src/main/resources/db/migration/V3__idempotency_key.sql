@@ -0,0 +1,12 @@
+-- One row per client-supplied Idempotency-Key. The row is inserted before the posting runs, so the primary key
+-- is what stops two nodes from running the same request; response stays null until the posting has finished.
+
+create table idempotency_key (
+    idempotency_key varchar(255)  not null,
+    request         varchar(255)  not null,
+    response        varchar(2000),
+    created_at      timestamp     not null,
+    primary key (idempotency_key)
+);
+
+create index idx_idempotency_key_created_at on idempotency_key (created_at);
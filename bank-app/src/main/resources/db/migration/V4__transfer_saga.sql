@@ -0,0 +1,16 @@
+-- One row per wire transfer between accounts on different shards. The sender's shard holds the saga from the debit
+-- until it is completed or compensated; the recipient's shard holds a row with the same id, written in the same
+-- transaction as the credit, so a retried credit can tell it has already been applied.
+
+create table transfer_saga (
+    saga_id           varchar(36)    not null,
+    from_account_id   integer        not null,
+    to_account_id     integer        not null,
+    amount            numeric(19, 2) not null,
+    state             varchar(16)    not null,
+    recipient_message varchar(255),
+    created_at        timestamp      not null,
+    primary key (saga_id)
+);
+
+create index idx_transfer_saga_state_created_at on transfer_saga (state, created_at);
@@ -0,0 +1,4 @@
+-- Lets the archiver find the oldest month still in the hot table, and read or delete one month, without scanning
+-- the whole table.
+
+create index idx_transactions_timestamp on transactions (timestamp);
@@ -0,0 +1,10 @@
+-- Per-account daily deposit limits. A row names either a tier from bankapp.deposit.tiers or its own daily_limit,
+-- which wins when both are set. Accounts without a row get bankapp.deposit.daily-limit.
+
+create table deposit_limit (
+    account_id  integer        not null,
+    tier        varchar(32),
+    daily_limit numeric(19, 2),
+    primary key (account_id),
+    constraint fk_deposit_limit_account foreign key (account_id) references account (account_id) on delete cascade
+);
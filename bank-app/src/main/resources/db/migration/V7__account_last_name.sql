@@ -0,0 +1,11 @@
+-- With sharding, the last name reservations of every account, kept on shard-0 only. Each shard's unique index
+-- on account.last_name sees only its own accounts, so the primary key here is what keeps last names unique
+-- across shards. The table is created on every shard, since they all share these migrations, and stays empty
+-- on the others and without sharding.
+
+create table account_last_name (
+    last_name  varchar(255) not null,
+    account_id integer      not null,
+    claimed_at timestamp    not null,
+    primary key (last_name)
+);
@@ -0,0 +1,8 @@
+-- When the attempt holding the key started. A key still without a response well after that belongs to an attempt
+-- whose node died before recording it, and the next retry takes the key over.
+
+alter table idempotency_key add column started_at timestamp;
+
+update idempotency_key set started_at = created_at;
+
+alter table idempotency_key alter column started_at set not null;
@@ -55,7 +55,7 @@ public class AccountStepDefinitions {
 
         assertThat(accountDTO.getFirstName(), is(first));
         assertThat(accountDTO.getLastName(), is(last));
-        assertThat(accountDTO.getBalance(), is(BigDecimal.ZERO));
+        assertThat(accountDTO.getBalance(), is(new BigDecimal("0.00")));
         assertThat(accountDTO.getNotificationPreference(), is("email"));
     }
 
@@ -0,0 +1,76 @@
+package com.ippon.bankapp.domain;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void parsesPlainDecimals() {
+        assertThat(Money.parse("12").getMinor(), is(1200L));
+        assertThat(Money.parse("12.5").getMinor(), is(1250L));
+        assertThat(Money.parse("-0.05").getMinor(), is(-5L));
+        assertThat(Money.parse("+7.10").getMinor(), is(710L));
+        assertThat(Money.parse(".5").getMinor(), is(50L));
+        assertThat(Money.parse("1.2500").getMinor(), is(125L));
+        assertThat(Money.parse("1e2").getMinor(), is(10000L));
+        assertThat(Money.parse("0"), is(sameInstance(Money.ZERO)));
+    }
+
+    @Test
+    public void rejectsAmountsItCannotHold() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("0.001"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.2.3"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("-"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("abc"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.001")));
+    }
+
+    @Test
+    public void arithmeticIsExact() {
+        Money balance = Money.parse("0.10").plus(Money.parse("0.20"));
+
+        assertThat(balance, is(Money.parse("0.30")));
+        assertThat(balance.minus(Money.parse("0.30")).isZero(), is(true));
+        assertThat(Money.parse("1").compareTo(Money.parse("0.99")), is(1));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1)));
+    }
+
+    @Test
+    public void currenciesDoNotMix() {
+        Money euros = Money.parse("1", Currency.getInstance("EUR"));
+
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("1").plus(euros));
+        assertThat(Money.parse("1000", Currency.getInstance("JPY")).toString(), is("1000"));
+    }
+
+    @Test
+    public void formatsWithTheCurrencyScale() {
+        assertThat(Money.parse("12.5").toString(), is("12.50"));
+        assertThat(Money.parse("-0.05").toString(), is("-0.05"));
+        assertThat(Money.ofMinor(Long.MIN_VALUE).toString(), is("-92233720368547758.08"));
+        assertThat(Money.parse("12.5").toBigDecimal(), comparesEqualTo(new BigDecimal("12.50")));
+    }
+
+    @Test
+    public void roundTripsThroughJson() throws Exception {
+        assertThat(objectMapper.writeValueAsString(Money.parse("12.5")), is("12.50"));
+        assertThat(objectMapper.readValue("12.5", Money.class), is(Money.parse("12.50")));
+        assertThat(objectMapper.readValue("\"12.5\"", Money.class), is(Money.parse("12.50")));
+        assertThrows(JsonMappingException.class, () -> objectMapper.readValue("0.001", Money.class));
+        assertThrows(JsonMappingException.class, () -> objectMapper.readValue("true", Money.class));
+    }
+}
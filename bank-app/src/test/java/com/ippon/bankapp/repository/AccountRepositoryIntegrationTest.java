@@ -1,18 +1,23 @@
 package com.ippon.bankapp.repository;
 
 import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.service.dto.AccountDTO;
 import com.ippon.bankapp.service.exception.AccountNotFoundException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.math.BigDecimal;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.comparesEqualTo;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
 public class AccountRepositoryIntegrationTest {
@@ -45,6 +50,13 @@ public class AccountRepositoryIntegrationTest {
         assertThat(result, is(Optional.of(account)));
     }
 
+    @Test
+    public void lastNamesAreUnique() {
+        subject.save(new Account("First", "Last"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> subject.save(new Account("Other", "Last")));
+    }
+
     @Test
     @Sql(scripts = "classpath:sql/account_insert.sql")
     public void fetchesByLastname() {
@@ -54,9 +66,27 @@ public class AccountRepositoryIntegrationTest {
                 .orElseThrow(AccountNotFoundException::new);
 
         assertThat(result.getAccountId(), is(-10));
-        assertThat(result.getBalance(), is(BigDecimal.valueOf(145.32)));
+        assertThat(result.getBalance(), is(Money.parse("145.32")));
         assertThat(result.getFirstName(), is("Ben"));
         assertThat(result.getLastName(), is("Scott"));
         assertThat(result.getNotificationPreference(), is("email"));
     }
+
+    @Test
+    @Sql(scripts = "classpath:sql/account_insert.sql")
+    public void projectsTheDTOColumns() {
+
+        AccountDTO result = subject
+                .findDTOByLastName("Scott")
+                .orElseThrow(AccountNotFoundException::new);
+
+        assertThat(result.getAccountId(), is(-10));
+        assertThat(result.getBalance(), comparesEqualTo(new BigDecimal("145.32")));
+        assertThat(result.getFirstName(), is("Ben"));
+        assertThat(subject.findDTOByAccountId(-10), is(Optional.of(result)));
+        assertThat(subject.findAccountIdByFirstName("Ben"), is(Optional.of(-10)));
+        assertThat(subject.findBalanceByAccountId(-10), is(Optional.of(Money.parse("145.32"))));
+        assertThat(subject.existsByAccountId(-11), is(true));
+        assertThat(subject.existsByAccountId(-99), is(false));
+    }
 }
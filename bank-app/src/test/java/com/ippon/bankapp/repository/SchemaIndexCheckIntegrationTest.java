@@ -0,0 +1,36 @@
+package com.ippon.bankapp.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:indexes")
+public class SchemaIndexCheckIntegrationTest {
+
+    @Autowired
+    private SchemaIndexCheck schemaIndexCheck;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void passesAgainstTheMigratedSchema() throws Exception {
+        schemaIndexCheck.run(null);
+    }
+
+    @Test
+    public void failsWhenAnIndexIsMissing() {
+        jdbcTemplate.execute("drop index idx_account_first_name");
+        try {
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> schemaIndexCheck.run(null));
+            assertThat(e.getMessage(), containsString("account.idx_account_first_name"));
+        } finally {
+            jdbcTemplate.execute("create index idx_account_first_name on account (first_name)");
+        }
+    }
+}
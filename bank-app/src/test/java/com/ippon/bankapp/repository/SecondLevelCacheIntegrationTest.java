@@ -0,0 +1,157 @@
+package com.ippon.bankapp.repository;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.service.AccountService;
+import com.ippon.bankapp.service.CacheRegionStats;
+import com.ippon.bankapp.service.dto.CacheRegionStatsDTO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:secondlevelcache",
+        "bankapp.second-level-cache.query-cache=true"})
+public class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private CacheRegionStats cacheRegionStats;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+    private Account ben;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+        ben = accountRepository.save(new Account("Ben", "Scott"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        idempotencyKeyRepository.deleteAll();
+        balanceSnapshotRepository.deleteAll();
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    public void repeatedLoadsByIdRunNoSql() {
+        int id = ben.getAccountId();
+        accountRepository.findById(id);
+
+        assertThat(statementsFor(() -> accountRepository.findById(id).get().getFirstName()), is(0L));
+        assertThat(statistics.getSecondLevelCacheHitCount(), greaterThan(0L));
+    }
+
+    @Test
+    public void lastNameLookupUsesTheNaturalIdCache() {
+        accountRepository.findByLastName("Scott");
+
+        assertThat(statementsFor(() -> accountRepository.findByLastName("Scott").get().getFirstName()), is(0L));
+        assertThat(statistics.getNaturalIdCacheHitCount(), greaterThan(0L));
+    }
+
+    @Test
+    public void cacheableFindersUseTheQueryCacheUntilTheTableChanges() {
+        int id = ben.getAccountId();
+        accountRepository.findByAccountId(id);
+
+        assertThat(statementsFor(() -> accountRepository.findByAccountId(id).get().getFirstName()), is(0L));
+        assertThat(statistics.getQueryCacheHitCount(), is(1L));
+
+        accountService.deposit(id, Money.parse("10"));
+
+        statistics.clear();
+        assertThat(accountRepository.findByAccountId(id).get().getBalance().toBigDecimal(), comparesEqualTo(BigDecimal.TEN));
+        assertThat(statistics.getQueryCacheHitCount(), is(0L));
+    }
+
+    @Test
+    public void postingsUpdateTheCachedAccount() {
+        int id = ben.getAccountId();
+        accountService.deposit(id, Money.parse("10"));
+        accountService.withdraw(id, Money.parse("4"));
+
+        assertThat(accountRepository.findById(id).get().getBalance().toBigDecimal(), comparesEqualTo(new BigDecimal("6")));
+    }
+
+    @Test
+    public void claimingAnIdempotencyKeyLeavesAccountsCached() {
+        int id = ben.getAccountId();
+        accountRepository.findById(id);
+        inTransaction(() -> {
+            idempotencyKeyRepository.claim("key-1", "deposit " + id + " 10.00", LocalDateTime.now());
+            return null;
+        });
+
+        assertThat(statementsFor(() -> accountRepository.findById(id).get().getFirstName()), is(0L));
+    }
+
+    @Test
+    public void reportsRegionStatistics() {
+        int id = ben.getAccountId();
+        accountRepository.findById(id);
+        accountRepository.findById(id);
+
+        List<CacheRegionStatsDTO> regions = cacheRegionStats.regions();
+        assertThat(regions.stream().map(CacheRegionStatsDTO::getName).collect(Collectors.toList()), contains(
+                Account.CACHE_REGION, Account.LAST_NAME_CACHE_REGION, "default-query-results-region"));
+        CacheRegionStatsDTO account = regions.stream()
+                .filter(region -> region.getName().equals(Account.CACHE_REGION))
+                .findFirst()
+                .get();
+        assertThat(account.getSize(), is(1L));
+        assertThat(account.getHitCount(), greaterThan(0L));
+    }
+
+    private long statementsFor(Supplier<?> lookup) {
+        statistics.clear();
+        inTransaction(lookup);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
+    }
+}
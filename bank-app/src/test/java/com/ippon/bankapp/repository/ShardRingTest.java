@@ -0,0 +1,59 @@
+package com.ippon.bankapp.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class ShardRingTest {
+
+    private static final int ACCOUNTS = 30_000;
+
+    @Test
+    public void spreadsConsecutiveIdsAcrossShards() {
+        ShardRing ring = new ShardRing(Arrays.asList("shard-0", "shard-1", "shard-2"), 64);
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int id = 1; id <= ACCOUNTS; id++) {
+            owned.merge(ring.shardFor(id), 1, Integer::sum);
+        }
+
+        for (String shard : ring.getShards()) {
+            assertThat(shard, owned.get(shard), both(greaterThan(ACCOUNTS / 5)).and(lessThan(ACCOUNTS / 2)));
+        }
+    }
+
+    @Test
+    public void addingAShardOnlyMovesAccountsOntoIt() {
+        ShardRing before = new ShardRing(Arrays.asList("shard-0", "shard-1", "shard-2"), 64);
+        ShardRing after = new ShardRing(Arrays.asList("shard-0", "shard-1", "shard-2", "shard-3"), 64);
+
+        int moved = 0;
+        for (int id = 1; id <= ACCOUNTS; id++) {
+            String owner = after.shardFor(id);
+            if (!owner.equals(before.shardFor(id))) {
+                assertThat(owner, is("shard-3"));
+                moved++;
+            }
+        }
+
+        assertThat(moved, both(greaterThan(ACCOUNTS / 8)).and(lessThan(ACCOUNTS * 3 / 8)));
+    }
+
+    @Test
+    public void ownershipDependsOnNamesNotOrder() {
+        ShardRing ring = new ShardRing(Arrays.asList("shard-0", "shard-1"), 64);
+        ShardRing reordered = new ShardRing(Arrays.asList("shard-1", "shard-0"), 64);
+
+        for (int id = -100; id <= 1000; id++) {
+            assertThat(reordered.shardFor(id), is(ring.shardFor(id)));
+        }
+    }
+}
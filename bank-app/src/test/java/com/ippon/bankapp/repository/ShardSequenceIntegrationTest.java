@@ -0,0 +1,74 @@
+package com.ippon.bankapp.repository;
+
+import com.ippon.bankapp.service.AccountService;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.tool.schema.extract.spi.SequenceInformation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The other sharding tests run H2 with the PostgreSQL dialect, under which Hibernate cannot read sequence metadata
+ * and so never compares a sequence's increment with its generator's. With H2's own dialect it does, as it does on
+ * PostgreSQL, and the shards' sequences step by more than the generators' block size.
+ */
+@SpringBootTest(properties = {
+        "bankapp.sharding.shards=jdbc:h2:mem:sequence-shard-0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:sequence-shard-1;DB_CLOSE_DELAY=-1",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "bankapp.outbox.poll-interval-ms=3600000",
+        "bankapp.sharding.saga.retry-after-ms=3600000"
+})
+public class ShardSequenceIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private Shards shards;
+
+    @Test
+    public void generatorsAcceptTheAlignedSequences() {
+        SequenceInformation accountSequence = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getJdbcEnvironment().getExtractedDatabaseMetaData().getSequenceInformationList()
+                .stream()
+                .filter(sequence -> sequence.getSequenceName().getSequenceName().getText().equalsIgnoreCase("account_seq"))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        assertThat(accountSequence.getIncrementValue().intValue(), is(ShardDataSourceConfiguration.ALLOCATION_SIZE * 2));
+
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(accountService.createAccount(new AccountDTO().firstName("Seq" + i).lastName("Sequence" + i)).getAccountId());
+        }
+        assertThat(ids.size(), is(10));
+    }
+
+    @Test
+    public void generatorsKeepTheMappedBlockSoShardsNeverOverlap() {
+        Set<Integer> drawn = new HashSet<>();
+        int draws = 0;
+        for (String shard : shards.names()) {
+            // three blocks each, so every shard also draws past its first round
+            for (int i = 0; i < ShardDataSourceConfiguration.ALLOCATION_SIZE * 3; i++) {
+                drawn.add(shards.onShard(shard, accountRepository::nextAccountId));
+                draws++;
+            }
+        }
+
+        assertThat(drawn.size(), is(draws));
+    }
+}
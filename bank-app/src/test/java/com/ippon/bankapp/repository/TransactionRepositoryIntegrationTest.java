@@ -0,0 +1,68 @@
+package com.ippon.bankapp.repository;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.domain.Transaction;
+import com.ippon.bankapp.service.dto.TransactionExportDTO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+@SpringBootTest
+@Transactional
+public class TransactionRepositoryIntegrationTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository subject;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void pagesThroughHistoryNewestFirst() {
+        Account account = accountRepository.save(new Account("First", "Last"));
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 9, 0);
+        for (int i = 0; i < 5; i++) {
+            Transaction transaction = new Transaction(account, "Deposit of " + i + "$", Money.ofMinor(i * 100L));
+            transaction.setTimestamp(start.plusMinutes(i));
+            subject.save(transaction);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<TransactionExportDTO> firstPage = subject.findLatestByAccountId(account.getAccountId(), PageRequest.of(0, 2));
+        assertThat(firstPage.size(), is(2));
+        assertThat(firstPage.get(0).getType(), is("Deposit of 4$"));
+        assertThat(firstPage.get(1).getType(), is("Deposit of 3$"));
+
+        TransactionExportDTO last = firstPage.get(1);
+        List<TransactionExportDTO> secondPage = subject.findPageByAccountIdBefore(account.getAccountId(),
+                last.getTimestamp(), last.getTransactionId(), PageRequest.of(0, 10));
+        assertThat(secondPage.size(), is(3));
+        assertThat(secondPage.get(0).getType(), is("Deposit of 2$"));
+        assertThat(secondPage.get(2).getType(), is("Deposit of 0$"));
+        // projections: neither the transactions nor their account were loaded as entities
+        assertThat(statistics.getEntityLoadCount(), is(0L));
+    }
+}
@@ -2,38 +2,73 @@ package com.ippon.bankapp.rest;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.IdempotencyKeyRepository;
 import com.ippon.bankapp.rest.errors.RestErrorHandler;
 import com.ippon.bankapp.service.AccountService;
+import com.ippon.bankapp.service.AdmissionControl;
+import com.ippon.bankapp.service.BatchService;
+import com.ippon.bankapp.service.ExportFormat;
+import com.ippon.bankapp.service.IdempotentRequests;
+import com.ippon.bankapp.service.RateLimiter;
 import com.ippon.bankapp.service.TransactionService;
 import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.dto.BatchOperationDTO;
+import com.ippon.bankapp.service.dto.BatchResultDTO;
+import com.ippon.bankapp.service.dto.PendingTransferDTO;
+import com.ippon.bankapp.service.dto.StatementDTO;
 import com.ippon.bankapp.service.dto.TransactionDTO;
+import com.ippon.bankapp.service.dto.TransactionPageDTO;
 import com.ippon.bankapp.service.exception.AccountLastNameExistsException;
 import com.ippon.bankapp.service.exception.AccountNotFoundException;
 import com.ippon.bankapp.service.exception.DepositNotValidException;
+import com.ippon.bankapp.service.exception.StatementRangeNotValidException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest(classes = {AccountController.class, RestErrorHandler.class})
+@SpringBootTest(classes = {AccountController.class, RestErrorHandler.class, IdempotentRequests.class,
+        JacksonAutoConfiguration.class})
 class AccountControllerTest {
 
     @MockBean
@@ -42,16 +77,29 @@ class AccountControllerTest {
     @MockBean
     private TransactionService transactionService;
 
+    @MockBean
+    private BatchService batchService;
+
+    @MockBean
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private RestErrorHandler restErrorHandler;
 
+    @Autowired
+    private IdempotentRequests idempotentRequests;
+
     private MockMvc mockMvc;
 
     private ObjectMapper objectMapper = new ObjectMapper();
 
     @BeforeEach
     public void before() {
-        AccountController subject = new AccountController(accountService, transactionService);
+        AccountController subject = new AccountController(accountService, transactionService, batchService,
+                idempotentRequests);
         this.mockMvc = MockMvcBuilders
                 .standaloneSetup(subject)
                 .setControllerAdvice(restErrorHandler)
@@ -132,13 +180,13 @@ class AccountControllerTest {
 
     @Test
     public void testDeposit_givenValidDeposit() throws Exception {
-        given(accountService.deposit(1,new BigDecimal("2000")))
+        given(accountService.deposit(1,Money.parse("2000")))
                 .willReturn(new AccountDTO().firstName("Ben").lastName("Scott").balance(new BigDecimal("2000")));
     }
 
     @Test
     public void testAccountDepositHandlingFailureWithNegative() throws Exception {
-        given(accountService.deposit(1, new BigDecimal(-2000))).willThrow(new DepositNotValidException());
+        given(accountService.deposit(1, Money.parse("-2000"))).willThrow(new DepositNotValidException());
 
         String errorMessage = mockMvc
                 .perform(get("/api/deposit"))
@@ -149,15 +197,15 @@ class AccountControllerTest {
 
     @Test
     public void testAccountDepositHandlingFailureWithTimeslot() throws Exception {
-        given(accountService.deposit(1, new BigDecimal(2500))).willReturn(new AccountDTO()
+        given(accountService.deposit(1, Money.parse("2500"))).willReturn(new AccountDTO()
                 .firstName("Ben")
                 .lastName("Scott")
                 .balance(new BigDecimal(2500)));
-        given(accountService.deposit(1, new BigDecimal(2500))).willReturn(new AccountDTO()
+        given(accountService.deposit(1, Money.parse("2500"))).willReturn(new AccountDTO()
                 .firstName("Ben")
                 .lastName("Scott")
                 .balance(new BigDecimal(5000)));
-        given(accountService.deposit(1, new BigDecimal(2500))).willThrow(new DepositNotValidException());
+        given(accountService.deposit(1, Money.parse("2500"))).willThrow(new DepositNotValidException());
 
         String errorMessage = mockMvc
                 .perform(get("/api/deposit"))
@@ -168,11 +216,11 @@ class AccountControllerTest {
 
     @Test
     public void testAccount_givenValidWithdrawAmount() throws Exception {
-        given(accountService.deposit(1, new BigDecimal(2500))).willReturn(new AccountDTO()
+        given(accountService.deposit(1, Money.parse("2500"))).willReturn(new AccountDTO()
                 .firstName("Ben")
                 .lastName("Scott")
                 .balance(new BigDecimal(2500)));
-        given(accountService.withdraw(1, new BigDecimal(2000))).willReturn(new AccountDTO()
+        given(accountService.withdraw(1, Money.parse("2000"))).willReturn(new AccountDTO()
                 .firstName("Ben")
                 .lastName("Scott")
                 .balance(new BigDecimal(500)));
@@ -180,7 +228,7 @@ class AccountControllerTest {
 
     @Test
     public void testAccountWithdrawHandlingFailureWithNegative() throws Exception {
-        given(accountService.withdraw(1, new BigDecimal(-2000))).willThrow(new DepositNotValidException());
+        given(accountService.withdraw(1, Money.parse("-2000"))).willThrow(new DepositNotValidException());
 
         String errorMessage = mockMvc
                 .perform(get("/api/deposit"))
@@ -192,19 +240,19 @@ class AccountControllerTest {
     @Test
     public void testTransactionalList() throws Exception {
 
-        accountService.deposit(1, new BigDecimal(1));
-        accountService.deposit(1, new BigDecimal(1));
-        accountService.withdraw(1, new BigDecimal(1));
-        accountService.deposit(1, new BigDecimal(1));
-        accountService.deposit(1, new BigDecimal(1));
-        accountService.withdraw(1, new BigDecimal(1));
-        accountService.deposit(1, new BigDecimal(1));
+        accountService.deposit(1, Money.parse("1"));
+        accountService.deposit(1, Money.parse("1"));
+        accountService.withdraw(1, Money.parse("1"));
+        accountService.deposit(1, Money.parse("1"));
+        accountService.deposit(1, Money.parse("1"));
+        accountService.withdraw(1, Money.parse("1"));
+        accountService.deposit(1, Money.parse("1"));
 
 
         String message1 = "Deposit of " + 1 + "$";
         String message2 = "Withdrawal of " + 1 + "$";
-        TransactionDTO depositMessage = new TransactionDTO(message1, new BigDecimal(1));
-        TransactionDTO withdraw = new TransactionDTO(message2, new BigDecimal(1));
+        TransactionDTO depositMessage = new TransactionDTO(message1, Money.parse("1"));
+        TransactionDTO withdraw = new TransactionDTO(message2, Money.parse("1"));
         ArrayList<TransactionDTO> transactionDTOS = new ArrayList<>();
         transactionDTOS.add(depositMessage);
         transactionDTOS.add(withdraw);
@@ -217,9 +265,221 @@ class AccountControllerTest {
         given(returnable).willReturn(transactionDTOS);
     }
 
+    @Test
+    public void testTransactionHistoryPage() throws Exception {
+        given(transactionService.findTransactionPage(1, "abc", 1))
+                .willReturn(new TransactionPageDTO(
+                        Collections.singletonList(new TransactionDTO("Deposit of 1$", Money.parse("1"))),
+                        "def"));
+
+        mockMvc
+                .perform(get("/api/account/1/history").param("cursor", "abc").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions[0].type").value("Deposit of 1$"))
+                .andExpect(jsonPath("$.nextCursor").value("def"));
+    }
+
+    @Test
+    public void testStatement() throws Exception {
+        given(transactionService.findStatement(1, LocalDate.of(2020, 10, 1), LocalDate.of(2020, 10, 31)))
+                .willReturn(new StatementDTO()
+                        .from(LocalDate.of(2020, 10, 1))
+                        .to(LocalDate.of(2020, 10, 31))
+                        .openingBalance(new BigDecimal(100))
+                        .closingBalance(new BigDecimal(250))
+                        .postings(3));
+
+        mockMvc
+                .perform(get("/api/account/1/statement").param("from", "2020-10-01").param("to", "2020-10-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.openingBalance").value(100))
+                .andExpect(jsonPath("$.closingBalance").value(250))
+                .andExpect(jsonPath("$.postings").value(3));
+    }
+
+    @Test
+    public void testStatement_RangeNotValid() throws Exception {
+        given(transactionService.findStatement(1, LocalDate.of(2020, 10, 31), LocalDate.of(2020, 10, 1)))
+                .willThrow(new StatementRangeNotValidException());
+
+        mockMvc
+                .perform(get("/api/account/1/statement").param("from", "2020-10-31").param("to", "2020-10-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        willAnswer(invocation -> {
+            invocation.getArgument(2, OutputStream.class).write("{\"transactionId\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).given(transactionService).exportTransactions(eq(1), eq(ExportFormat.NDJSON), any(OutputStream.class));
+
+        MvcResult started = mockMvc
+                .perform(get("/api/account/1/export").param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc
+                .perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(content().string("{\"transactionId\":1}\n"));
+    }
+
+    @Test
+    public void testExport_FormatNotValid() throws Exception {
+        mockMvc
+                .perform(get("/api/account/1/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testExport_AccountNotFound() throws Exception {
+        willThrow(new AccountNotFoundException()).given(transactionService).validateAccountExists(1);
+
+        mockMvc
+                .perform(get("/api/account/1/export"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        given(batchService.apply(anyList()))
+                .willReturn(Arrays.asList(
+                        BatchResultDTO.applied(0, new BigDecimal(2500)),
+                        BatchResultDTO.rejected(1, "Account not found")));
+
+        mockMvc
+                .perform(post("/api/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Arrays.asList(
+                                new BatchOperationDTO().type("deposit").id(1).amount(Money.parse("2500")),
+                                new BatchOperationDTO().type("deposit").id(2).amount(Money.parse("2500"))))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("applied"))
+                .andExpect(jsonPath("$[0].balance").value(2500))
+                .andExpect(jsonPath("$[1].status").value("rejected"))
+                .andExpect(jsonPath("$[1].error").value("Account not found"));
+    }
+
+    @Test
+    public void testDepositInJSON() throws Exception {
+        given(accountService.deposit(1, Money.parse("25.5")))
+                .willReturn(new AccountDTO().firstName("Ben").lastName("Scott").balance(new BigDecimal("25.50")));
+
+        mockMvc
+                .perform(post("/api/deposit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":\"1\",\"amount\":25.5}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(25.5));
+
+        mockMvc
+                .perform(post("/api/deposit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":\"1\",\"amount\":\"25.50\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testWireTransferAwaitingItsCreditIsAccepted() throws Exception {
+        given(accountService.wireTransferFromAccount1ToAccount2(1, 2, Money.parse("30")))
+                .willReturn(new PendingTransferDTO("saga-1"));
+
+        mockMvc
+                .perform(post("/api/wire_transfers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":\"1\",\"id2\":\"2\",\"amount\":30}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.sagaId").value("saga-1"))
+                .andExpect(jsonPath("$.status").value("pending"));
+        mockMvc
+                .perform(post("/api/wire_transfers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":\"1\",\"id2\":\"3\",\"amount\":30}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testDepositInJSON_RetriedWithIdempotencyKey() throws Exception {
+        given(accountService.deposit(1, Money.parse("25.5")))
+                .willReturn(new AccountDTO().firstName("Ben").lastName("Scott").balance(new BigDecimal("25.50")));
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc
+                    .perform(post("/api/deposit")
+                            .header("Idempotency-Key", "retry-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"id\":\"1\",\"amount\":25.5}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.balance").value(25.5));
+        }
+        mockMvc
+                .perform(post("/api/withdraw")
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":\"1\",\"amount\":25.5}"))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(accountService, times(1)).deposit(1, Money.parse("25.5"));
+        verify(accountService, never()).withdraw(anyInt(), any(Money.class));
+    }
+
+    @Test
+    public void testRateLimitedPerAccount() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter(1, 1, 0, 0, 100);
+        MockMvc limited = MockMvcBuilders
+                .standaloneSetup(new AccountController(accountService, transactionService, batchService, idempotentRequests))
+                .addInterceptors(new AdmissionInterceptor(rateLimiter, new AdmissionControl(10, 0), ""))
+                .setControllerAdvice(restErrorHandler, new AccountRateLimitAdvice(rateLimiter))
+                .build();
+        given(accountService.getAccountByIdNum(1)).willReturn(new AccountDTO().firstName("Ben").lastName("Scott"));
+        given(accountService.deposit(2, Money.parse("1"))).willReturn(new AccountDTO().firstName("Bill").lastName("Bill"));
+
+        limited.perform(get("/api/account/identification/1")).andExpect(status().isOk());
+        limited.perform(get("/api/account/identification/1"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+        limited.perform(get("/api/account/identification/3")).andExpect(status().isOk());
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            limited.perform(post("/api/deposit")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"id\":\"2\",\"amount\":1}"))
+                    .andExpect(attempt == 0 ? status().isOk() : status().isTooManyRequests());
+        }
+        verify(accountService, times(1)).deposit(2, Money.parse("1"));
+    }
+
+    @Test
+    public void testShedsLoadWhenBusy() throws Exception {
+        AdmissionControl admissionControl = new AdmissionControl(1, 0);
+        MockMvc limited = MockMvcBuilders
+                .standaloneSetup(new AccountController(accountService, transactionService, batchService, idempotentRequests))
+                .addInterceptors(new AdmissionInterceptor(new RateLimiter(0, 0, 0, 0, 100), admissionControl, ""))
+                .setControllerAdvice(restErrorHandler)
+                .build();
+        given(accountService.getAccountByIdNum(1)).willReturn(new AccountDTO().firstName("Ben").lastName("Scott"));
+
+        limited.perform(get("/api/account/identification/1")).andExpect(status().isOk());
+        assertThat(admissionControl.available(), is(1));
+
+        admissionControl.admit();
+        limited.perform(get("/api/account/identification/1")).andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void testDepositInJSON_SubCentAmount() throws Exception {
+        mockMvc
+                .perform(post("/api/deposit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":\"1\",\"amount\":0.001}"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testTransfer(){
-        given(accountService.deposit(1, new BigDecimal(2500))).willReturn(new AccountDTO()
+        given(accountService.deposit(1, Money.parse("2500"))).willReturn(new AccountDTO()
                 .firstName("Ben")
                 .lastName("Scott")
                 .balance(new BigDecimal(2500)));
@@ -235,12 +495,12 @@ class AccountControllerTest {
                         .balance(BigDecimal.ZERO)
                         .notificationPreference("email"));
 
-        given(accountService.deposit(2, new BigDecimal(2500))).willReturn(new AccountDTO()
+        given(accountService.deposit(2, Money.parse("2500"))).willReturn(new AccountDTO()
                 .firstName("Bill")
                 .lastName("Bill")
                 .balance(new BigDecimal(2500)));
 
-        accountService.wireTransferFromAccount1ToAccount2(1,2,new BigDecimal(500));
+        accountService.wireTransferFromAccount1ToAccount2(1,2,Money.parse("500"));
 
         given(accountService.getAccountByIdNum(1)).willReturn(new AccountDTO()
                 .firstName("Ben")
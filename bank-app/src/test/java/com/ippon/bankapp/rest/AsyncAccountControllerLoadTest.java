@@ -0,0 +1,100 @@
+package com.ippon.bankapp.rest;
+
+import com.ippon.bankapp.service.AccountService;
+import com.ippon.bankapp.service.AdmissionControl;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Tomcat gets 4 request threads; the async endpoints must still hold 32 requests in flight at once. Every
+ * service call blocks until all 32 have arrived, so this only passes if none of them is holding a Tomcat
+ * thread while it waits - on the blocking endpoints the fifth request would queue behind the first four. Admission
+ * control is left at its default, which in async mode follows max-concurrency rather than the 10-connection pool.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:async",
+        "server.tomcat.max-threads=4",
+        "bankapp.web.execution-mode=async",
+        "bankapp.web.async.max-concurrency=64"})
+public class AsyncAccountControllerLoadTest {
+
+    private static final int IN_FLIGHT = 32;
+
+    @MockBean
+    private AccountService accountService;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @LocalServerPort
+    private int port;
+
+    private final RestTemplate client = new RestTemplate(new SimpleClientHttpRequestFactory());
+
+    @Test
+    public void holdsMoreRequestsInFlightThanTomcatHasThreads() throws Exception {
+        CountDownLatch allArrived = new CountDownLatch(IN_FLIGHT);
+        given(accountService.getAccountByIdNum(anyInt())).willAnswer(invocation -> {
+            allArrived.countDown();
+            if (!allArrived.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("requests were not served concurrently");
+            }
+            return new AccountDTO().firstName("Ben").lastName("Scott");
+        });
+
+        ExecutorService clients = Executors.newFixedThreadPool(IN_FLIGHT);
+        try {
+            List<Future<AccountDTO>> responses = new ArrayList<>();
+            for (int i = 0; i < IN_FLIGHT; i++) {
+                int id = i;
+                responses.add(clients.submit(() -> client.getForObject(url("/api/async/account/identification/" + id), AccountDTO.class)));
+            }
+            for (Future<AccountDTO> response : responses) {
+                assertThat(response.get(20, TimeUnit.SECONDS).getLastName(), is("Scott"));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    public void admissionFollowsTheAsyncConcurrency() {
+        assertThat(admissionControl.available(), is(64));
+    }
+
+    @Test
+    public void serviceErrorsAreMappedAsOnTheBlockingEndpoints() {
+        given(accountService.getAccount("Nobody")).willThrow(new AccountNotFoundException());
+
+        HttpClientErrorException error = assertThrows(HttpClientErrorException.class,
+                () -> client.getForObject(url("/api/async/account/lastName/Nobody"), AccountDTO.class));
+        assertThat(error.getStatusCode(), is(HttpStatus.NOT_FOUND));
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+}
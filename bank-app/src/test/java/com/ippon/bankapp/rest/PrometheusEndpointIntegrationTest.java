@@ -0,0 +1,41 @@
+package com.ippon.bankapp.rest;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.service.AccountService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.web.client.RestTemplate;
+
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:metrics")
+public class PrometheusEndpointIntegrationTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void scrapeIncludesOperationHistogramsPoolAndQueryMetrics() {
+        Account ben = accountRepository.save(new Account("Ben", "Scott"));
+        accountService.deposit(ben.getAccountId(), Money.parse("10"));
+
+        String scrape = new RestTemplate().getForObject("http://localhost:" + port + "/actuator/prometheus", String.class);
+
+        assertThat(scrape, containsString("bankapp_account_operation_seconds_bucket{application=\"bankapp\",operation=\"deposit\",outcome=\"success\""));
+        assertThat(scrape, containsString("hikaricp_connections_active"));
+        assertThat(scrape, containsString("hibernate_query_executions_total"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.ippon.bankapp.rest;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.domain.Transaction;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.BalanceSnapshotRepository;
+import com.ippon.bankapp.repository.TransactionRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Caps the SQL statements each endpoint prepares, against an account with a long history, so that an eager
+ * association or a collection touched on the posting path shows up as a failing count rather than as latency.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:querycount",
+        // statistics are per session factory, so the relay's polling would be counted against the endpoints
+        "bankapp.outbox.poll-interval-ms=3600000"})
+@AutoConfigureMockMvc
+public class QueryCountIntegrationTest {
+
+    private static final int HISTORY_SIZE = 200;
+    private static final int DEPOSITS_MEASURED = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Account busy;
+    private Account quiet;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        busy = accountRepository.save(new Account("Ben", "Scott"));
+        quiet = accountRepository.save(new Account("Bill", "Bill"));
+        List<Transaction> history = new ArrayList<>(HISTORY_SIZE);
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            history.add(new Transaction(busy, "Deposit of 1$", Money.parse("1")));
+        }
+        transactionRepository.saveAll(history);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        balanceSnapshotRepository.deleteAll();
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    public void readsStayWithinTheirQueryBudget() throws Exception {
+        int id = busy.getAccountId();
+        LocalDate today = LocalDate.now();
+
+        assertThat(statementsFor(get("/api/account/identification/" + id)), lessThanOrEqualTo(1L));
+        assertThat(statementsFor(get("/api/account/lastName/Scott")), lessThanOrEqualTo(1L));
+        assertThat(statementsFor(get("/api/account/firstName/Ben")), lessThanOrEqualTo(1L));
+        assertThat(statementsFor(get("/api/account/" + id + "/history")), lessThanOrEqualTo(2L));
+        assertThat(statementsFor(post("/api/history")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Ben\",\"lastName\":\"Scott\"}")), lessThanOrEqualTo(2L));
+        assertThat(statementsFor(get("/api/account/" + id + "/statement")
+                .param("from", today.toString())
+                .param("to", today.toString())), lessThanOrEqualTo(4L));
+    }
+
+    @Test
+    public void postingCostDoesNotGrowWithHistory() throws Exception {
+        long busyDeposit = depositStatements(busy);
+        long quietDeposit = depositStatements(quiet);
+
+        assertThat(busyDeposit, is(quietDeposit));
+        assertThat(busyDeposit, lessThanOrEqualTo(6L));
+        assertThat(statementsFor(post("/api/withdraw")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":\"" + busy.getAccountId() + "\",\"amount\":1}")), lessThanOrEqualTo(7L));
+        // the posting path never loads an account's transactions as entities
+        assertThat(statistics.getCollectionLoadCount(), is(0L));
+    }
+
+    /**
+     * The fewest statements over several deposits. Each id sequence hands out blocks of 50, so fetching a new
+     * block adds a statement to at most one deposit per sequence, and the fewest is the steady-state cost.
+     */
+    private long depositStatements(Account account) throws Exception {
+        long fewest = Long.MAX_VALUE;
+        for (int i = 0; i < DEPOSITS_MEASURED; i++) {
+            fewest = Math.min(fewest, statementsFor(post("/api/deposit")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"id\":\"" + account.getAccountId() + "\",\"amount\":1}")));
+        }
+        return fewest;
+    }
+
+    private long statementsFor(RequestBuilder request) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+}
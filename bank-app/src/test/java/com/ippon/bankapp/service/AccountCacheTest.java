@@ -0,0 +1,61 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.dto.CacheStatsDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AccountCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<Integer, AccountDTO> loader = id -> {
+        loads.incrementAndGet();
+        return new AccountDTO().firstName("Ben").lastName("Scott").balance(new BigDecimal(loads.get()));
+    };
+
+    @Test
+    public void servesRepeatedLookupsFromCache() {
+        AccountCache subject = new AccountCache(100, 60);
+
+        subject.get(1, loader);
+        AccountDTO result = subject.get(1, loader);
+
+        assertThat(loads.get(), is(1));
+        assertThat(result.getBalance(), is(BigDecimal.ONE));
+        CacheStatsDTO byId = subject.stats().get(0);
+        assertThat(byId.getHitCount(), is(1L));
+        assertThat(byId.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void invalidateForcesReload() {
+        AccountCache subject = new AccountCache(100, 60);
+
+        subject.get(1, loader);
+        subject.invalidate(1);
+        AccountDTO result = subject.get(1, loader);
+
+        assertThat(loads.get(), is(2));
+        assertThat(result.getBalance(), is(new BigDecimal(2)));
+    }
+
+    @Test
+    public void namesResolveToIds() {
+        AccountCache subject = new AccountCache(100, 60);
+
+        subject.rememberLastName("Scott", 7);
+        subject.rememberFirstName("Ben", 7);
+
+        assertThat(subject.idForLastName("Scott"), is(7));
+        assertThat(subject.idForFirstName("Ben"), is(7));
+        subject.forgetLastName("Scott");
+        assertThat(subject.idForLastName("Scott") == null, is(true));
+    }
+}
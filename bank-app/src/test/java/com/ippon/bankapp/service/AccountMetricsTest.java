@@ -0,0 +1,54 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import com.ippon.bankapp.service.exception.DepositNotValidException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AccountMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AccountMetrics subject = new AccountMetrics(registry, new OptimisticRetry(1, 0));
+
+    @Test
+    public void timesSuccessfulCallsByOperation() {
+        assertThat(subject.time("deposit", () -> "done"), is("done"));
+        subject.record("wireTransfer", () -> { });
+
+        assertThat(timerCount("deposit", "success"), is(1L));
+        assertThat(timerCount("wireTransfer", "success"), is(1L));
+    }
+
+    @Test
+    public void countsRejectedDeposits() {
+        assertThrows(DepositNotValidException.class, () -> subject.time("deposit", () -> {
+            throw new DepositNotValidException();
+        }));
+
+        assertThat(timerCount("deposit", "rejected"), is(1L));
+        assertThat(registry.get(AccountMetrics.REJECTED_COUNTER).tag("operation", "deposit").counter().count(), is(1.0));
+    }
+
+    @Test
+    public void countsNotFoundLookups() {
+        assertThrows(AccountNotFoundException.class, () -> subject.time("getAccountById", () -> {
+            throw new AccountNotFoundException();
+        }));
+
+        assertThat(timerCount("getAccountById", "not_found"), is(1L));
+        assertThat(registry.get(AccountMetrics.NOT_FOUND_COUNTER).tag("operation", "getAccountById").counter().count(), is(1.0));
+    }
+
+    private long timerCount(String operation, String outcome) {
+        return registry.get(AccountMetrics.OPERATION_TIMER)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+}
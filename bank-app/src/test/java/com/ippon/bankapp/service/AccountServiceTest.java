@@ -2,19 +2,28 @@ package com.ippon.bankapp.service;
 
 import com.ippon.bankapp.domain.Account;
 import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.Shards;
 import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.exception.AccountLastNameExistsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.sql.SQLException;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -31,6 +40,24 @@ public class AccountServiceTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private NotificationOutbox notificationOutbox;
+
+    @Mock
+    private BalanceSnapshots balanceSnapshots;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ReplicaReads replicaReads;
+
+    @Spy
+    private Shards shards = new Shards();
+
+    @Spy
+    private AccountMetrics accountMetrics = new AccountMetrics(new SimpleMeterRegistry(), new OptimisticRetry(1, 0));
+
     @InjectMocks
     public AccountService subject;
 
@@ -47,31 +74,35 @@ public class AccountServiceTest {
 
         given(emailService.getName()).willReturn("email");
 
-        given(notificationFactory.getPreferredService("email"))
-                .willReturn(Optional.of(emailService));
-
-        Account account = new Account(accountDto.getFirstName(), accountDto.getLastName());
-        account.setNotificationPreference("email");
+        given(accountRepository.save(any(Account.class))).willAnswer(invocation -> invocation.getArgument(0));
 
-        given(accountRepository.save(account)).willReturn(account);
-
-        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Account> notified = ArgumentCaptor.forClass(Account.class);
 
         //act
         AccountDTO accountResult = subject.createAccount(accountDto);
 
         //assert
-        assertThat(accountResult.getBalance(), is(BigDecimal.ZERO));
+        assertThat(accountResult.getBalance(), is(new BigDecimal("0.00")));
         assertThat(accountResult.getNotificationPreference(), is("email"));
         assertThat(accountResult.getFirstName(), is("Ben"));
         assertThat(accountResult.getLastName(), is("Scott"));
 
-        verify(emailService, times(1))
-                .sendMessage(message.capture(), message.capture(), message.capture(), message.capture());
-        assertThat(message.getAllValues().get(0), is("bank"));
-        assertThat(message.getAllValues().get(1), is(accountDto.getLastName()));
-        assertThat(message.getAllValues().get(2), is("Account Created"));
-        assertThat(message.getAllValues().get(3), is("Welcome aboard!"));
+        verify(notificationOutbox, times(1))
+                .publish(notified.capture(), eq("Account Created"), eq("Welcome aboard!"));
+        assertThat(notified.getValue().getLastName(), is(accountDto.getLastName()));
+        assertThat(notified.getValue().getNotificationPreference(), is("email"));
+    }
+
+    @Test
+    public void createAccount_lastNameTaken() {
+        given(notificationFactory.getDefaultNotification()).willReturn(emailService);
+        given(emailService.getName()).willReturn("email");
+        given(accountRepository.save(any(Account.class))).willThrow(new DataIntegrityViolationException(
+                "could not execute statement", new SQLException("Unique index or primary key violation: "
+                + "\"PUBLIC.UK_ACCOUNT_LAST_NAME ON PUBLIC.ACCOUNT(LAST_NAME) VALUES 1\"")));
+
+        assertThrows(AccountLastNameExistsException.class,
+                () -> subject.createAccount(new AccountDTO().firstName("Ben").lastName("Scott")));
     }
 
 }
@@ -0,0 +1,121 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.BalanceSnapshotRepository;
+import com.ippon.bankapp.repository.TransactionRepository;
+import com.ippon.bankapp.service.dto.BatchOperationDTO;
+import com.ippon.bankapp.service.dto.BatchResultDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:batch", "bankapp.batch.chunk-size=2"})
+public class BatchServiceIntegrationTest {
+
+    @Autowired
+    private BatchService subject;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @SpyBean
+    private BalanceSnapshots balanceSnapshots;
+
+    @AfterEach
+    public void tearDown() {
+        balanceSnapshotRepository.deleteAll();
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    public void appliesOperationsInOrderAndReportsEachResult() {
+        Account ben = accountRepository.save(new Account("Ben", "Scott"));
+        Account bill = accountRepository.save(new Account("Bill", "Bill"));
+
+        List<BatchResultDTO> results = subject.apply(Arrays.asList(
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(ben.getAccountId()).amount(Money.parse("100")),
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(bill.getAccountId()).amount(Money.parse("50")),
+                new BatchOperationDTO().type(BatchOperationDTO.TRANSFER).id(ben.getAccountId()).id2(bill.getAccountId()).amount(Money.parse("30")),
+                new BatchOperationDTO().type(BatchOperationDTO.WITHDRAW).id(-1).amount(Money.parse("10")),
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(ben.getAccountId()).amount(Money.parse("-5"))));
+
+        assertThat(results.size(), is(5));
+        assertThat(results.get(0).getStatus(), is(BatchResultDTO.APPLIED));
+        assertThat(results.get(2).getStatus(), is(BatchResultDTO.APPLIED));
+        assertThat(results.get(2).getBalance(), comparesEqualTo(new BigDecimal("70")));
+        assertThat(results.get(3).getError(), is(BatchService.ACCOUNT_NOT_FOUND));
+        assertThat(results.get(4).getIndex(), is(4));
+        assertThat(results.get(4).getError(), is(BatchService.OPERATION_NOT_VALID));
+
+        assertThat(accountRepository.findByAccountId(ben.getAccountId()).get().getBalance().toBigDecimal(), comparesEqualTo(new BigDecimal("70")));
+        assertThat(accountRepository.findByAccountId(bill.getAccountId()).get().getBalance().toBigDecimal(), comparesEqualTo(new BigDecimal("80")));
+        assertThat(transactionRepository.count(), is(4L));
+    }
+
+    @Test
+    public void everyPostingInAChunkCountsTowardsTheStatement() {
+        Account ben = accountRepository.save(new Account("Ben", "Scott"));
+
+        subject.apply(Arrays.asList(
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(ben.getAccountId()).amount(Money.parse("100")),
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(ben.getAccountId()).amount(Money.parse("50"))));
+
+        LocalDate today = LocalDate.now();
+        assertThat(transactionService.findStatement(ben.getAccountId(), today, today).getPostings(), is(2));
+    }
+
+    @Test
+    public void aFailedChunkRejectsItsOperationsAndTheOthersStand() {
+        Account ben = accountRepository.save(new Account("Ben", "Scott"));
+        Account bill = accountRepository.save(new Account("Bill", "Bill"));
+        doThrow(new IllegalStateException("snapshot write failed")).when(balanceSnapshots).recordAll(
+                argThat(accounts -> accounts.stream().anyMatch(account -> account.getAccountId() == bill.getAccountId())),
+                anyMap(), anyMap());
+
+        List<BatchResultDTO> results = subject.apply(Arrays.asList(
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(ben.getAccountId()).amount(Money.parse("100")),
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(ben.getAccountId()).amount(Money.parse("10")),
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(bill.getAccountId()).amount(Money.parse("50")),
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(ben.getAccountId()).amount(Money.parse("5")),
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(ben.getAccountId()).amount(Money.parse("1"))));
+
+        assertThat(results.size(), is(5));
+        assertThat(results.get(1).getStatus(), is(BatchResultDTO.APPLIED));
+        assertThat(results.get(2).getIndex(), is(2));
+        assertThat(results.get(2).getError(), is(BatchService.CHUNK_FAILED));
+        assertThat(results.get(3).getIndex(), is(3));
+        assertThat(results.get(3).getError(), is(BatchService.CHUNK_FAILED));
+        assertThat(results.get(4).getStatus(), is(BatchResultDTO.APPLIED));
+        assertThat(results.get(4).getBalance(), comparesEqualTo(new BigDecimal("111")));
+
+        assertThat(accountRepository.findByAccountId(ben.getAccountId()).get().getBalance().toBigDecimal(), comparesEqualTo(new BigDecimal("111")));
+        assertThat(accountRepository.findByAccountId(bill.getAccountId()).get().getBalance().toBigDecimal(), comparesEqualTo(BigDecimal.ZERO));
+        assertThat(transactionRepository.count(), is(3L));
+    }
+}
@@ -0,0 +1,132 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.DepositLimit;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.DepositLimitRepository;
+import com.ippon.bankapp.repository.Shards;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DailyDepositLedgerTest {
+
+    private static final Instant NOON = Instant.parse("2020-06-01T12:00:00Z");
+
+    @Test
+    public void rejectsDepositsOverTheDailyLimit() {
+        DailyDepositLedger subject = new DailyDepositLedger(limits(), Clock.fixed(NOON, ZoneOffset.UTC));
+
+        assertThat(subject.tryReserve(1, Money.parse("2500")), is(true));
+        assertThat(subject.tryReserve(1, Money.parse("2500")), is(true));
+        assertThat(subject.tryReserve(1, Money.parse("1")), is(false));
+        assertThat(subject.depositedToday(1), is(Money.parse("5000")));
+    }
+
+    @Test
+    public void limitIsPerAccount() {
+        DailyDepositLedger subject = new DailyDepositLedger(limits(), Clock.fixed(NOON, ZoneOffset.UTC));
+
+        assertThat(subject.tryReserve(1, Money.parse("5000")), is(true));
+        assertThat(subject.tryReserve(2, Money.parse("5000")), is(true));
+    }
+
+    @Test
+    public void allowanceResetsOnTheNextDay() {
+        AdjustableClock clock = new AdjustableClock(NOON);
+        DailyDepositLedger subject = new DailyDepositLedger(limits(), clock);
+        assertThat(subject.tryReserve(1, Money.parse("5000")), is(true));
+        assertThat(subject.tryReserve(1, Money.parse("1")), is(false));
+
+        clock.instant = NOON.plus(Duration.ofHours(12));
+
+        assertThat(subject.depositedToday(1), is(Money.ZERO));
+        assertThat(subject.tryReserve(1, Money.parse("5000")), is(true));
+    }
+
+    @Test
+    public void releaseReturnsAllowance() {
+        DailyDepositLedger subject = new DailyDepositLedger(limits(), Clock.fixed(NOON, ZoneOffset.UTC));
+
+        assertThat(subject.tryReserve(1, Money.parse("5000")), is(true));
+        subject.release(1, Money.parse("2000"));
+        assertThat(subject.tryReserve(1, Money.parse("2000")), is(true));
+    }
+
+    @Test
+    public void accountsCanHaveTheirOwnLimitOrTier() {
+        DailyDepositLedger subject = new DailyDepositLedger(limits(
+                new DepositLimit(2, "gold", null),
+                new DepositLimit(3, "gold", Money.parse("100")),
+                new DepositLimit(4, "platinum", null)), Clock.fixed(NOON, ZoneOffset.UTC));
+
+        assertThat(subject.tryReserve(1, Money.parse("5001")), is(false));
+        assertThat(subject.tryReserve(2, Money.parse("20000")), is(true));
+        assertThat(subject.tryReserve(3, Money.parse("101")), is(false));
+        assertThat(subject.tryReserve(4, Money.parse("5000")), is(true));
+        assertThat(subject.tryReserve(4, Money.parse("1")), is(false));
+    }
+
+    @Test
+    public void dayEndsAtMidnightInTheClocksZone() {
+        ZoneId paris = ZoneId.of("Europe/Paris");
+        // 23:59:59 in Paris
+        AdjustableClock clock = new AdjustableClock(Instant.parse("2020-06-01T21:59:59Z"), paris);
+        DailyDepositLedger subject = new DailyDepositLedger(limits(), clock);
+        assertThat(subject.tryReserve(1, Money.parse("5000")), is(true));
+
+        clock.instant = Instant.parse("2020-06-01T22:00:00Z");
+
+        assertThat(subject.tryReserve(1, Money.parse("5000")), is(true));
+        assertThat(subject.tryReserve(1, Money.parse("1")), is(false));
+    }
+
+    private static DepositLimits limits(DepositLimit... rows) {
+        DepositLimitProperties properties = new DepositLimitProperties();
+        properties.getTiers().put("gold", new BigDecimal(20000));
+        DepositLimitRepository repository = mock(DepositLimitRepository.class);
+        when(repository.findAll()).thenReturn(Arrays.asList(rows));
+        DepositLimits limits = new DepositLimits(properties, repository, new Shards());
+        limits.refresh();
+        return limits;
+    }
+
+    private static class AdjustableClock extends Clock {
+        private Instant instant;
+        private final ZoneId zone;
+
+        private AdjustableClock(Instant instant) {
+            this(instant, ZoneOffset.UTC);
+        }
+
+        private AdjustableClock(Instant instant, ZoneId zone) {
+            this.instant = instant;
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.ippon.bankapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.IdempotencyKeyRepository;
+import com.ippon.bankapp.repository.TransactionRepository;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.exception.DepositNotValidException;
+import com.ippon.bankapp.service.exception.IdempotencyKeyInProgressException;
+import com.ippon.bankapp.service.exception.IdempotencyKeyNotValidException;
+import com.ippon.bankapp.service.exception.IdempotencyKeyReusedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:idempotency")
+public class IdempotentRequestsIntegrationTest {
+
+    @Autowired
+    private IdempotentRequests subject;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    public void tearDown() {
+        idempotencyKeyRepository.deleteAll();
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    public void retriesReplayTheFirstResponse() {
+        int id = accountRepository.save(new Account("Ada", "Lovelace")).getAccountId();
+
+        AccountDTO first = deposit(subject, "key-1", id, "5");
+        AccountDTO retry = deposit(subject, "key-1", id, "5");
+        // a node whose cache has never seen the key finds the response in the table
+        IdempotentRequests otherNode = new IdempotentRequests(idempotencyKeyRepository, transactionManager,
+                objectMapper, 100, 24, 300_000);
+        AccountDTO retryElsewhere = deposit(otherNode, "key-1", id, "5");
+
+        assertThat(first.getBalance(), comparesEqualTo(new BigDecimal("5.00")));
+        assertThat(retry.getBalance(), comparesEqualTo(new BigDecimal("5.00")));
+        assertThat(retryElsewhere.getBalance(), comparesEqualTo(new BigDecimal("5.00")));
+        assertThat(accountService.getAccountByIdNum(id).getBalance(), comparesEqualTo(new BigDecimal("5.00")));
+        assertThat(transactionRepository.count(), is(1L));
+    }
+
+    @Test
+    public void aKeyBelongsToOneRequest() {
+        int id = accountRepository.save(new Account("Ada", "Byron")).getAccountId();
+        deposit(subject, "key-2", id, "5");
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> deposit(subject, "key-2", id, "6"));
+        assertThrows(IdempotencyKeyNotValidException.class, () -> deposit(subject, " ", id, "5"));
+    }
+
+    @Test
+    public void aFailedPostingGivesItsKeyBack() {
+        int id = accountRepository.save(new Account("Ada", "King")).getAccountId();
+
+        assertThrows(DepositNotValidException.class, () -> deposit(subject, "key-3", id, "-1"));
+        assertThat(idempotencyKeyRepository.existsById("key-3"), is(false));
+    }
+
+    @Test
+    public void aKeyStillRunningIsRefused() {
+        int id = accountRepository.save(new Account("Ada", "Running")).getAccountId();
+        inTransaction(() -> idempotencyKeyRepository.claim("key-4", "deposit " + id + " 5.00", LocalDateTime.now()));
+
+        assertThrows(IdempotencyKeyInProgressException.class, () -> deposit(subject, "key-4", id, "5"));
+        assertThat(transactionRepository.count(), is(0L));
+    }
+
+    @Test
+    public void aKeyWhoseAttemptNeverFinishedIsTakenOverOnceStale() {
+        int id = accountRepository.save(new Account("Ada", "Abandoned")).getAccountId();
+        inTransaction(() -> idempotencyKeyRepository.claim("key-5", "deposit " + id + " 5.00",
+                LocalDateTime.now().minusMinutes(10)));
+
+        assertThat(deposit(subject, "key-5", id, "5").getBalance(), comparesEqualTo(new BigDecimal("5")));
+        assertThat(deposit(subject, "key-5", id, "5").getBalance(), comparesEqualTo(new BigDecimal("5")));
+        assertThat(transactionRepository.count(), is(1L));
+        assertThat(idempotencyKeyRepository.findById("key-5").get().isCompleted(), is(true));
+    }
+
+    @Test
+    public void purgeRemovesExpiredKeys() {
+        inTransaction(() -> idempotencyKeyRepository.claim("old", "deposit 1 1.00", LocalDateTime.now().minusHours(25)));
+        inTransaction(() -> idempotencyKeyRepository.claim("new", "deposit 1 1.00", LocalDateTime.now()));
+
+        subject.purge();
+
+        assertThat(idempotencyKeyRepository.existsById("old"), is(false));
+        assertThat(idempotencyKeyRepository.existsById("new"), is(true));
+    }
+
+    private AccountDTO deposit(IdempotentRequests requests, String key, int id, String amount) {
+        Money money = Money.parse(amount);
+        return requests.execute(key, "deposit " + id + " " + money, AccountDTO.class,
+                () -> accountService.deposit(id, money));
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            work.run();
+            return null;
+        });
+    }
+}
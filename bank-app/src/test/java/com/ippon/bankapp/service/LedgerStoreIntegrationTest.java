@@ -0,0 +1,91 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.TransactionRepository;
+import com.ippon.bankapp.service.dto.BatchOperationDTO;
+import com.ippon.bankapp.service.dto.BatchResultDTO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledger",
+        "bankapp.ledger.store=memory",
+        "bankapp.ledger.directory=target/ledger-it"})
+public class LedgerStoreIntegrationTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private LedgerStore ledgerStore;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @BeforeAll
+    public static void clearJournal() {
+        FileSystemUtils.deleteRecursively(new File("target/ledger-it"));
+    }
+
+    @Test
+    public void postingsGoThroughTheStoreInsteadOfAccountRows() {
+        Account ben = accountRepository.save(new Account("Ben", "Scott"));
+        Account bill = fundedAccount("Bill", "Bill", "20");
+        long sequence = ledgerStore.lastSequence();
+
+        accountService.deposit(ben.getAccountId(), Money.parse("100.50"));
+        accountService.withdraw(ben.getAccountId(), Money.parse("0.50"));
+        accountService.wireTransferFromAccount1ToAccount2(ben.getAccountId(), bill.getAccountId(), Money.parse("30"));
+
+        assertThat(accountService.getAccountByIdNum(ben.getAccountId()).getBalance(), comparesEqualTo(new BigDecimal("70")));
+        assertThat(accountService.getAccountByIdNum(bill.getAccountId()).getBalance(), comparesEqualTo(new BigDecimal("50")));
+        // two opens, deposit, withdrawal and both legs of the transfer
+        assertThat(ledgerStore.lastSequence(), is(sequence + 6));
+        assertThat(accountRepository.findByAccountId(ben.getAccountId()).get().getBalance().toBigDecimal(), comparesEqualTo(BigDecimal.ZERO));
+        assertThat(transactionRepository.count(), is(0L));
+    }
+
+    @Test
+    public void batchesPostThroughTheStore() {
+        Account ben = fundedAccount("Ben", "Batch", "10");
+        Account bill = fundedAccount("Bill", "Batchelor", "10");
+
+        List<BatchResultDTO> results = batchService.apply(Arrays.asList(
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(ben.getAccountId()).amount(Money.parse("5")),
+                new BatchOperationDTO().type(BatchOperationDTO.TRANSFER).id(ben.getAccountId()).id2(bill.getAccountId()).amount(Money.parse("15")),
+                new BatchOperationDTO().type(BatchOperationDTO.WITHDRAW).id(ben.getAccountId()).amount(Money.parse("1")),
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(-1).amount(Money.parse("5"))));
+
+        assertThat(results.get(0).getBalance(), comparesEqualTo(new BigDecimal("15")));
+        assertThat(results.get(1).getBalance(), comparesEqualTo(BigDecimal.ZERO));
+        assertThat(results.get(2).getStatus(), is("rejected"));
+        assertThat(results.get(3).getError(), is(BatchService.ACCOUNT_NOT_FOUND));
+        assertThat(ledgerStore.balance(bill.getAccountId()), is(2_500L));
+    }
+
+    private Account fundedAccount(String first, String last, String balance) {
+        Account account = new Account(first, last);
+        account.setBalance(Money.parse(balance));
+        return accountRepository.save(account);
+    }
+}
@@ -0,0 +1,190 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import com.ippon.bankapp.service.exception.DepositNotValidException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MappedLedgerStoreTest {
+
+    private static final long CHUNK = 1 << 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void postsWithTheSameRulesAsTheDatabasePath() throws Exception {
+        MappedLedgerStore subject = new MappedLedgerStore(directory, CHUNK, false);
+        subject.open(1, 0);
+        subject.open(2, 500);
+
+        assertThrows(DepositNotValidException.class, () -> subject.withdraw(1, 100));
+        assertThat(subject.deposit(1, 1_000), is(1_000L));
+        assertThat(subject.withdraw(1, 250), is(750L));
+        subject.transfer(1, 2, 50);
+
+        assertThat(subject.balance(1), is(700L));
+        assertThat(subject.balance(2), is(550L));
+        assertThrows(DepositNotValidException.class, () -> subject.transfer(1, 1, 50));
+        assertThrows(DepositNotValidException.class, () -> subject.deposit(1, 0));
+        assertThrows(AccountNotFoundException.class, () -> subject.deposit(3, 100));
+        assertThat(subject.lastSequence(), is(6L));
+    }
+
+    @Test
+    public void openingAnAccountTwiceKeepsItsBalance() throws Exception {
+        MappedLedgerStore subject = new MappedLedgerStore(directory, CHUNK, false);
+        subject.open(1, 100);
+        subject.deposit(1, 100);
+
+        subject.open(1, 0);
+
+        assertThat(subject.balance(1), is(200L));
+        assertThat(subject.lastSequence(), is(2L));
+    }
+
+    @Test
+    public void recoversFromTheJournalAlone() throws Exception {
+        MappedLedgerStore before = new MappedLedgerStore(directory, CHUNK, false);
+        before.open(1, 0);
+        before.deposit(1, 300);
+        before.withdraw(1, 100);
+
+        MappedLedgerStore after = new MappedLedgerStore(directory, CHUNK, false);
+
+        assertThat(Files.exists(directory.resolve(MappedLedgerStore.SNAPSHOT_FILE)), is(false));
+        assertThat(after.balance(1), is(200L));
+        assertThat(after.lastSequence(), is(3L));
+        assertThat(after.deposit(1, 1), is(201L));
+    }
+
+    @Test
+    public void recoversFromSnapshotPlusJournalTail() throws Exception {
+        MappedLedgerStore before = new MappedLedgerStore(directory, CHUNK, false);
+        before.open(1, 0);
+        before.open(2, 100);
+        before.deposit(1, 300);
+        before.snapshot();
+        before.transfer(1, 2, 50);
+
+        MappedLedgerStore after = new MappedLedgerStore(directory, CHUNK, false);
+
+        assertThat(after.balance(1), is(250L));
+        assertThat(after.balance(2), is(150L));
+        assertThat(after.lastSequence(), is(5L));
+    }
+
+    @Test
+    public void aTransferCutOffAfterItsDebitIsDiscardedWhole() throws Exception {
+        MappedLedgerStore before = new MappedLedgerStore(directory, CHUNK, false);
+        before.open(1, 100);
+        before.open(2, 100);
+        before.transfer(1, 2, 40);
+        // the crash came after the debit, record 3, reached the journal and before the credit did
+        try (FileChannel journal = FileChannel.open(directory.resolve(MappedLedgerStore.JOURNAL_FILE), StandardOpenOption.WRITE)) {
+            journal.truncate(3 * MappedLedgerStore.RECORD_SIZE);
+        }
+
+        MappedLedgerStore after = new MappedLedgerStore(directory, CHUNK, false);
+
+        assertThat(after.balance(1), is(100L));
+        assertThat(after.balance(2), is(100L));
+        assertThat(after.lastSequence(), is(2L));
+        after.transfer(1, 2, 10);
+        MappedLedgerStore again = new MappedLedgerStore(directory, CHUNK, false);
+        assertThat(again.balance(1), is(90L));
+        assertThat(again.balance(2), is(110L));
+        assertThat(again.lastSequence(), is(4L));
+    }
+
+    @Test
+    public void aTransferMayStraddleTwoChunks() throws Exception {
+        MappedLedgerStore before = new MappedLedgerStore(directory, MappedLedgerStore.RECORD_SIZE * 3, true);
+        before.open(1, 100);
+        before.open(2, 100);
+        before.transfer(1, 2, 40);
+
+        MappedLedgerStore after = new MappedLedgerStore(directory, MappedLedgerStore.RECORD_SIZE * 3, false);
+
+        assertThat(after.balance(1), is(60L));
+        assertThat(after.balance(2), is(140L));
+        assertThat(after.lastSequence(), is(4L));
+    }
+
+    @Test
+    public void journalRollsOverIntoNewChunks() throws Exception {
+        MappedLedgerStore before = new MappedLedgerStore(directory, MappedLedgerStore.RECORD_SIZE * 3, true);
+        before.open(1, 0);
+        for (int i = 0; i < 10; i++) {
+            before.deposit(1, 10);
+        }
+
+        MappedLedgerStore after = new MappedLedgerStore(directory, MappedLedgerStore.RECORD_SIZE * 3, false);
+
+        assertThat(after.balance(1), is(100L));
+        assertThat(after.lastSequence(), is(11L));
+    }
+
+    @Test
+    public void holdsManyAccounts() throws Exception {
+        MappedLedgerStore before = new MappedLedgerStore(directory, CHUNK, false);
+        for (int id = 0; id < 5_000; id++) {
+            before.open(id, id);
+        }
+        before.destroy();
+
+        MappedLedgerStore after = new MappedLedgerStore(directory, CHUNK, false);
+
+        for (int id = 0; id < 5_000; id++) {
+            assertThat(after.balance(id), is((long) id));
+        }
+        assertThat(after.contains(5_000), is(false));
+    }
+
+    @Test
+    public void aShortSnapshotFallsBackToTheWholeJournal() throws Exception {
+        MappedLedgerStore before = new MappedLedgerStore(directory, CHUNK, false);
+        before.open(1, 0);
+        before.open(2, 100);
+        before.deposit(1, 300);
+        before.snapshot();
+        before.deposit(2, 5);
+        // power was lost after the snapshot's rename reached the disk and before all of its data did
+        try (FileChannel snapshot = FileChannel.open(directory.resolve(MappedLedgerStore.SNAPSHOT_FILE), StandardOpenOption.WRITE)) {
+            snapshot.truncate(20);
+        }
+
+        MappedLedgerStore after = new MappedLedgerStore(directory, CHUNK, false);
+
+        assertThat(after.balance(1), is(300L));
+        assertThat(after.balance(2), is(105L));
+        assertThat(after.lastSequence(), is(4L));
+    }
+
+    @Test
+    public void aCorruptSnapshotFallsBackToTheWholeJournal() throws Exception {
+        MappedLedgerStore before = new MappedLedgerStore(directory, CHUNK, false);
+        before.open(1, 0);
+        before.deposit(1, 300);
+        before.snapshot();
+        // the balance of account 1, the last field before the checksum
+        try (FileChannel snapshot = FileChannel.open(directory.resolve(MappedLedgerStore.SNAPSHOT_FILE), StandardOpenOption.WRITE)) {
+            snapshot.write(ByteBuffer.allocate(8).putLong(0, 999), 16);
+        }
+
+        MappedLedgerStore after = new MappedLedgerStore(directory, CHUNK, false);
+
+        assertThat(after.balance(1), is(300L));
+        assertThat(after.lastSequence(), is(2L));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ippon.bankapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class NotificationDispatcherTest {
+
+    private NotificationDispatcher subject;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        subject.destroy();
+    }
+
+    private NotificationDispatcher dispatcher(NotificationProperties properties) {
+        subject = new NotificationDispatcher(properties);
+        return subject;
+    }
+
+    private static Notification notification(int i) {
+        return new Notification("bank", "Scott" + i, "Account Created", "Welcome aboard!");
+    }
+
+    @Test
+    public void deliversQueuedNotificationsInBatches() throws Exception {
+        NotificationProperties properties = new NotificationProperties();
+        properties.setWorkersPerChannel(1);
+        properties.setBatchSize(10);
+        StubNotificationGateway gateway = new StubNotificationGateway("email");
+        gateway.expect(25);
+        gateway.hold();
+
+        NotificationDispatcher dispatcher = dispatcher(properties);
+        for (int i = 0; i < 25; i++) {
+            assertThat(dispatcher.dispatch(gateway, notification(i)), is(true));
+        }
+        gateway.release();
+
+        assertThat(gateway.await(), is(true));
+        assertThat(gateway.delivered.size(), is(25));
+        assertThat(gateway.batchSizes.size(), lessThan(25));
+    }
+
+    @Test
+    public void retriesFailedBatches() throws Exception {
+        NotificationProperties properties = new NotificationProperties();
+        properties.setRetryBackoffMillis(1);
+        StubNotificationGateway gateway = new StubNotificationGateway("sms");
+        gateway.failuresLeft.set(2);
+        gateway.expect(1);
+
+        dispatcher(properties).dispatch(gateway, notification(1));
+
+        assertThat(gateway.await(), is(true));
+        awaitDelivered(1L);
+        assertThat(subject.getDelivered(), is(1L));
+        assertThat(subject.getFailed(), is(0L));
+    }
+
+    @Test
+    public void dropsWhenQueueIsFull() throws Exception {
+        NotificationProperties properties = new NotificationProperties();
+        properties.setQueueCapacity(1);
+        properties.setWorkersPerChannel(1);
+        properties.setBatchSize(1);
+        properties.setOverflowPolicy(NotificationProperties.OverflowPolicy.DROP);
+        StubNotificationGateway gateway = new StubNotificationGateway("email");
+        gateway.hold();
+
+        NotificationDispatcher dispatcher = dispatcher(properties);
+        int accepted = 0;
+        for (int i = 0; i < 5; i++) {
+            if (dispatcher.dispatch(gateway, notification(i))) {
+                accepted++;
+            }
+        }
+        gateway.release();
+
+        assertThat(accepted < 5, is(true));
+        assertThat(dispatcher.getDropped(), is((long) (5 - accepted)));
+    }
+
+    private void awaitDelivered(long expected) throws InterruptedException {
+        // the counter moves just after the gateway returns, so give the worker a moment to catch up
+        for (int i = 0; i < 100 && subject.getDelivered() < expected; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Optional;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.verify;
 
 @SpringBootTest(classes = {NotificationFactory.class, SmsService.class, EmailService.class})
 class NotificationFactoryTest {
@@ -19,6 +20,9 @@ class NotificationFactoryTest {
     @MockBean
     public EmailService emailService;
 
+    @MockBean
+    public NotificationDispatcher notificationDispatcher;
+
     @Autowired
     public NotificationFactory subject;
 
@@ -33,4 +37,15 @@ class NotificationFactoryTest {
     void notificationFactory_defaultService_returnsEmailService() {
         assertThat(subject.getDefaultNotification(), is(emailService));
     }
+
+    @Test
+    void dispatch_queuesOnPreferredServiceOrDefault() {
+        Notification notification = new Notification("bank", "Scott", "Account Created", "Welcome aboard!");
+
+        subject.dispatch("sms", notification);
+        subject.dispatch("unknown", notification);
+
+        verify(notificationDispatcher).dispatch(smsService, notification);
+        verify(notificationDispatcher).dispatch(emailService, notification);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.ServerBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OffloadExecutorTest {
+
+    private final OffloadExecutor subject = new OffloadExecutor(1, 1, false);
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        subject.destroy();
+    }
+
+    @Test
+    public void refusesCallsOnceTheQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = subject.submit(() -> {
+            running.countDown();
+            await(release);
+            return 1;
+        });
+        running.await(5, TimeUnit.SECONDS);
+        CompletableFuture<Integer> queued = subject.submit(() -> 2);
+
+        assertThrows(ServerBusyException.class, () -> subject.submit(() -> 3));
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS), is(1));
+        assertThat(queued.get(5, TimeUnit.SECONDS), is(2));
+        assertThat(subject.submit(() -> 4).get(5, TimeUnit.SECONDS), is(4));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
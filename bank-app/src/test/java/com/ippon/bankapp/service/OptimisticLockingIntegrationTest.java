@@ -0,0 +1,82 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.AccountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.willAnswer;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:optimistic")
+public class OptimisticLockingIntegrationTest {
+
+    @SpyBean
+    private BalanceSnapshots balanceSnapshots;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void staleWriteIsRejected() {
+        Account stale = accountRepository.save(new Account("Ben", "Scott"));
+        accountService.deposit(stale.getAccountId(), Money.parse("10"));
+
+        stale.setBalance(Money.parse("1000"));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> accountRepository.save(stale));
+        assertThat(balanceOf(stale.getAccountId()), comparesEqualTo(new BigDecimal("10")));
+    }
+
+    @Test
+    public void depositIsRetriedAfterAWriterOnAnotherNode() {
+        int id = accountRepository.save(new Account("Bill", "Bill")).getAccountId();
+        TransactionTemplate otherNode = new TransactionTemplate(transactionManager);
+        otherNode.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicBoolean interfered = new AtomicBoolean();
+        // commits a competing update between the deposit's read and its commit, bypassing this node's stripe lock
+        willAnswer(invocation -> {
+            if (interfered.compareAndSet(false, true)) {
+                otherNode.execute(status -> {
+                    Account account = accountRepository.findByAccountId(id).get();
+                    account.setBalance(account.getBalance().plus(Money.parse("5")));
+                    return account;
+                });
+            }
+            return invocation.callRealMethod();
+        }).given(balanceSnapshots).record(any(Account.class), any(Money.class));
+        long conflicts = optimisticRetry.getConflicts();
+
+        accountService.deposit(id, Money.parse("100"));
+
+        assertThat(balanceOf(id), comparesEqualTo(new BigDecimal("105")));
+        assertThat(optimisticRetry.getConflicts(), is(conflicts + 1));
+    }
+
+    private BigDecimal balanceOf(int id) {
+        return accountRepository.findByAccountId(id).get().getBalance().toBigDecimal();
+    }
+}
@@ -0,0 +1,60 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.ConcurrentUpdateException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OptimisticRetryTest {
+
+    private final OptimisticRetry subject = new OptimisticRetry(3, 1);
+
+    @Test
+    public void retriesUntilTheVersionCheckPasses() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = subject.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("stale");
+            }
+            return "posted";
+        });
+
+        assertThat(result, is("posted"));
+        assertThat(attempts.get(), is(3));
+        assertThat(subject.getConflicts(), is(2L));
+        assertThat(subject.getExhausted(), is(0L));
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(ConcurrentUpdateException.class, () -> subject.execute(() -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        }));
+
+        assertThat(attempts.get(), is(3));
+        assertThat(subject.getConflicts(), is(3L));
+        assertThat(subject.getExhausted(), is(1L));
+    }
+
+    @Test
+    public void doesNotRetryOtherFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> subject.execute(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException();
+        }));
+
+        assertThat(attempts.get(), is(1));
+        assertThat(subject.getConflicts(), is(0L));
+    }
+}
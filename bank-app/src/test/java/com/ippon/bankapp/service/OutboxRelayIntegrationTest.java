@@ -0,0 +1,79 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.OutboxEventRepository;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox",
+        "bankapp.outbox.poll-interval-ms=3600000",
+        "bankapp.outbox.max-attempts=2"})
+public class OutboxRelayIntegrationTest {
+
+    @MockBean
+    private EmailService emailService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private OutboxRelay subject;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @AfterEach
+    public void tearDown() {
+        outboxEventRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void accountCreationIsRelayedFromTheOutbox() {
+        given(emailService.getName()).willReturn("email");
+
+        accountService.createAccount(new AccountDTO().firstName("Ben").lastName("Scott"));
+        assertThat(outboxEventRepository.count(), is(1L));
+
+        assertThat(subject.relayBatch(), is(1));
+
+        ArgumentCaptor<List<Notification>> batch = ArgumentCaptor.forClass(List.class);
+        verify(emailService).sendMessages(batch.capture());
+        assertThat(batch.getValue().size(), is(1));
+        assertThat(batch.getValue().get(0).getDestination(), is("Scott"));
+        assertThat(batch.getValue().get(0).getSubject(), is("Account Created"));
+        assertThat(outboxEventRepository.count(), is(0L));
+    }
+
+    @Test
+    public void failedEventsStayUntilAttemptsRunOut() {
+        given(emailService.getName()).willReturn("email");
+        willThrow(new IllegalStateException("gateway unavailable")).given(emailService).sendMessages(anyList());
+
+        accountService.createAccount(new AccountDTO().firstName("Ben").lastName("Scott"));
+
+        assertThat(subject.relayBatch(), is(0));
+        assertThat(outboxEventRepository.findAll().iterator().next().getAttempts(), is(1));
+        assertThat(subject.relayBatch(), is(1));
+        assertThat(outboxEventRepository.count(), is(0L));
+    }
+}
@@ -0,0 +1,71 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.service.exception.RateLimitExceededException;
+import com.ippon.bankapp.service.exception.ServerBusyException;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RateLimiterTest {
+
+    @Test
+    public void allowsTheBurstThenRefuses() {
+        RateLimiter subject = new RateLimiter(1, 3, 1, 3, 100);
+
+        for (int i = 0; i < 3; i++) {
+            subject.checkAccount(7);
+        }
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class, () -> subject.checkAccount(7));
+
+        assertThat(e.getRetryAfterSeconds(), greaterThanOrEqualTo(1L));
+    }
+
+    @Test
+    public void keysHaveTheirOwnBuckets() {
+        RateLimiter subject = new RateLimiter(1, 1, 1, 1, 100);
+
+        subject.checkAccount(1);
+        subject.checkAccount(2);
+        subject.checkClient("10.0.0.1");
+        subject.checkClient("10.0.0.2");
+
+        assertThrows(RateLimitExceededException.class, () -> subject.checkAccount(1));
+        assertThrows(RateLimitExceededException.class, () -> subject.checkClient("10.0.0.1"));
+    }
+
+    @Test
+    public void refillsOverTime() throws InterruptedException {
+        RateLimiter subject = new RateLimiter(50, 1, 0, 0, 100);
+
+        subject.checkAccount(1);
+        assertThrows(RateLimitExceededException.class, () -> subject.checkAccount(1));
+        Thread.sleep(40);
+        subject.checkAccount(1);
+    }
+
+    @Test
+    public void aZeroRateDisablesTheLimit() {
+        RateLimiter subject = new RateLimiter(0, 0, 0, 0, 100);
+
+        for (int i = 0; i < 1000; i++) {
+            subject.checkAccount(1);
+            subject.checkClient("10.0.0.1");
+        }
+    }
+
+    @Test
+    public void admissionShedsOnceEveryPermitIsTaken() {
+        AdmissionControl admission = new AdmissionControl(2, 0);
+
+        admission.admit();
+        admission.admit();
+        assertThrows(ServerBusyException.class, admission::admit);
+
+        admission.release();
+        admission.admit();
+        assertThat(admission.available(), is(0));
+    }
+}
@@ -0,0 +1,95 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The replica is a second in-memory database that replication never reaches, so its rows deliberately disagree
+ * with the primary's and show which database answered.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary",
+        "bankapp.datasource.replicas=" + ReplicaReadsIntegrationTest.REPLICA_URL,
+        "bankapp.datasource.read-your-writes-ms=60000"
+})
+public class ReplicaReadsIntegrationTest {
+
+    // the application connects to embedded databases as sa when no username is configured
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private static final String INSERT_ACCOUNT = "insert into account (account_id, balance, first_name, last_name, "
+            + "notification_preference) values (?, ?, ?, ?, 'email')";
+
+    private static JdbcTemplate replica;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private JdbcTemplate primary;
+
+    @BeforeAll
+    public static void migrateReplica() {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (JdbcTemplate database : new JdbcTemplate[]{primary, replica}) {
+            database.update("delete from transactions");
+            database.update("delete from balance_snapshot");
+            database.update("delete from outbox_event");
+            database.update("delete from account");
+        }
+    }
+
+    @Test
+    public void readsComeFromTheReplica() {
+        primary.update(INSERT_ACCOUNT, 1001, new BigDecimal("10.00"), "Ada", "Replica");
+        replica.update(INSERT_ACCOUNT, 1001, new BigDecimal("99.00"), "Ada", "Replica");
+
+        assertThat(accountService.getAccountByIdNum(1001).getBalance(), comparesEqualTo(new BigDecimal("99.00")));
+        assertThat(accountService.getAccount("Replica").getBalance(), comparesEqualTo(new BigDecimal("99.00")));
+        assertThat(transactionService.findTransactionPage(1001, null, 10).getTransactions().size(), is(0));
+    }
+
+    @Test
+    public void writesPinTheAccountToThePrimary() {
+        primary.update(INSERT_ACCOUNT, 1002, new BigDecimal("10.00"), "Grace", "Pinned");
+        replica.update(INSERT_ACCOUNT, 1002, new BigDecimal("99.00"), "Grace", "Pinned");
+
+        accountService.deposit(1002, Money.parse("5"));
+
+        assertThat(accountService.getAccountByIdNum(1002).getBalance(), comparesEqualTo(new BigDecimal("15.00")));
+        assertThat(accountService.getAccount("Pinned").getBalance(), comparesEqualTo(new BigDecimal("15.00")));
+        assertThat(transactionService.findTransactionPage(1002, null, 10).getTransactions().size(), is(1));
+    }
+
+    @Test
+    public void accountsTheReplicaHasNotSeenAreFoundOnThePrimary() {
+        primary.update(INSERT_ACCOUNT, 1003, new BigDecimal("10.00"), "Alan", "Lagging");
+
+        AccountDTO account = accountService.getAccountViaFirst("Alan");
+
+        assertThat(account.getLastName(), is("Lagging"));
+        assertThat(account.getBalance(), comparesEqualTo(new BigDecimal("10.00")));
+    }
+}
@@ -0,0 +1,424 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.ShardRing;
+import com.ippon.bankapp.repository.ShardRoutingDataSource;
+import com.ippon.bankapp.repository.Shards;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.dto.BatchOperationDTO;
+import com.ippon.bankapp.service.dto.BatchResultDTO;
+import com.ippon.bankapp.service.dto.PendingTransferDTO;
+import com.ippon.bankapp.service.dto.ShardMoveDTO;
+import com.ippon.bankapp.service.exception.AccountLastNameExistsException;
+import com.ippon.bankapp.service.exception.RebalanceNotAllowedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Three in-memory databases stand in for the shards. Rows are checked on each shard directly, so the tests show
+ * where the application put them rather than only what it reads back.
+ */
+@SpringBootTest(properties = {
+        "bankapp.sharding.shards=" + ShardingIntegrationTest.SHARD_URLS,
+        "bankapp.outbox.poll-interval-ms=3600000",
+        "bankapp.sharding.saga.retry-after-ms=3600000"
+})
+public class ShardingIntegrationTest {
+
+    static final String SHARD_URLS = "jdbc:h2:mem:shard-0;DB_CLOSE_DELAY=-1,"
+            + "jdbc:h2:mem:shard-1;DB_CLOSE_DELAY=-1,"
+            + "jdbc:h2:mem:shard-2;DB_CLOSE_DELAY=-1";
+
+    private static final String INSERT_ACCOUNT = "insert into account (account_id, balance, first_name, last_name, "
+            + "notification_preference) values (?, ?, ?, ?, 'email')";
+    private static final String INSERT_SAGA = "insert into transfer_saga (saga_id, from_account_id, to_account_id, "
+            + "amount, state, recipient_message, created_at) values (?, ?, ?, ?, 'DEBITED', 'Wire Transfer received', ?)";
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private CrossShardTransfer crossShardTransfer;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    @Autowired
+    private ShardLastNames shardLastNames;
+
+    @Autowired
+    private Shards shards;
+
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Map<String, JdbcTemplate> databases = new LinkedHashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        shardRoutingDataSource.getShards().forEach((name, dataSource) -> databases.put(name, new JdbcTemplate(dataSource)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (JdbcTemplate database : databases.values()) {
+            database.update("delete from transfer_saga");
+            database.update("delete from transactions");
+            database.update("delete from balance_snapshot");
+            database.update("delete from outbox_event");
+            database.update("delete from account");
+            database.update("delete from account_last_name");
+        }
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    public void accountsAreWrittenToTheShardThatOwnsThem() {
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            AccountDTO account = accountService.createAccount(new AccountDTO().firstName("First" + i).lastName("Last" + i));
+            String owner = shards.shardFor(account.getAccountId());
+            used.add(owner);
+
+            databases.forEach((name, database) -> assertThat(name, accounts(database, account.getAccountId()),
+                    is(name.equals(owner) ? 1 : 0)));
+            accountService.deposit(account.getAccountId(), Money.parse("10"));
+            assertThat(accountService.getAccount("Last" + i).getBalance(), comparesEqualTo(new BigDecimal("10")));
+            assertThat(transactionService.findTransactionPage(account.getAccountId(), null, 10).getTransactions().size(), is(1));
+        }
+
+        assertThat(used, is(databases.keySet()));
+    }
+
+    @Test
+    public void aLastNameTakenOnAnyShardIsRefused() {
+        for (int i = 0; i < 10; i++) {
+            accountService.createAccount(new AccountDTO().firstName("First" + i).lastName("Last" + i));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            AccountDTO duplicate = new AccountDTO().firstName("Other").lastName("Last" + i);
+            assertThrows(AccountLastNameExistsException.class, () -> accountService.createAccount(duplicate));
+        }
+    }
+
+    @Test
+    public void lastNamesAreReservedOnTheFirstShard() {
+        int id = accountService.createAccount(new AccountDTO().firstName("Ada").lastName("Reserved")).getAccountId();
+
+        databases.forEach((name, database) -> assertThat(name, database.queryForList(
+                "select account_id from account_last_name where last_name = 'Reserved'", Integer.class),
+                is(name.equals("shard-0") ? Collections.singletonList(id) : Collections.<Integer>emptyList())));
+        assertThat(accountService.getAccount("Reserved").getAccountId(), is(id));
+    }
+
+    @Test
+    public void racingCreationsOfOneLastNameLeaveOneAccount() throws Exception {
+        int racers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(racers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<AccountDTO>> attempts = new ArrayList<>();
+        for (int i = 0; i < racers; i++) {
+            AccountDTO racer = new AccountDTO().firstName("Racer" + i).lastName("Race");
+            attempts.add(pool.submit(() -> {
+                start.await();
+                return accountService.createAccount(racer);
+            }));
+        }
+        start.countDown();
+        int created = 0;
+        for (Future<AccountDTO> attempt : attempts) {
+            try {
+                attempt.get(30, TimeUnit.SECONDS);
+                created++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause() instanceof AccountLastNameExistsException, is(true));
+            }
+        }
+        pool.shutdown();
+
+        int stored = 0;
+        for (JdbcTemplate database : databases.values()) {
+            stored += database.queryForObject("select count(*) from account where last_name = 'Race'", Integer.class);
+        }
+        assertThat(created, is(1));
+        assertThat(stored, is(1));
+    }
+
+    @Test
+    public void aClaimInFlightHoldsTheNameUntilItIsStale() {
+        databases.get("shard-0").update("insert into account_last_name (last_name, account_id, claimed_at) values (?, ?, ?)",
+                "Claimed", 99001, Timestamp.valueOf(LocalDateTime.now()));
+        databases.get("shard-0").update("insert into account_last_name (last_name, account_id, claimed_at) values (?, ?, ?)",
+                "Abandoned", 99002, Timestamp.valueOf(LocalDateTime.now().minusMinutes(5)));
+
+        AccountDTO taken = new AccountDTO().firstName("Eve").lastName("Claimed");
+        assertThrows(AccountLastNameExistsException.class, () -> accountService.createAccount(taken));
+        int id = accountService.createAccount(new AccountDTO().firstName("Eve").lastName("Abandoned")).getAccountId();
+        assertThat(accountService.getAccount("Abandoned").getAccountId(), is(id));
+    }
+
+    @Test
+    public void existingAccountsHaveTheirLastNamesReservedAtStartup() {
+        int early = idOn("shard-1");
+        int late = idOn("shard-2");
+        int solo = idOn("shard-0");
+        databases.get("shard-1").update(INSERT_ACCOUNT, early, new BigDecimal("10.00"), "Early", "Twin");
+        databases.get("shard-2").update(INSERT_ACCOUNT, late, new BigDecimal("10.00"), "Late", "Twin");
+        databases.get("shard-0").update(INSERT_ACCOUNT, solo, new BigDecimal("10.00"), "Only", "Solo");
+
+        shardLastNames.afterSingletonsInstantiated();
+
+        assertThat(accountService.getAccount("Twin").getAccountId(), is(early));
+        assertThat(accountService.getAccount("Solo").getAccountId(), is(solo));
+        AccountDTO duplicate = new AccountDTO().firstName("Other").lastName("Twin");
+        assertThrows(AccountLastNameExistsException.class, () -> accountService.createAccount(duplicate));
+    }
+
+    @Test
+    public void transferBetweenShardsCreditsTheRecipientAndCompletesTheSaga() {
+        int[] pair = accountsOnDifferentShards();
+        accountService.deposit(pair[0], Money.parse("100"));
+        accountService.deposit(pair[1], Money.parse("10"));
+
+        accountService.wireTransferFromAccount1ToAccount2(pair[0], pair[1], Money.parse("30"));
+
+        assertThat(accountService.getAccountByIdNum(pair[0]).getBalance(), comparesEqualTo(new BigDecimal("70")));
+        assertThat(accountService.getAccountByIdNum(pair[1]).getBalance(), comparesEqualTo(new BigDecimal("40")));
+        assertThat(sagaStates(shards.shardFor(pair[0])), is("COMPLETED"));
+        assertThat(sagaStates(shards.shardFor(pair[1])), is("CREDITED"));
+        assertThat(transactionService.findTransactionPage(pair[1], null, 10).getTransactions().size(), is(2));
+    }
+
+    @Test
+    public void aCreditThatFailsAfterTheDebitIsReportedPendingAndResumed() {
+        int[] pair = accountsOnDifferentShards();
+        accountService.deposit(pair[0], Money.parse("100"));
+        accountService.deposit(pair[1], Money.parse("10"));
+        JdbcTemplate recipientShard = databases.get(shards.shardFor(pair[1]));
+        // the recipient's shard cannot record the credit
+        recipientShard.execute("alter table transfer_saga rename to transfer_saga_offline");
+        PendingTransferDTO pending;
+        try {
+            pending = accountService.wireTransferFromAccount1ToAccount2(pair[0], pair[1], Money.parse("30"));
+        } finally {
+            recipientShard.execute("alter table transfer_saga_offline rename to transfer_saga");
+        }
+
+        assertThat(pending.getStatus(), is(PendingTransferDTO.PENDING));
+        assertThat(accountService.getAccountByIdNum(pair[0]).getBalance(), comparesEqualTo(new BigDecimal("70")));
+        assertThat(accountService.getAccountByIdNum(pair[1]).getBalance(), comparesEqualTo(new BigDecimal("10")));
+        JdbcTemplate senderShard = databases.get(shards.shardFor(pair[0]));
+        assertThat(senderShard.queryForObject("select state from transfer_saga where saga_id = ?", String.class,
+                pending.getSagaId()), is("DEBITED"));
+
+        senderShard.update("update transfer_saga set created_at = ? where saga_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(2)), pending.getSagaId());
+        crossShardTransfer.resume();
+
+        assertThat(accountService.getAccountByIdNum(pair[1]).getBalance(), comparesEqualTo(new BigDecimal("40")));
+        assertThat(senderShard.queryForObject("select state from transfer_saga where saga_id = ?", String.class,
+                pending.getSagaId()), is("COMPLETED"));
+    }
+
+    @Test
+    public void transferWithinAShardUsesOneTransaction() {
+        int[] pair = accountsOnTheSameShard();
+        accountService.deposit(pair[0], Money.parse("100"));
+        accountService.deposit(pair[1], Money.parse("10"));
+
+        accountService.wireTransferFromAccount1ToAccount2(pair[0], pair[1], Money.parse("30"));
+
+        assertThat(accountService.getAccountByIdNum(pair[1]).getBalance(), comparesEqualTo(new BigDecimal("40")));
+        assertThat(sagaStates(shards.shardFor(pair[0])), is(""));
+    }
+
+    @Test
+    public void aStuckSagaIsCreditedOnce() {
+        int[] pair = accountsOnDifferentShards();
+        accountService.deposit(pair[1], Money.parse("10"));
+        String sagaId = stuckSaga(pair[0], pair[1]);
+
+        crossShardTransfer.resume();
+        crossShardTransfer.resume();
+
+        assertThat(accountService.getAccountByIdNum(pair[1]).getBalance(), comparesEqualTo(new BigDecimal("35")));
+        assertThat(databases.get(shards.shardFor(pair[0])).queryForObject(
+                "select state from transfer_saga where saga_id = ?", String.class, sagaId), is("COMPLETED"));
+    }
+
+    @Test
+    public void aStuckSagaWhoseRecipientIsGoneIsCompensated() {
+        int from = accountService.createAccount(new AccountDTO().firstName("Ada").lastName("Sender")).getAccountId();
+        int missing = from + 1;
+        while (shards.shardFor(missing).equals(shards.shardFor(from))) {
+            missing++;
+        }
+        accountService.deposit(from, Money.parse("75"));
+        String sagaId = stuckSaga(from, missing);
+
+        crossShardTransfer.resume();
+
+        assertThat(accountService.getAccountByIdNum(from).getBalance(), comparesEqualTo(new BigDecimal("100")));
+        assertThat(databases.get(shards.shardFor(from)).queryForObject(
+                "select state from transfer_saga where saga_id = ?", String.class, sagaId), is("COMPENSATED"));
+    }
+
+    @Test
+    public void batchesSplitByShardAndKeepTheirIndexes() {
+        int[] apart = accountsOnDifferentShards();
+        int[] together = accountsOnTheSameShard();
+
+        List<BatchResultDTO> results = batchService.apply(Arrays.asList(
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(apart[0]).amount(Money.parse("100")),
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(apart[1]).amount(Money.parse("10")),
+                new BatchOperationDTO().type(BatchOperationDTO.TRANSFER).id(apart[0]).id2(apart[1]).amount(Money.parse("30")),
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(together[0]).amount(Money.parse("50")),
+                new BatchOperationDTO().type(BatchOperationDTO.DEPOSIT).id(together[1]).amount(Money.parse("5")),
+                new BatchOperationDTO().type(BatchOperationDTO.TRANSFER).id(together[0]).id2(together[1]).amount(Money.parse("20")),
+                new BatchOperationDTO().type(BatchOperationDTO.WITHDRAW).id(-1).amount(Money.parse("10"))));
+
+        for (int i = 0; i < results.size(); i++) {
+            assertThat(results.get(i).getIndex(), is(i));
+        }
+        assertThat(results.get(2).getBalance(), comparesEqualTo(new BigDecimal("70")));
+        assertThat(results.get(5).getBalance(), comparesEqualTo(new BigDecimal("30")));
+        assertThat(results.get(6).getError(), is(BatchService.ACCOUNT_NOT_FOUND));
+        assertThat(accountService.getAccountByIdNum(apart[1]).getBalance(), comparesEqualTo(new BigDecimal("40")));
+        assertThat(accountService.getAccountByIdNum(together[1]).getBalance(), comparesEqualTo(new BigDecimal("25")));
+    }
+
+    @Test
+    public void rebalanceMovesAccountsPlacedForFewerShards() {
+        // where accounts 5000-5099 lived before shard-2 was added
+        ShardRing twoShards = new ShardRing(Arrays.asList("shard-0", "shard-1"), 64);
+        for (int id = 5000; id < 5100; id++) {
+            JdbcTemplate database = databases.get(twoShards.shardFor(id));
+            database.update(INSERT_ACCOUNT, id, new BigDecimal("10.00"), "First" + id, "Last" + id);
+            database.update("insert into transactions (transaction_id, transaction_type, amount, timestamp, account_id) "
+                    + "values (?, 'Deposit of 10.00$', 10.00, ?, ?)", id, Timestamp.valueOf(LocalDateTime.now()), id);
+        }
+
+        List<ShardMoveDTO> moves = shardRebalancer.rebalance();
+
+        assertThat(moves.isEmpty(), is(false));
+        for (ShardMoveDTO move : moves) {
+            assertThat(move.getTo(), is("shard-2"));
+        }
+        for (int id = 5000; id < 5100; id++) {
+            String owner = shards.shardFor(id);
+            for (Map.Entry<String, JdbcTemplate> database : databases.entrySet()) {
+                assertThat(accounts(database.getValue(), id), is(database.getKey().equals(owner) ? 1 : 0));
+            }
+            assertThat(accountService.getAccountByIdNum(id).getBalance(), comparesEqualTo(new BigDecimal("10")));
+            assertThat(transactionService.findTransactionPage(id, null, 10).getTransactions().size(), is(1));
+        }
+        assertThat(shardRebalancer.rebalance().isEmpty(), is(true));
+    }
+
+    @Test
+    public void rebalanceWaitsForSagasInFlight() {
+        int[] pair = accountsOnDifferentShards();
+        stuckSaga(pair[0], pair[1]);
+
+        assertThrows(RebalanceNotAllowedException.class, () -> shardRebalancer.rebalance());
+    }
+
+    @Test
+    public void shardSequencesNeverHandOutTheSameIds() {
+        Set<Integer> ids = new HashSet<>();
+        for (JdbcTemplate database : databases.values()) {
+            ids.add(database.queryForObject("select nextval('account_seq')", Integer.class));
+        }
+
+        assertThat(ids.size(), is(databases.size()));
+        assertThat(ids, everyItem(greaterThan(0)));
+    }
+
+    private int idOn(String shard) {
+        for (int id = 7000; ; id++) {
+            if (shards.shardFor(id).equals(shard)) {
+                return id;
+            }
+        }
+    }
+
+    private int[] accountsOnDifferentShards() {
+        int first = accountService.createAccount(new AccountDTO().firstName("Ben").lastName("Apart0")).getAccountId();
+        for (int i = 1; ; i++) {
+            int other = accountService.createAccount(new AccountDTO().firstName("Bill").lastName("Apart" + i)).getAccountId();
+            if (!shards.shardFor(other).equals(shards.shardFor(first))) {
+                return new int[]{first, other};
+            }
+        }
+    }
+
+    private int[] accountsOnTheSameShard() {
+        int first = accountService.createAccount(new AccountDTO().firstName("Grace").lastName("Together0")).getAccountId();
+        for (int i = 1; ; i++) {
+            int other = accountService.createAccount(new AccountDTO().firstName("Alan").lastName("Together" + i)).getAccountId();
+            if (shards.shardFor(other).equals(shards.shardFor(first))) {
+                return new int[]{first, other};
+            }
+        }
+    }
+
+    /**
+     * A saga whose debit of 25 committed an hour ago but whose credit never happened.
+     */
+    private String stuckSaga(int fromId, int toId) {
+        String sagaId = UUID.randomUUID().toString();
+        JdbcTemplate database = databases.get(shards.shardFor(fromId));
+        database.update(INSERT_SAGA, sagaId, fromId, toId, new BigDecimal("25.00"),
+                Timestamp.valueOf(LocalDateTime.now().minusHours(2)));
+        return sagaId;
+    }
+
+    private String sagaStates(String shard) {
+        return String.join(",", databases.get(shard).queryForList("select state from transfer_saga", String.class));
+    }
+
+    private static int accounts(JdbcTemplate database, int accountId) {
+        return database.queryForObject("select count(*) from account where account_id = ?", Integer.class, accountId);
+    }
+}
@@ -0,0 +1,109 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.BalanceSnapshot;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.BalanceSnapshotRepository;
+import com.ippon.bankapp.repository.TransactionRepository;
+import com.ippon.bankapp.service.dto.StatementDTO;
+import com.ippon.bankapp.service.exception.StatementRangeNotValidException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class StatementIntegrationTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService subject;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @AfterEach
+    public void tearDown() {
+        balanceSnapshotRepository.deleteAll();
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    public void postingsKeepTodaysSnapshotCurrent() {
+        Account ben = accountRepository.save(new Account("Ben", "Scott"));
+        Account bill = accountRepository.save(new Account("Bill", "Bill"));
+
+        accountService.deposit(ben.getAccountId(), Money.parse("100"));
+        accountService.deposit(bill.getAccountId(), Money.parse("10"));
+        accountService.withdraw(ben.getAccountId(), Money.parse("30"));
+        accountService.wireTransferFromAccount1ToAccount2(ben.getAccountId(), bill.getAccountId(), Money.parse("20"));
+
+        StatementDTO statement = subject.findStatement(ben.getAccountId(), TODAY, TODAY);
+        assertThat(statement.getOpeningBalance(), comparesEqualTo(BigDecimal.ZERO));
+        assertThat(statement.getClosingBalance(), comparesEqualTo(new BigDecimal("50")));
+        assertThat(statement.getPostings(), is(3));
+
+        StatementDTO received = subject.findStatement(bill.getAccountId(), TODAY, TODAY);
+        assertThat(received.getClosingBalance(), comparesEqualTo(new BigDecimal("30")));
+        assertThat(received.getPostings(), is(2));
+        assertThat(transactionRepository.count(), is(5L));
+    }
+
+    @Test
+    public void statementIsReadFromSnapshotsAroundTheRange() {
+        Account ben = accountRepository.save(new Account("Ben", "Scott"));
+        int id = ben.getAccountId();
+        balanceSnapshotRepository.saveAll(Arrays.asList(
+                snapshot(id, TODAY.minusDays(40), "0", "100"),
+                snapshot(id, TODAY.minusDays(20), "100", "150"),
+                snapshot(id, TODAY.minusDays(10), "150", "90")));
+
+        StatementDTO month = subject.findStatement(id, TODAY.minusDays(30), TODAY.minusDays(1));
+        assertThat(month.getOpeningBalance(), comparesEqualTo(new BigDecimal("100")));
+        assertThat(month.getClosingBalance(), comparesEqualTo(new BigDecimal("90")));
+        assertThat(month.getPostings(), is(2));
+
+        StatementDTO quiet = subject.findStatement(id, TODAY.minusDays(19), TODAY.minusDays(11));
+        assertThat(quiet.getOpeningBalance(), comparesEqualTo(new BigDecimal("150")));
+        assertThat(quiet.getClosingBalance(), comparesEqualTo(new BigDecimal("150")));
+        assertThat(quiet.getPostings(), is(0));
+
+        StatementDTO beforeFirstPosting = subject.findStatement(id, TODAY.minusDays(60), TODAY.minusDays(50));
+        assertThat(beforeFirstPosting.getClosingBalance(), comparesEqualTo(BigDecimal.ZERO));
+    }
+
+    @Test
+    public void rejectsInvertedRange() {
+        Account ben = accountRepository.save(new Account("Ben", "Scott"));
+
+        assertThrows(StatementRangeNotValidException.class,
+                () -> subject.findStatement(ben.getAccountId(), TODAY, TODAY.minusDays(1)));
+    }
+
+    private BalanceSnapshot snapshot(int accountId, LocalDate date, String opening, String closing) {
+        BalanceSnapshot snapshot = new BalanceSnapshot(accountId, date, Money.parse(opening));
+        snapshot.post(Money.parse(closing));
+        return snapshot;
+    }
+}
@@ -0,0 +1,68 @@
+package com.ippon.bankapp.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for a real email or SMS gateway: records what it was asked to deliver and can be told to fail.
+ */
+class StubNotificationGateway implements NotificationService {
+
+    final List<Notification> delivered = new CopyOnWriteArrayList<>();
+    final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    final AtomicInteger failuresLeft = new AtomicInteger();
+    private final String name;
+    private volatile CountDownLatch latch = new CountDownLatch(0);
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    StubNotificationGateway(String name) {
+        this.name = name;
+    }
+
+    void expect(int notifications) {
+        latch = new CountDownLatch(notifications);
+    }
+
+    boolean await() throws InterruptedException {
+        return latch.await(5, TimeUnit.SECONDS);
+    }
+
+    void hold() {
+        gate = new CountDownLatch(1);
+    }
+
+    void release() {
+        gate.countDown();
+    }
+
+    @Override
+    public void sendMessage(String source, String destination, String subject, String message) {
+        sendMessages(Collections.singletonList(new Notification(source, destination, subject, message)));
+    }
+
+    @Override
+    public void sendMessages(List<Notification> notifications) {
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failuresLeft.getAndDecrement() > 0) {
+            throw new IllegalStateException("gateway unavailable");
+        }
+        batchSizes.add(notifications.size());
+        delivered.addAll(notifications);
+        for (int i = 0; i < notifications.size(); i++) {
+            latch.countDown();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,179 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.domain.Transaction;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.TransactionRepository;
+import com.ippon.bankapp.service.dto.AccountDTO;
+import com.ippon.bankapp.service.dto.TransactionDTO;
+import com.ippon.bankapp.service.dto.TransactionPageDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:archive",
+        "bankapp.archive.enabled=true",
+        "bankapp.archive.directory=target/archive-it",
+        "bankapp.outbox.poll-interval-ms=3600000"})
+public class TransactionArchiveIntegrationTest {
+
+    @Autowired
+    private TransactionArchiver archiver;
+
+    @Autowired
+    private TransactionArchive archive;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeAll
+    public static void clearArchive() {
+        FileSystemUtils.deleteRecursively(new File("target/archive-it"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    public void movesClosedMonthsOutOfTheTable() {
+        Account ben = accountRepository.save(new Account("Ben", "Scott"));
+        post(ben, "old 1", now.minusMonths(6));
+        post(ben, "old 2", now.minusMonths(6).plusSeconds(1));
+        post(ben, "old 3", now.minusMonths(5));
+        post(ben, "new 1", now.minusSeconds(1));
+        post(ben, "new 2", now);
+
+        assertThat(archiver.archive(), is(3));
+
+        assertThat(transactionRepository.count(), is(2L));
+        assertThat(archive.months(), hasItems(YearMonth.from(now.minusMonths(6)), YearMonth.from(now.minusMonths(5))));
+        assertThat(archiver.archive(), is(0));
+    }
+
+    @Test
+    public void historyReadsCarryOnIntoTheArchive() {
+        Account bill = accountRepository.save(new Account("Bill", "Pages"));
+        post(bill, "old 1", now.minusMonths(7));
+        post(bill, "old 2", now.minusMonths(6));
+        post(bill, "old 3", now.minusMonths(6).plusSeconds(1));
+        post(bill, "new 1", now.minusSeconds(1));
+        post(bill, "new 2", now);
+        archiver.archive();
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransactionPageDTO page = transactionService.findTransactionPage(bill.getAccountId(), cursor, 2);
+            page.getTransactions().forEach(transaction -> paged.add(transaction.getType()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        List<String> latest = new ArrayList<>();
+        for (TransactionDTO transaction : transactionService.findAllTransactionsByAccount(new AccountDTO().firstName("Bill"))) {
+            latest.add(transaction.getType());
+        }
+
+        List<String> newestFirst = Arrays.asList("new 2", "new 1", "old 3", "old 2", "old 1");
+        assertThat(paged, is(newestFirst));
+        assertThat(latest, is(newestFirst));
+        assertThat(transactionService.findTransactionPage(bill.getAccountId(), null, 5).getNextCursor(), is(nullValue()));
+    }
+
+    @Test
+    public void exportsArchivedMonthsFirst() throws Exception {
+        Account ann = accountRepository.save(new Account("Ann", "Export"));
+        post(ann, "old 1", now.minusMonths(8));
+        post(ann, "old 2", now.minusMonths(4));
+        post(ann, "new 1", now);
+        archiver.archive();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = transactionService.exportTransactions(ann.getAccountId(), ExportFormat.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertThat(rows, is(3L));
+        assertThat(lines[1].split(",")[2], is("old 1"));
+        assertThat(lines[2].split(",")[2], is("old 2"));
+        assertThat(lines[3].split(",")[2], is("new 1"));
+    }
+
+    @Test
+    public void exportSkipsRowsLeftInTheTableAfterTheyWereArchived() throws Exception {
+        Account eve = accountRepository.save(new Account("Eve", "Crash"));
+        LocalDateTime month = now.minusMonths(10);
+        post(eve, "old 1", month);
+        Transaction left = post(eve, "old 2", month.plusSeconds(1));
+        archiver.archive();
+        // as if the archiver had stopped after writing the segment, before deleting the rows
+        jdbcTemplate.update("insert into transactions (transaction_id, transaction_type, amount, timestamp, account_id) "
+                + "values (?, 'old 2', 1.00, ?, ?)", left.getTransactionId(), Timestamp.valueOf(month.plusSeconds(1)),
+                eve.getAccountId());
+        post(eve, "new 1", now);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = transactionService.exportTransactions(eve.getAccountId(), ExportFormat.CSV, out);
+
+        assertThat(rows, is(3L));
+        assertThat(archiver.archive(), is(1));
+        assertThat(archive.all(eve.getAccountId()).count(), is(2L));
+    }
+
+    @Test
+    public void aLatePostingIsMergedIntoItsArchivedMonth() {
+        Account sam = accountRepository.save(new Account("Sam", "Late"));
+        LocalDateTime month = now.minusMonths(9);
+        post(sam, "first", month);
+        archiver.archive();
+
+        post(sam, "second", month.plusSeconds(1));
+
+        assertThat(archiver.archive(), is(1));
+        assertThat(transactionRepository.count(), is(0L));
+        List<String> latest = new ArrayList<>();
+        for (TransactionDTO transaction : transactionService.findAllTransactionsByAccount(new AccountDTO().firstName("Sam"))) {
+            latest.add(transaction.getType());
+        }
+        assertThat(latest, is(Arrays.asList("second", "first")));
+    }
+
+    private Transaction post(Account account, String message, LocalDateTime at) {
+        Transaction transaction = transactionRepository.save(new Transaction(account, message, Money.parse("1")));
+        jdbcTemplate.update("update transactions set timestamp = ? where transaction_id = ?",
+                Timestamp.valueOf(at), transaction.getTransactionId());
+        return transaction;
+    }
+}
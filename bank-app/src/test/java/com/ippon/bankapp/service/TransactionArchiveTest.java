@@ -0,0 +1,120 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.service.dto.ArchivedTransactionDTO;
+import com.ippon.bankapp.service.dto.TransactionExportDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TransactionArchiveTest {
+
+    private static final YearMonth MARCH = YearMonth.of(2019, 3);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void readsOneAccountsRowsOutOfAMonth() throws Exception {
+        TransactionArchive archive = new TransactionArchive(directory, 1000);
+        List<ArchivedTransactionDTO> rows = new ArrayList<>();
+        int id = 0;
+        for (int account = 1; account <= 200; account++) {
+            for (int day = 1; day <= 5; day++) {
+                rows.add(row(account, ++id, day));
+            }
+        }
+        IntStream.Builder archived = IntStream.builder();
+
+        assertThat(archive.append(MARCH, rows.stream(), archived::add), is(1000));
+
+        assertThat(archived.build().count(), is(1000L));
+        assertThat(types(archive.all(42).collect(Collectors.toList())),
+                is(Arrays.asList("42/1", "42/2", "42/3", "42/4", "42/5")));
+        assertThat(types(archive.latest(42, null, 2)), is(Arrays.asList("42/5", "42/4")));
+        assertThat(archive.all(201).count(), is(0L));
+    }
+
+    @Test
+    public void mergesLateRowsAndKeepsEachRowOnce() throws Exception {
+        TransactionArchive archive = new TransactionArchive(directory, 1000);
+        archive.append(MARCH, Stream.of(row(1, 1, 1), row(2, 2, 1), row(4, 4, 1)), id -> { });
+
+        archive.append(MARCH, Stream.of(row(2, 2, 1), row(2, 5, 9), row(3, 3, 2)), id -> { });
+
+        assertThat(types(archive.all(1).collect(Collectors.toList())), is(Collections.singletonList("1/1")));
+        assertThat(types(archive.all(2).collect(Collectors.toList())), is(Arrays.asList("2/1", "2/9")));
+        assertThat(types(archive.all(3).collect(Collectors.toList())), is(Collections.singletonList("3/2")));
+        assertThat(types(archive.all(4).collect(Collectors.toList())), is(Collections.singletonList("4/1")));
+    }
+
+    @Test
+    public void anotherNodeSeesNewAndRewrittenMonths() throws Exception {
+        TransactionArchive writer = new TransactionArchive(directory, 1000);
+        TransactionArchive reader = new TransactionArchive(directory, 1000);
+        assertThat(reader.months().isEmpty(), is(true));
+
+        writer.append(MARCH, Stream.of(row(1, 1, 1)), id -> { });
+        assertThat(reader.months(), is(Collections.singletonList(MARCH)));
+        assertThat(reader.all(1).count(), is(1L));
+
+        writer.append(MARCH, Stream.of(row(1, 2, 2)), id -> { });
+        assertThat(reader.all(1).count(), is(2L));
+    }
+
+    @Test
+    public void onlyOneRunHoldsTheLock() throws Exception {
+        TransactionArchive first = new TransactionArchive(directory, 1000);
+        TransactionArchive second = new TransactionArchive(directory, 1000);
+
+        try (FileLock lock = first.tryLock()) {
+            assertThat(lock, is(notNullValue()));
+            assertThat(second.tryLock(), is(nullValue()));
+        }
+        try (FileLock lock = second.tryLock()) {
+            assertThat(lock, is(notNullValue()));
+        }
+    }
+
+    @Test
+    public void tellsRowsLeftInTheTableFromRowsNotArchivedYet() throws Exception {
+        TransactionArchive archive = new TransactionArchive(directory, 1000);
+        archive.append(MARCH, Stream.of(row(1, 1, 1), row(1, 2, 2)), id -> { });
+
+        List<TransactionExportDTO> hot = Arrays.asList(export(2, MARCH.atDay(2)), export(3, MARCH.atDay(3)),
+                export(4, MARCH.plusMonths(1).atDay(1)));
+
+        assertThat(hot.stream().filter(archive.notArchived(1)).map(TransactionExportDTO::getTransactionId)
+                .collect(Collectors.toList()), is(Arrays.asList(3, 4)));
+    }
+
+    private static ArchivedTransactionDTO row(int accountId, int transactionId, int day) {
+        return new ArchivedTransactionDTO(accountId, transactionId, MARCH.atDay(day).atStartOfDay(),
+                accountId + "/" + day, Money.parse("1"));
+    }
+
+    private static TransactionExportDTO export(int transactionId, LocalDate day) {
+        return new TransactionExportDTO(transactionId, day.atStartOfDay(), "hot",
+                Money.parse("1"));
+    }
+
+    private static List<String> types(List<TransactionExportDTO> rows) {
+        return rows.stream().map(TransactionExportDTO::getType).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,97 @@
+package com.ippon.bankapp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+@SpringBootTest
+public class TransactionExportIntegrationTest {
+
+    @Autowired
+    private TransactionService subject;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    public void tearDown() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    public void exportsWholeLedgerOldestFirstAsNdjson() throws Exception {
+        Account ben = accountRepository.save(new Account("Ben", "Scott"));
+        for (int i = 1; i <= 3; i++) {
+            accountService.deposit(ben.getAccountId(), Money.ofMinor(i * 100L));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = subject.exportTransactions(ben.getAccountId(), ExportFormat.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertThat(rows, is(3L));
+        assertThat(lines.length, is(3));
+        for (int i = 0; i < 3; i++) {
+            JsonNode row = objectMapper.readTree(lines[i]);
+            assertThat(row.get("type").asText(), is("Deposit of " + (i + 1) + ".00$"));
+            assertThat(row.get("amount").decimalValue().intValue(), is(i + 1));
+        }
+    }
+
+    @Test
+    public void quotesCsvFieldsThatNeedIt() throws Exception {
+        Account ben = fundedAccount("Ben", "Scott");
+        Account junior = fundedAccount("Smith, \"Jr\"", "Smith");
+        accountService.wireTransferFromAccount1ToAccount2(ben.getAccountId(), junior.getAccountId(), Money.parse("1"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        subject.exportTransactions(ben.getAccountId(), ExportFormat.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertThat(lines.length, is(2));
+        assertThat(lines[0], is("transaction_id,timestamp,type,amount"));
+        assertThat(lines[1].substring(lines[1].indexOf(',', lines[1].indexOf(',') + 1) + 1),
+                is("\"Wire Transfer of 1.00$ was sent to Smith, \"\"Jr\"\"\",1.00"));
+    }
+
+    @Test
+    public void emptyHistoryExportsOnlyTheHeader() throws Exception {
+        Account ben = accountRepository.save(new Account("Ben", "Scott"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = subject.exportTransactions(ben.getAccountId(), ExportFormat.CSV, out);
+
+        assertThat(rows, is(0L));
+        assertThat(out.toString(StandardCharsets.UTF_8.name()), startsWith("transaction_id,"));
+    }
+
+    private Account fundedAccount(String first, String last) {
+        Account account = new Account(first, last);
+        account.setBalance(Money.parse("10"));
+        return accountRepository.save(account);
+    }
+}
@@ -0,0 +1,103 @@
+package com.ippon.bankapp.service;
+
+import com.ippon.bankapp.domain.Account;
+import com.ippon.bankapp.domain.Money;
+import com.ippon.bankapp.repository.AccountRepository;
+import com.ippon.bankapp.repository.TransactionRepository;
+import com.ippon.bankapp.service.exception.AccountNotFoundException;
+import com.ippon.bankapp.service.exception.DepositNotValidException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class TransferServiceIntegrationTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @AfterEach
+    public void tearDown() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    public void transferMovesBalanceAndWritesBothLedgerRows() {
+        Account ben = fundedAccount("Ben", "Scott", "100");
+        Account bill = fundedAccount("Bill", "Bill", "100");
+
+        accountService.wireTransferFromAccount1ToAccount2(ben.getAccountId(), bill.getAccountId(), Money.parse("40"));
+
+        assertThat(balanceOf(ben), comparesEqualTo(new BigDecimal("60")));
+        assertThat(balanceOf(bill), comparesEqualTo(new BigDecimal("140")));
+        assertThat(transactionRepository.count(), is(2L));
+    }
+
+    @Test
+    public void failedTransferChangesNothing() {
+        Account ben = fundedAccount("Ben", "Scott", "100");
+
+        assertThrows(AccountNotFoundException.class,
+                () -> accountService.wireTransferFromAccount1ToAccount2(ben.getAccountId(), -1, Money.parse("40")));
+        assertThrows(DepositNotValidException.class,
+                () -> accountService.wireTransferFromAccount1ToAccount2(ben.getAccountId(), ben.getAccountId(), Money.parse("40")));
+
+        assertThat(balanceOf(ben), comparesEqualTo(new BigDecimal("100")));
+        assertThat(transactionRepository.count(), is(0L));
+    }
+
+    @Test
+    public void concurrentOppositeTransfersConserveMoney() throws Exception {
+        Account ben = fundedAccount("Ben", "Scott", "1000");
+        Account bill = fundedAccount("Bill", "Bill", "1000");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> transfers = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                transfers.add(executor.submit(() -> accountService
+                        .wireTransferFromAccount1ToAccount2(ben.getAccountId(), bill.getAccountId(), Money.parse("1"))));
+                transfers.add(executor.submit(() -> accountService
+                        .wireTransferFromAccount1ToAccount2(bill.getAccountId(), ben.getAccountId(), Money.parse("1"))));
+            }
+            for (Future<?> transfer : transfers) {
+                transfer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(balanceOf(ben), comparesEqualTo(new BigDecimal("1000")));
+        assertThat(balanceOf(bill), comparesEqualTo(new BigDecimal("1000")));
+        assertThat(transactionRepository.count(), is(200L));
+    }
+
+    private Account fundedAccount(String first, String last, String balance) {
+        Account account = new Account(first, last);
+        account.setBalance(Money.parse(balance));
+        return accountRepository.save(account);
+    }
+
+    private BigDecimal balanceOf(Account account) {
+        return accountRepository.findByAccountId(account.getAccountId()).get().getBalance().toBigDecimal();
+    }
+}
@@ -1,4 +1,4 @@
-INSERT INTO ACCOUNT (ID, FIRST_NAME, LAST_NAME, BALANCE, NOTIFICATION_PREFERENCE)
+INSERT INTO ACCOUNT (ACCOUNT_ID, FIRST_NAME, LAST_NAME, BALANCE, NOTIFICATION_PREFERENCE)
 VALUES      (-10,'Ben','Scott', 145.32, 'email'),
             (-11,'Erin','Geoghan', 1405.32, 'sms'),
             (-12,'Hayley','Ortega', 1452.32, 'email'),